@@ -0,0 +1,181 @@
+package com.caffinc.researchgate.streamsampler.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Input of a benchmark, generated once per trial and read again from the selected {@link Source} on every invocation.
+ * <p>
+ * The input is random text over the characters of {@link #ALPHABET} which can be encoded in the selected charset,
+ * split in lines of {@link #LINE_LENGTH} characters, so that it can be sampled by characters, bytes, lines or records.
+ *
+ * @author Sriram
+ */
+public final class BenchmarkInput {
+    /**
+     * Characters the input is generated from, the same ones used by the tests
+     */
+    public static final String ALPHABET = "THEQUICKBROWNFOXJUMPSOVERTHELAZYDOGöäÄÜÖß";
+
+    /**
+     * Number of characters in every line of the input, including the line feed
+     */
+    public static final int LINE_LENGTH = 80;
+
+    private static final int PIPE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Where the input is read from
+     */
+    public enum Source {
+        /**
+         * Input already in memory, read through a {@link ByteArrayInputStream}
+         */
+        HEAP,
+        /**
+         * Input written by another thread into a {@link Pipe}, like data piped into the command-line
+         */
+        PIPE,
+        /**
+         * Input read from a temporary file
+         */
+        FILE
+    }
+
+    private final Source source;
+    private final byte[] bytes;
+    private final Path file;
+
+    /**
+     * Generates the input and, for {@link Source#FILE}, writes it to a temporary file
+     *
+     * @param source    Where the input is read from
+     * @param charset   Charset used to encode the input
+     * @param charCount Number of characters in the input
+     * @param seed      Seed of the generated characters
+     * @throws IOException thrown if the temporary file cannot be written
+     */
+    public BenchmarkInput(Source source, Charset charset, int charCount, long seed) throws IOException {
+        this.source = source;
+        this.bytes = generate(charset, charCount, seed);
+        if (source == Source.FILE) {
+            file = Files.createTempFile("stream-sampler-benchmark", ".txt");
+            Files.write(file, bytes);
+        } else {
+            file = null;
+        }
+    }
+
+    /**
+     * Returns the encoded input
+     *
+     * @return Bytes of the input, not to be modified
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the temporary file holding the input
+     *
+     * @return Path of the file, or {@code null} if the source is not {@link Source#FILE}
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Opens a new stream over the whole input
+     *
+     * @return Stream of the input, which should be closed by the caller
+     * @throws IOException thrown if the stream cannot be opened
+     */
+    public InputStream open() throws IOException {
+        switch (source) {
+            case HEAP:
+                return new ByteArrayInputStream(bytes);
+            case PIPE:
+                return openPipe();
+            case FILE:
+                return Files.newInputStream(file);
+            default:
+                throw new IllegalStateException("Unknown source " + source);
+        }
+    }
+
+    /**
+     * Deletes the temporary file, if any
+     *
+     * @throws IOException thrown if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Opens a pipe fed by a daemon thread. The thread stops writing if the reader closes the pipe before the end.
+     *
+     * @return Reading end of the pipe
+     * @throws IOException thrown if the pipe cannot be opened
+     */
+    private InputStream openPipe() throws IOException {
+        Pipe pipe = Pipe.open();
+        Thread writer = new Thread(() -> {
+            try (OutputStream out = Channels.newOutputStream(pipe.sink())) {
+                for (int offset = 0; offset < bytes.length; offset += PIPE_BUFFER_SIZE) {
+                    out.write(bytes, offset, Math.min(PIPE_BUFFER_SIZE, bytes.length - offset));
+                }
+            } catch (IOException e) {
+                // The reader closed the pipe early
+            }
+        }, "benchmark-pipe-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return Channels.newInputStream(pipe.source());
+    }
+
+    /**
+     * Generates random lines of text and encodes them
+     *
+     * @param charset   Charset used to encode the text
+     * @param charCount Number of characters to generate
+     * @param seed      Seed of the generated characters
+     * @return Encoded text
+     */
+    private static byte[] generate(Charset charset, int charCount, long seed) {
+        CharsetEncoder encoder = charset.newEncoder();
+        StringBuilder alphabet = new StringBuilder();
+        for (char c : ALPHABET.toCharArray()) {
+            if (encoder.canEncode(c)) {
+                alphabet.append(c);
+            }
+        }
+        Random random = new Random(seed);
+        char[] text = new char[charCount];
+        for (int i = 0; i < charCount; i++) {
+            text[i] = i % LINE_LENGTH == LINE_LENGTH - 1 ? '\n' : alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        try {
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap(text));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
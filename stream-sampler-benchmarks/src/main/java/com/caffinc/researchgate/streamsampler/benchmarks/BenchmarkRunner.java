@@ -0,0 +1,40 @@
+package com.caffinc.researchgate.streamsampler.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the {@link GCProfiler}, so that allocation rates are reported next to throughputs.
+ * <p>
+ * Accepts the usual JMH command-line options, for instance a regular expression selecting the benchmarks to run and
+ * {@code -p sampleSize=10} to restrict a parameter:
+ * <pre>
+ * java -jar stream-sampler-benchmarks/target/benchmarks.jar StreamSampleBenchmark.fastSample -p source=HEAP
+ * </pre>
+ *
+ * @author Sriram
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks selected on the command-line, or all of them
+     *
+     * @param args JMH command-line options
+     * @throws CommandLineOptionException thrown if the options cannot be parsed
+     * @throws RunnerException            thrown if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.caffinc.researchgate.streamsampler.benchmarks;
+
+import com.caffinc.researchgate.streamsampler.StreamSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmarks the sampling modes of {@link StreamSampler} which read a file through its path. The file stays in the
+ * page cache between invocations, so these benchmarks measure the sampling and not the disk.
+ *
+ * @author Sriram
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class FileSampleBenchmark {
+    @Param({"10", "1000"})
+    private int sampleSize;
+
+    @Param({"16777216", "268435456"})
+    private int fileSize;
+
+    private BenchmarkInput input;
+    private Path gzipFile;
+    private Path multiMemberGzipFile;
+    private StreamSampler sampler;
+
+    /**
+     * Writes the file of the trial, and its compressions into a single gzip member and into gzip members of 64 KB like
+     * bgzip writes
+     *
+     * @throws IOException thrown if the files cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = new BenchmarkInput(BenchmarkInput.Source.FILE, StandardCharsets.US_ASCII, fileSize, 0);
+        byte[] bytes = input.bytes();
+        gzipFile = Files.createTempFile("stream-sampler-benchmark", ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile), 1 << 16)) {
+            out.write(bytes);
+        }
+        multiMemberGzipFile = Files.createTempFile("stream-sampler-benchmark", ".gz");
+        try (OutputStream out = Files.newOutputStream(multiMemberGzipFile)) {
+            for (int from = 0; from < bytes.length; from += 0xff00) {
+                GZIPOutputStream member = new GZIPOutputStream(out, 1 << 16);
+                member.write(bytes, from, Math.min(0xff00, bytes.length - from));
+                member.finish();
+            }
+        }
+        sampler = new StreamSampler(0);
+    }
+
+    /**
+     * Deletes the files of the trial
+     *
+     * @throws IOException thrown if the files cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        input.delete();
+        Files.deleteIfExists(gzipFile);
+        Files.deleteIfExists(multiMemberGzipFile);
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#fileSample(Path, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the file cannot be read
+     */
+    @Benchmark
+    public byte[] fileSample() throws IOException {
+        return sampler.fileSample(input.file(), sampleSize);
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#parallelFileSample(Path, int)} on the common pool
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the file cannot be read
+     */
+    @Benchmark
+    public byte[] parallelFileSample() throws IOException {
+        return sampler.parallelFileSample(input.file(), sampleSize);
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#gzipSample(Path, int)} of a single gzip member, which is decompressed on a
+     * pipelined reader thread
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the file cannot be read
+     */
+    @Benchmark
+    public byte[] gzipSample() throws IOException {
+        return sampler.gzipSample(gzipFile, sampleSize);
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#gzipSample(Path, int)} of gzip members of 64 KB, which are decompressed in
+     * parallel on the common pool
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the file cannot be read
+     */
+    @Benchmark
+    public byte[] multiMemberGzipSample() throws IOException {
+        return sampler.gzipSample(multiMemberGzipFile, sampleSize);
+    }
+}
@@ -0,0 +1,223 @@
+package com.caffinc.researchgate.streamsampler.benchmarks;
+
+import com.caffinc.researchgate.streamsampler.ConcurrentReservoir;
+import com.caffinc.researchgate.streamsampler.DistinctReservoir;
+import com.caffinc.researchgate.streamsampler.IntReservoir;
+import com.caffinc.researchgate.streamsampler.MultiReservoir;
+import com.caffinc.researchgate.streamsampler.RandomSource;
+import com.caffinc.researchgate.streamsampler.ReplacementReservoir;
+import com.caffinc.researchgate.streamsampler.Reservoir;
+import com.caffinc.researchgate.streamsampler.ReservoirCollectors;
+import com.caffinc.researchgate.streamsampler.ReservoirProcessor;
+import com.caffinc.researchgate.streamsampler.StratifiedReservoir;
+import com.caffinc.researchgate.streamsampler.WeightedReservoir;
+import com.caffinc.researchgate.streamsampler.Xoroshiro128PlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the push based reservoirs on values already in memory, which isolates the cost of the sampling from the
+ * cost of reading and decoding the input.
+ *
+ * @author Sriram
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ReservoirBenchmark {
+    @Param({"10", "1000"})
+    private int sampleSize;
+
+    @Param({"1048576", "16777216"})
+    private int streamSize;
+
+    private int[] values;
+    private List<Integer> boxedValues;
+    private double[] weights;
+    private RandomSource random;
+
+    /**
+     * Generates the values of the trial
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random generator = new Random(0);
+        values = generator.ints(streamSize).toArray();
+        boxedValues = Arrays.asList(Arrays.stream(values).boxed().toArray(Integer[]::new));
+        weights = generator.doubles(streamSize).toArray();
+        random = new Xoroshiro128PlusPlus(0);
+    }
+
+    /**
+     * Benchmarks {@link IntReservoir#offerAll(int[], int, int)} over all the values at once
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public int[] intReservoirOfferAll() {
+        IntReservoir reservoir = new IntReservoir(sampleSize, random);
+        reservoir.offerAll(values, 0, values.length);
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link IntReservoir#offer(int)} one value at a time
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public int[] intReservoirOffer() {
+        IntReservoir reservoir = new IntReservoir(sampleSize, random);
+        for (int value : values) {
+            reservoir.offer(value);
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link Reservoir#offerAll(Iterable)} over a random access list of boxed values
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> reservoirOfferAll() {
+        Reservoir<Integer> reservoir = new Reservoir<>(sampleSize, random);
+        reservoir.offerAll(boxedValues);
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link ConcurrentReservoir#offerAll(Iterable)} from a single thread, which measures the cost of the
+     * striping over {@link #reservoirOfferAll()}
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> concurrentReservoirOfferAll() {
+        ConcurrentReservoir<Integer> reservoir = new ConcurrentReservoir<>(sampleSize, random);
+        reservoir.offerAll(boxedValues);
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link WeightedReservoir#offer(Object, double)} one value at a time
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> weightedReservoirOffer() {
+        WeightedReservoir<Integer> reservoir = new WeightedReservoir<>(sampleSize, random);
+        for (int i = 0; i < weights.length; i++) {
+            reservoir.offer(boxedValues.get(i), weights[i]);
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link StratifiedReservoir#offer(long, Object)} over 1024 keys, which fit in its memory budget
+     *
+     * @return Sample of one key, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> stratifiedReservoirOffer() {
+        StratifiedReservoir<Integer> reservoir = new StratifiedReservoir<>(sampleSize, 1024 * 1024
+                * StratifiedReservoir.bytesPerKey(sampleSize), StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, random);
+        for (int i = 0; i < values.length; i++) {
+            reservoir.offer(values[i] & 1023, boxedValues.get(i));
+        }
+        return reservoir.snapshot(0);
+    }
+
+    /**
+     * Benchmarks {@link DistinctReservoir#offerAll(Iterable)}, where nearly every value is rejected by a single
+     * comparison with the largest hash held
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> distinctReservoirOfferAll() {
+        DistinctReservoir<Integer> reservoir = new DistinctReservoir<>(sampleSize);
+        reservoir.offerAll(boxedValues);
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Benchmarks {@link ReservoirProcessor#onNext(Object)} one value at a time, with the requests of the batches going
+     * to a subscription which does nothing
+     *
+     * @return Sample, consumed by JMH
+     * @throws Exception {@link java.util.concurrent.ExecutionException} not thrown as the stream does not fail
+     */
+    @Benchmark
+    public List<Integer> reservoirProcessorOnNext() throws Exception {
+        ReservoirProcessor<Integer> processor = new ReservoirProcessor<>(sampleSize, random, 1024);
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (Integer value : boxedValues) {
+            processor.onNext(value);
+        }
+        processor.onComplete();
+        return processor.result().get();
+    }
+
+    /**
+     * Benchmarks {@link ReservoirCollectors#sample(java.util.stream.IntStream, int, RandomSource)} on a parallel stream
+     * of the values, whose partial samples are merged
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public int[] parallelIntStreamCollect() {
+        return ReservoirCollectors.sample(Arrays.stream(values).parallel(), sampleSize, random);
+    }
+
+    /**
+     * Benchmarks {@link MultiReservoir#offerAll(Iterable)} drawing 100 samples in one pass over the boxed values
+     *
+     * @return First sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> multiReservoirOfferAll() {
+        MultiReservoir<Integer> reservoir = new MultiReservoir<>(sampleSize, 100, random);
+        reservoir.offerAll(boxedValues);
+        return reservoir.snapshot(0);
+    }
+
+    /**
+     * Benchmarks {@link ReplacementReservoir#offerAll(Iterable)} drawing with replacement and skipping ahead
+     *
+     * @return Sample, consumed by JMH
+     */
+    @Benchmark
+    public List<Integer> replacementReservoirOfferAll() {
+        ReplacementReservoir<Integer> reservoir = new ReplacementReservoir<>(sampleSize, random);
+        reservoir.offerAll(boxedValues);
+        return reservoir.snapshot();
+    }
+}
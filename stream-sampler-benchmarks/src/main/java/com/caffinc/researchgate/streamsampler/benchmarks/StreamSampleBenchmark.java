@@ -0,0 +1,212 @@
+package com.caffinc.researchgate.streamsampler.benchmarks;
+
+import com.caffinc.researchgate.streamsampler.StreamSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the sampling modes of {@link StreamSampler} which read an {@link InputStream}.
+ * <p>
+ * Every invocation samples the whole input, so the score is in samples per second; multiplied by
+ * {@code streamSize} it gives the number of characters sampled per second. New stream sampling modes should get a
+ * benchmark method here.
+ *
+ * @author Sriram
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class StreamSampleBenchmark {
+    @Param({"10", "1000"})
+    private int sampleSize;
+
+    @Param({"1048576", "16777216"})
+    private int streamSize;
+
+    @Param({"HEAP", "PIPE", "FILE"})
+    private BenchmarkInput.Source source;
+
+    @Param({"UTF-8", "US-ASCII"})
+    private String charset;
+
+    private BenchmarkInput input;
+    private StreamSampler sampler;
+
+    /**
+     * Generates the input of the trial
+     *
+     * @throws IOException thrown if the input cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = new BenchmarkInput(source, Charset.forName(charset), streamSize, 0);
+        sampler = new StreamSampler(0);
+    }
+
+    /**
+     * Deletes the input of the trial
+     *
+     * @throws IOException thrown if the input cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        input.delete();
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#sample(InputStream, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String sample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.sample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#fastSample(InputStream, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String fastSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.fastSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#pipelinedSample(InputStream, int)}, which reads the input on another thread and
+     * allocates its ring of buffers on every invocation
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String pipelinedSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.pipelinedSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#rateRecordSample(InputStream, double, byte, OutputStream)} selecting 0.1% of
+     * the lines, written to a stream discarding them
+     *
+     * @return Number of selected lines, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public long rateRecordSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.rateRecordSample(stream, 0.001, (byte) '\n', OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#byteSample(InputStream, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public byte[] byteSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.byteSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#asciiSample(InputStream, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String asciiSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.asciiSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#codePointSample(InputStream, int)}, which only decodes the sampled code points
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String codePointSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.codePointSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#offHeapSample(InputStream, int, java.io.Writer)}, which allocates its direct
+     * buffer on every invocation
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public String offHeapSample() throws IOException {
+        StringWriter output = new StringWriter(sampleSize);
+        try (InputStream stream = input.open()) {
+            sampler.offHeapSample(stream, sampleSize, output);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#lineSample(InputStream, int)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public List<String> lineSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.lineSample(stream, sampleSize);
+        }
+    }
+
+    /**
+     * Benchmarks {@link StreamSampler#recordSample(InputStream, int, byte)}
+     *
+     * @return Sample, consumed by JMH
+     * @throws IOException thrown if the input cannot be read
+     */
+    @Benchmark
+    public List<byte[]> recordSample() throws IOException {
+        try (InputStream stream = input.open()) {
+            return sampler.recordSample(stream, sampleSize, (byte) '\n');
+        }
+    }
+}
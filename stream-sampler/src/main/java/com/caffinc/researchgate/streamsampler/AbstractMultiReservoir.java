@@ -0,0 +1,177 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Base class of reservoirs holding many independent uniform samples of the same stream, for instance to bootstrap
+ * confidence intervals, in a single pass over the stream.
+ * <p>
+ * Every sample runs its own Algorithm L with its own generator, the {@code r}-th one split from the generator passed,
+ * so sample {@code r} is the one a single reservoir using that generator would hold and the samples are reproducible
+ * from a seed. The position of the next element each sample accepts is kept in a binary min-heap of sample indices,
+ * so an element which no sample accepts costs one comparison with the top of the heap, whatever the number of
+ * samples, and elements offered in bulk are skipped up to the top of the heap without being looked at. Accepting an
+ * element costs O(log R) for R samples, and each sample only accepts O(k log(n/k)) elements of a stream of n.
+ * <p>
+ * Subclasses store the samples in a flat array of {@code R * sampleSize} slots, sample {@code r} taking the slots
+ * {@code r * sampleSize} to {@code (r + 1) * sampleSize - 1}.
+ *
+ * @author Sriram
+ */
+public abstract class AbstractMultiReservoir {
+    private final int sampleSize;
+    private final RandomSource[] randoms;
+    private final double[] thresholds;
+    private final long[] next;
+    private final int[] heap;
+    private long count;
+    private int fillCursor;
+
+    /**
+     * Initializes empty samples
+     *
+     * @param sampleSize Maximum number of elements held by each sample
+     * @param samples    Number of independent samples
+     * @param random     Source of randomness, split once for every sample, in order
+     */
+    protected AbstractMultiReservoir(int sampleSize, int samples, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        if (samples <= 0) {
+            throw new IllegalArgumentException("Number of samples must be positive");
+        }
+        if ((long) sampleSize * samples > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Samples do not fit in an array");
+        }
+        this.sampleSize = sampleSize;
+        this.randoms = new RandomSource[samples];
+        this.thresholds = new double[samples];
+        this.next = new long[samples];
+        this.heap = new int[samples];
+        for (int r = 0; r < samples; r++) {
+            randoms[r] = random.split();
+            thresholds[r] = AlgorithmL.initialThreshold(sampleSize, randoms[r]);
+            heap[r] = r;
+        }
+    }
+
+    /**
+     * Returns the maximum number of elements held by each sample
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of independent samples
+     *
+     * @return Number of samples
+     */
+    public int samples() {
+        return randoms.length;
+    }
+
+    /**
+     * Returns the number of elements offered so far
+     *
+     * @return Number of elements seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of elements currently held by each sample
+     *
+     * @return Current size of every sample
+     */
+    public int size() {
+        return (int) Math.min(sampleSize, count);
+    }
+
+    /**
+     * Accounts for the current element of the stream, which has to be stored in every slot returned until this method
+     * returns {@code -1}. The next call then refers to the next element.
+     *
+     * @return Slot of a sample accepting the current element, {@code -1} once all of them have been returned
+     */
+    protected final int nextSlot() {
+        if (count < sampleSize) {
+            if (fillCursor < randoms.length) {
+                return fillCursor++ * sampleSize + (int) count;
+            }
+            fillCursor = 0;
+            if (++count == sampleSize) {
+                for (int r = 0; r < randoms.length; r++) {
+                    next[r] = advance(r, count);
+                }
+                for (int i = (heap.length >>> 1) - 1; i >= 0; i--) {
+                    siftDown(i);
+                }
+            }
+            return -1;
+        }
+        int r = heap[0];
+        if (next[r] != count) {
+            count++;
+            return -1;
+        }
+        int slot = r * sampleSize + randoms[r].nextInt(sampleSize);
+        next[r] = advance(r, count + 1);
+        siftDown(0);
+        return slot;
+    }
+
+    /**
+     * Discards as many of the next {@code available} elements as no sample accepts. If fewer than {@code available}
+     * elements are discarded, the element right after them has to be stored through {@link #nextSlot()}.
+     *
+     * @param available Number of elements available to the caller
+     * @return Number of elements discarded
+     */
+    protected final int discard(int available) {
+        if (count < sampleSize) {
+            return 0;
+        }
+        int discarded = (int) Math.min(next[heap[0]] - count, available);
+        count += discarded;
+        return discarded;
+    }
+
+    /**
+     * Draws the skip of Algorithm L for a sample and the threshold following it
+     *
+     * @param r     Index of the sample
+     * @param first Position of the first element the skip starts at
+     * @return Position of the next element accepted by the sample
+     */
+    private long advance(int r, long first) {
+        long skip = AlgorithmL.skip(thresholds[r], randoms[r]);
+        thresholds[r] = AlgorithmL.nextThreshold(thresholds[r], sampleSize, randoms[r]);
+        return skip < Long.MAX_VALUE - first ? first + skip : Long.MAX_VALUE;
+    }
+
+    /**
+     * Moves the sample at a position of the heap down until the positions of its children accept later elements
+     *
+     * @param i Position in the heap
+     */
+    private void siftDown(int i) {
+        int r = heap[i];
+        long key = next[r];
+        int half = heap.length >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heap.length && next[heap[child + 1]] < next[heap[child]]) {
+                child++;
+            }
+            if (key <= next[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = r;
+    }
+}
@@ -0,0 +1,140 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Base class of reservoirs holding a uniform sample with replacement of the elements offered to them: each of the
+ * {@code sampleSize} slots holds an element drawn uniformly from the stream, independently of the other slots, so an
+ * element can be sampled several times.
+ * <p>
+ * Every slot is a reservoir of one element, which the {@code n}-th element replaces with probability {@code 1/n}.
+ * Rather than drawing a random number for every slot and every element, which costs O(k) per element, the number of
+ * slots the {@code n}-th element replaces is binomial with parameters {@code k} and {@code 1/n}, and the slots
+ * themselves are found by drawing the geometric gaps between them, so an element costs O(1) plus O(1) per slot it
+ * replaces. The expected number of replacements over a stream of n elements is {@code k H(n)}, about
+ * {@code k ln(n)}.
+ * <p>
+ * In the default skip-ahead mode, the elements which replace no slot are not even drawn for: the probability that none
+ * of the elements {@code n + 1} to {@code m} replaces a slot is {@code (n/m)^k}, so the position of the next element
+ * replacing at least one slot is drawn directly, and the elements before it are skipped by offset arithmetic when they
+ * are offered in bulk. Without skip-ahead, every element draws whether it replaces any slot.
+ *
+ * @author Sriram
+ */
+public abstract class AbstractReplacementReservoir {
+    private final int sampleSize;
+    private final RandomSource random;
+    private final boolean skipAhead;
+    private long count;
+    private long next;
+    private int cursor = -1;
+    private double logMiss;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Number of elements drawn with replacement
+     * @param random     Source of randomness
+     * @param skipAhead  {@code true} to draw the position of the next element replacing a slot, {@code false} to draw
+     *                   for every element whether it replaces a slot
+     */
+    protected AbstractReplacementReservoir(int sampleSize, RandomSource random, boolean skipAhead) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.skipAhead = skipAhead;
+    }
+
+    /**
+     * Returns the number of elements drawn with replacement
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of elements offered to the reservoir so far
+     *
+     * @return Number of elements seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of slots currently holding an element, which is 0 before the first element and
+     * {@code sampleSize} afterwards, as the first element fills every slot
+     *
+     * @return Current size of the sample
+     */
+    public int size() {
+        return count == 0 ? 0 : sampleSize;
+    }
+
+    /**
+     * Accounts for the current element of the stream, which has to be stored in every slot returned until this method
+     * returns {@code -1}. The next call then refers to the next element.
+     *
+     * @return Slot replaced by the current element, {@code -1} once all of them have been returned
+     */
+    protected final int nextSlot() {
+        if (cursor < 0) {
+            if (count == 0) {
+                cursor = 0;
+                logMiss = Double.NEGATIVE_INFINITY;
+                return cursor;
+            }
+            // Replacement probability 1/n for the n-th element, which is element number count + 1
+            logMiss = Math.log1p(-1.0 / (count + 1));
+            double hit = -Math.expm1(sampleSize * logMiss);
+            if (skipAhead ? next != count : random.nextDouble() >= hit) {
+                count++;
+                return -1;
+            }
+            // First replaced slot, from the geometric distribution truncated to the slots
+            double gap = Math.floor(Math.log1p(-uniform() * hit) / logMiss);
+            cursor = (int) Math.min(gap, sampleSize - 1);
+            return cursor;
+        }
+        double gap = Math.floor(Math.log(uniform()) / logMiss);
+        if (gap < sampleSize - 1 - cursor) {
+            cursor += 1 + (int) gap;
+            return cursor;
+        }
+        cursor = -1;
+        count++;
+        if (skipAhead) {
+            double position = Math.floor(count * Math.exp(-Math.log(uniform()) / sampleSize));
+            next = position < Long.MAX_VALUE ? (long) position : Long.MAX_VALUE;
+        }
+        return -1;
+    }
+
+    /**
+     * Discards as many of the next {@code available} elements as replace no slot, which in skip-ahead mode are known in
+     * advance. If fewer than {@code available} elements are discarded, the element right after them has to be stored
+     * through {@link #nextSlot()}.
+     *
+     * @param available Number of elements available to the caller
+     * @return Number of elements discarded
+     */
+    protected final int discard(int available) {
+        if (!skipAhead || count == 0 || cursor >= 0) {
+            return 0;
+        }
+        int discarded = (int) Math.min(next - count, available);
+        count += discarded;
+        return discarded;
+    }
+
+    /**
+     * Draws a uniform random number in the range (0, 1], which is safe to pass to {@link Math#log(double)}
+     *
+     * @return Uniform random number
+     */
+    private double uniform() {
+        return 1.0 - random.nextDouble();
+    }
+}
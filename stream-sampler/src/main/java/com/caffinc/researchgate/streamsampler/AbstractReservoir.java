@@ -0,0 +1,253 @@
+package com.caffinc.researchgate.streamsampler;
+
+
+/**
+ * Base class of the reservoirs which hold a uniform sample of the elements offered to them.
+ * <p>
+ * The reservoir is filled with the first {@code sampleSize} elements, after which Li's Algorithm L decides how many
+ * elements are skipped before the next one replaces a random slot. Subclasses only store the elements, they ask
+ * {@link #nextSlot()} where the next element goes and use {@link #discard(int)} to jump over skipped elements in bulk.
+ *
+ * @author Sriram
+ */
+public abstract class AbstractReservoir {
+    private final int sampleSize;
+    private final RandomSource random;
+    private final AlgorithmL algorithm;
+    private long count;
+    private long skip;
+    private SamplingListener listener = SamplingListener.NONE;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of elements held by the reservoir
+     * @param random     Source of randomness
+     */
+    protected AbstractReservoir(int sampleSize, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.algorithm = new AlgorithmL(sampleSize, random);
+    }
+
+    /**
+     * Returns the maximum number of elements held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of elements offered to the reservoir so far
+     *
+     * @return Number of elements seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of elements currently held by the reservoir
+     *
+     * @return {@code min(sampleSize, count)}
+     */
+    public int size() {
+        return (int) Math.min(sampleSize, count);
+    }
+
+    /**
+     * Sets the listener notified of the elements stored and skipped by the reservoir. Random draws are only reported
+     * if the source of randomness of the reservoir is a {@link CountingRandomSource}.
+     *
+     * @param listener Listener, {@link SamplingListener#NONE} to stop listening
+     */
+    public void listener(SamplingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Accounts for the next element of the stream and returns the slot it has to be stored in
+     *
+     * @return Slot of the reservoir to store the element in, or -1 if the element is not sampled
+     */
+    protected final int nextSlot() {
+        if (count < sampleSize) {
+            int slot = (int) count++;
+            listener.onFill();
+            if (count == sampleSize) {
+                skip = algorithm.nextSkip();
+                listener.onSkip(skip);
+            }
+            return slot;
+        }
+        count++;
+        if (skip > 0) {
+            skip--;
+            listener.onSkipped(1);
+            return -1;
+        }
+        int slot = algorithm.nextSlot();
+        listener.onReplacement();
+        skip = algorithm.nextSkip();
+        listener.onSkip(skip);
+        return slot;
+    }
+
+    /**
+     * Discards as many of the next {@code available} elements as the pending skip allows, without them being offered.
+     * Sources which can seek use this to avoid reading elements which would not be sampled anyway.
+     *
+     * @param available Number of elements available to the caller
+     * @return Number of elements discarded, the element right after them has to be offered
+     */
+    public long skip(long available) {
+        if (count < sampleSize || skip == 0 || available <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(skip, available);
+        skip -= skipped;
+        count += skipped;
+        listener.onSkipped(skipped);
+        return skipped;
+    }
+
+    /**
+     * Discards as many of the next {@code available} elements as the pending skip allows. If fewer than
+     * {@code available} elements are discarded, the element right after them has to be stored in {@link #nextSlot()}.
+     *
+     * @param available Number of elements available to the caller
+     * @return Number of elements discarded
+     */
+    protected final int discard(int available) {
+        return (int) skip(available);
+    }
+
+    /**
+     * Sets the number of elements seen by a reservoir whose slots were filled directly, for instance with a copy of the
+     * slots of another reservoir. Like after a merge, the state of Algorithm L is drawn again for the restored count.
+     *
+     * @param count Number of elements seen, the first {@code min(sampleSize, count)} slots must hold the sample
+     */
+    protected final void restore(long count) {
+        this.count = count;
+        this.skip = 0;
+        if (count >= sampleSize) {
+            algorithm.reset(count);
+            skip = algorithm.nextSkip();
+        }
+    }
+
+    /**
+     * Restores the exact state of the sampling from a checkpoint, after the slots have been filled
+     *
+     * @param count     Number of elements seen
+     * @param skip      Number of elements still to be skipped
+     * @param threshold Threshold of Algorithm L
+     */
+    final void restore(long count, long skip, double threshold) {
+        this.count = count;
+        this.skip = skip;
+        algorithm.threshold(threshold);
+    }
+
+    /**
+     * Returns the source of randomness of the reservoir, for checkpoints
+     *
+     * @return Source of randomness
+     */
+    final RandomSource random() {
+        return random;
+    }
+
+    /**
+     * Returns the number of elements still to be skipped, for checkpoints and for sources which have to scan the
+     * elements to skip them
+     *
+     * @return Pending skip
+     */
+    final long pendingSkip() {
+        return skip;
+    }
+
+    /**
+     * Returns the threshold of Algorithm L, for checkpoints
+     *
+     * @return Threshold W of Algorithm L
+     */
+    final double threshold() {
+        return algorithm.threshold();
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir, leaving {@code other} untouched. The number of elements
+     * the merged sample takes from each reservoir follows the hypergeometric distribution of their counts, and random
+     * subsets of that size are kept from each sample, so the merged sample is uniform over the elements seen by both
+     * reservoirs. The merged reservoir can keep on being offered elements.
+     *
+     * @param other Reservoir of the same type and sample size to merge into this one
+     */
+    protected final void merge(AbstractReservoir other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a reservoir into itself");
+        }
+        if (other.sampleSize != sampleSize) {
+            throw new IllegalArgumentException("Cannot merge reservoirs of different sample sizes");
+        }
+        int thisSize = size();
+        int otherSize = other.size();
+        long left = count;
+        long right = other.count;
+        int draws = (int) Math.min(sampleSize, left + right);
+        int fromThis = 0;
+        for (int i = 0; i < draws; i++) {
+            if (random.nextLong(left + right) < left) {
+                left--;
+                fromThis++;
+            } else {
+                right--;
+            }
+        }
+        count += other.count;
+        if (count >= sampleSize) {
+            algorithm.reset(count);
+            skip = algorithm.nextSkip();
+        }
+
+        // Keep random subsets of both samples, using partial Fisher-Yates shuffles
+        for (int i = 0; i < fromThis; i++) {
+            swap(i, i + random.nextInt(thisSize - i));
+        }
+        int[] indices = new int[otherSize];
+        for (int i = 0; i < otherSize; i++) {
+            indices[i] = i;
+        }
+        for (int i = 0; i < draws - fromThis; i++) {
+            int j = i + random.nextInt(otherSize - i);
+            int index = indices[j];
+            indices[j] = indices[i];
+            copy(other, index, fromThis + i);
+        }
+    }
+
+    /**
+     * Swaps two slots of the reservoir while merging
+     *
+     * @param i First slot
+     * @param j Second slot
+     */
+    protected abstract void swap(int i, int j);
+
+    /**
+     * Copies an element of another reservoir of the same type into a slot of this reservoir while merging
+     *
+     * @param source Reservoir to copy from
+     * @param from   Slot of the element in {@code source}
+     * @param to     Slot of this reservoir to copy the element to
+     */
+    protected abstract void copy(AbstractReservoir source, int from, int to);
+}
@@ -0,0 +1,141 @@
+package com.caffinc.researchgate.streamsampler;
+
+
+/**
+ * Skip generator for Li's Algorithm L (<a href="https://dl.acm.org/doi/10.1145/198429.198435">Reservoir-Sampling
+ * Algorithms of Time Complexity O(n(1 + log(N/n)))</a>).
+ * <p>
+ * Once the reservoir is full, instead of drawing a random number for every element, the generator computes how many
+ * elements can be skipped before the next one replaces a random slot of the reservoir. The resulting sample is exactly
+ * uniform and only O(k(1 + log(n/k))) random numbers are drawn for a stream of n elements.
+ *
+ * @author Sriram
+ */
+final class AlgorithmL {
+    private final int sampleSize;
+    private final RandomSource random;
+    private double w;
+
+    /**
+     * Initializes the skip generator for a reservoir of {@code sampleSize} elements
+     *
+     * @param sampleSize Size of the reservoir
+     * @param random     Source of randomness
+     */
+    AlgorithmL(int sampleSize, RandomSource random) {
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.w = initialThreshold(sampleSize, random);
+    }
+
+    /**
+     * Computes the number of elements to discard before the next element which goes into the reservoir.
+     * Skips which do not fit in a {@code long} are saturated to {@link Long#MAX_VALUE}.
+     *
+     * @return Number of elements to skip
+     */
+    long nextSkip() {
+        long skip = skip(w, random);
+        w = nextThreshold(w, sampleSize, random);
+        return skip;
+    }
+
+    /**
+     * Restarts the generator for a reservoir which has already seen {@code count} elements, for instance after two
+     * reservoirs have been merged. The threshold of Algorithm L is the k-th smallest of {@code count} uniform keys,
+     * which is drawn here in O(k) by building the order statistics up from the smallest one.
+     *
+     * @param count Number of elements seen by the reservoir, at least {@code sampleSize}
+     */
+    void reset(long count) {
+        double threshold = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            threshold += (1.0 - threshold) * -Math.expm1(Math.log(uniform()) / (count - i));
+        }
+        w = threshold;
+    }
+
+    /**
+     * Returns the current threshold of the generator, for checkpoints
+     *
+     * @return Threshold W of Algorithm L
+     */
+    double threshold() {
+        return w;
+    }
+
+    /**
+     * Restores the threshold of the generator from a checkpoint
+     *
+     * @param threshold Threshold W of Algorithm L
+     */
+    void threshold(double threshold) {
+        this.w = threshold;
+    }
+
+    /**
+     * Picks the reservoir slot to be replaced by the element following a skip
+     *
+     * @return Slot in the range [0, sampleSize)
+     */
+    int nextSlot() {
+        return random.nextInt(sampleSize);
+    }
+
+    /**
+     * Draws the first threshold of Algorithm L, once the reservoir is full. Together with {@link #skip(double,
+     * RandomSource)} and {@link #nextThreshold(double, int, RandomSource)}, this lets samplers keeping many small
+     * reservoirs store the state of Algorithm L in flat arrays rather than in an object per reservoir.
+     *
+     * @param sampleSize Size of the reservoir
+     * @param random     Source of randomness
+     * @return Threshold W
+     */
+    static double initialThreshold(int sampleSize, RandomSource random) {
+        return Math.exp(Math.log(uniform(random)) / sampleSize);
+    }
+
+    /**
+     * Draws the number of elements to skip for a threshold. Skips which do not fit in a {@code long} are saturated to
+     * {@link Long#MAX_VALUE}.
+     *
+     * @param threshold Threshold W
+     * @param random    Source of randomness
+     * @return Number of elements to skip
+     */
+    static long skip(double threshold, RandomSource random) {
+        double skip = Math.floor(Math.log(uniform(random)) / Math.log1p(-threshold));
+        return skip < Long.MAX_VALUE ? (long) skip : Long.MAX_VALUE;
+    }
+
+    /**
+     * Draws the threshold following a replacement
+     *
+     * @param threshold  Current threshold W
+     * @param sampleSize Size of the reservoir
+     * @param random     Source of randomness
+     * @return Next threshold W
+     */
+    static double nextThreshold(double threshold, int sampleSize, RandomSource random) {
+        return threshold * Math.exp(Math.log(uniform(random)) / sampleSize);
+    }
+
+    /**
+     * Draws a uniform random number in the range (0, 1], which is safe to pass to {@link Math#log(double)}
+     *
+     * @return Uniform random number
+     */
+    private double uniform() {
+        return uniform(random);
+    }
+
+    /**
+     * Draws a uniform random number in the range (0, 1], which is safe to pass to {@link Math#log(double)}
+     *
+     * @param random Source of randomness
+     * @return Uniform random number
+     */
+    private static double uniform(RandomSource random) {
+        return 1.0 - random.nextDouble();
+    }
+}
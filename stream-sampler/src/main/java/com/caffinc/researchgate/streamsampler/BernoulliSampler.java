@@ -0,0 +1,110 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Sampler selecting every element of a stream independently with a fixed probability, the rate, for downsampling a
+ * stream to a fraction of its elements rather than to a fixed number of them.
+ * <p>
+ * Instead of drawing a random number for every element, the sampler draws the number of elements to skip before the
+ * next selected one, which follows a geometric distribution, so a single random number is drawn per selected element.
+ * Elements are selected as they arrive and the sampler keeps no sample, so selected elements can be written out right
+ * away, in constant memory.
+ *
+ * @author Sriram
+ */
+public class BernoulliSampler {
+    private final double rate;
+    private final double logMiss;
+    private final RandomSource random;
+    private long skip;
+    private long count;
+    private long selected;
+
+    /**
+     * Initializes a sampler
+     *
+     * @param rate   Probability of selecting each element, in the range (0, 1]
+     * @param random Source of randomness
+     */
+    public BernoulliSampler(double rate, RandomSource random) {
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Rate must be in the range (0, 1]");
+        }
+        this.rate = rate;
+        this.logMiss = Math.log1p(-rate);
+        this.random = random;
+        this.skip = nextSkip();
+    }
+
+    /**
+     * Returns the probability of selecting each element
+     *
+     * @return Rate
+     */
+    public double rate() {
+        return rate;
+    }
+
+    /**
+     * Returns the number of elements seen so far
+     *
+     * @return Number of elements seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of elements selected so far
+     *
+     * @return Number of elements selected
+     */
+    public long selected() {
+        return selected;
+    }
+
+    /**
+     * Accounts for the next element of the stream
+     *
+     * @return {@code true} if the element is selected
+     */
+    public boolean next() {
+        count++;
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        selected++;
+        skip = nextSkip();
+        return true;
+    }
+
+    /**
+     * Discards as many of the next {@code available} elements as are not selected, without them being looked at. If
+     * fewer than {@code available} elements are discarded, the element right after them is selected by
+     * {@link #next()}.
+     *
+     * @param available Number of elements available to the caller
+     * @return Number of elements discarded
+     */
+    public long skip(long available) {
+        long skipped = Math.min(skip, Math.max(0, available));
+        skip -= skipped;
+        count += skipped;
+        return skipped;
+    }
+
+    /**
+     * Draws the number of elements to skip before the next selected one, from the geometric distribution of the number
+     * of failures before a success of probability {@link #rate}. Skips which do not fit in a {@code long} are saturated
+     * to {@link Long#MAX_VALUE}.
+     *
+     * @return Number of elements to skip
+     */
+    private long nextSkip() {
+        if (rate == 1) {
+            return 0;
+        }
+        double skip = Math.floor(Math.log(1.0 - random.nextDouble()) / logMiss);
+        return skip < Long.MAX_VALUE ? (long) skip : Long.MAX_VALUE;
+    }
+}
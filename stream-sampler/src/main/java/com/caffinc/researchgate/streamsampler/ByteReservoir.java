@@ -0,0 +1,94 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.Arrays;
+
+/**
+ * Reservoir holding a uniform sample of the bytes offered to it.
+ * <p>
+ * Bytes offered in bulk through {@link #offerAll(byte[], int, int)} are skipped by offset arithmetic, so the skipped
+ * bytes are never looked at.
+ *
+ * @author Sriram
+ */
+public class ByteReservoir extends AbstractReservoir {
+    private final byte[] sample;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of bytes held by the reservoir
+     * @param random     Source of randomness
+     */
+    public ByteReservoir(int sampleSize, RandomSource random) {
+        super(sampleSize, random);
+        this.sample = new byte[sampleSize];
+    }
+
+    /**
+     * Offers a single byte to the reservoir
+     *
+     * @param value Byte to offer
+     */
+    public void offer(byte value) {
+        int slot = nextSlot();
+        if (slot >= 0) {
+            sample[slot] = value;
+        }
+    }
+
+    /**
+     * Offers all the bytes of {@code values} to the reservoir
+     *
+     * @param values Bytes to offer
+     */
+    public void offerAll(byte... values) {
+        offerAll(values, 0, values.length);
+    }
+
+    /**
+     * Offers {@code length} bytes of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Buffer containing the bytes to offer
+     * @param offset Position of the first byte to offer
+     * @param length Number of bytes to offer
+     */
+    public void offerAll(byte[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            sample[nextSlot()] = values[i++];
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * bytes seen by both reservoirs and can keep on being offered bytes. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(ByteReservoir other) {
+        merge((AbstractReservoir) other);
+    }
+
+    /**
+     * Returns a copy of the bytes currently held by the reservoir
+     *
+     * @return Sampled bytes
+     */
+    public byte[] snapshot() {
+        return Arrays.copyOf(sample, size());
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        byte value = sample[i];
+        sample[i] = sample[j];
+        sample[j] = value;
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        sample[to] = ((ByteReservoir) source).sample[from];
+    }
+}
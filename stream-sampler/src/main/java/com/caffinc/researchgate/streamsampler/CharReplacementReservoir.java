@@ -0,0 +1,74 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.Arrays;
+
+/**
+ * Reservoir holding a uniform sample with replacement of the characters offered to it, see
+ * {@link AbstractReplacementReservoir}.
+ * <p>
+ * In skip-ahead mode, values offered in bulk through {@link #offerAll(char[], int, int)} are skipped by offset
+ * arithmetic until the next value replacing a slot, so the skipped values are never looked at.
+ *
+ * @author Sriram
+ */
+public class CharReplacementReservoir extends AbstractReplacementReservoir {
+    private final char[] sample;
+
+    /**
+     * Initializes an empty reservoir in skip-ahead mode
+     *
+     * @param sampleSize Number of values drawn with replacement
+     * @param random     Source of randomness
+     */
+    public CharReplacementReservoir(int sampleSize, RandomSource random) {
+        this(sampleSize, random, true);
+    }
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Number of values drawn with replacement
+     * @param random     Source of randomness
+     * @param skipAhead  {@code true} to skip the values replacing no slot, {@code false} to draw for every value
+     */
+    public CharReplacementReservoir(int sampleSize, RandomSource random, boolean skipAhead) {
+        super(sampleSize, random, skipAhead);
+        this.sample = new char[sampleSize];
+    }
+
+    /**
+     * Offers a single value to the reservoir
+     *
+     * @param value Value to offer
+     */
+    public void offer(char value) {
+        for (int slot = nextSlot(); slot >= 0; slot = nextSlot()) {
+            sample[slot] = value;
+        }
+    }
+
+    /**
+     * Offers {@code length} values of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Buffer containing the values to offer
+     * @param offset Position of the first value to offer
+     * @param length Number of values to offer
+     */
+    public void offerAll(char[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            offer(values[i++]);
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Returns a copy of the values currently held by the reservoir, in the order of their slots
+     *
+     * @return Sampled values
+     */
+    public char[] snapshot() {
+        return Arrays.copyOf(sample, size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes checkpoints of a reservoir to a file in the background, so that the thread offering the values never waits
+ * for the disk.
+ * <p>
+ * {@link #checkpoint(AbstractReservoir)} encodes the reservoir on the calling thread, which only copies the sample, and
+ * hands the encoded checkpoint to a single background thread. If the previous checkpoint is still being written the
+ * new one is dropped rather than queued, as the next one will be more recent anyway. Failed writes are logged, and the
+ * first failure is thrown again by {@link #close()}.
+ *
+ * @author Sriram
+ * @see ReservoirCheckpoint
+ */
+public class Checkpointer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(Checkpointer.class);
+
+    private final Path path;
+    private final ExecutorService executor;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile IOException failure;
+
+    /**
+     * Initializes a checkpointer writing to {@code path}
+     *
+     * @param path File to write the checkpoints to
+     */
+    public Checkpointer(Path path) {
+        this.path = path;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stream-sampler-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checkpoints {@code reservoir} in the background, unless the previous checkpoint is still being written
+     *
+     * @param reservoir Byte, char, int, long or double reservoir to checkpoint, only accessed by the calling thread
+     * @return {@code true} if the checkpoint will be written, {@code false} if it was dropped
+     */
+    public boolean checkpoint(AbstractReservoir reservoir) {
+        if (!writing.compareAndSet(false, true)) {
+            return false;
+        }
+        byte[] checkpoint = ReservoirCheckpoint.encode(reservoir);
+        executor.execute(() -> {
+            try {
+                ReservoirCheckpoint.write(checkpoint, path);
+            } catch (IOException e) {
+                LOG.error("Could not write checkpoint to {}: {}", path, e.getLocalizedMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                writing.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Waits for the checkpoint being written, if any, and stops the background thread
+     *
+     * @throws IOException the first failure to write a checkpoint, if any
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOG.debug("Waiting for checkpoint to {}", path);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reservoir holding a uniform sample of the Unicode code points of the UTF-8 bytes offered to it.
+ * <p>
+ * Code points are counted by their lead bytes, i.e. the bytes which are not UTF-8 continuation bytes {@code 10xxxxxx},
+ * so a code point is never split like the surrogate pairs of a sample of UTF-16 {@code char}s can be. The skipped code
+ * points are only scanned for their lead bytes, and only the sampled ones are decoded, without a
+ * {@link java.nio.charset.CharsetDecoder}. Code points may span several calls to {@link #offerAll(byte[], int, int)}.
+ * Malformed sequences (invalid lead bytes, truncated, overlong or surrogate encodings) are sampled as U+FFFD, and so
+ * is a sampled code point followed by more continuation bytes than its lead byte announced. Continuation bytes are
+ * never counted on their own though: stray ones, at the start of the input or after a complete code point, are
+ * ignored, whereas a decoder would replace each of them by U+FFFD. On such input the number of code points counted is
+ * lower than the length of the decoded text.
+ *
+ * @author Sriram
+ */
+public class CodePointReservoir extends AbstractReservoir {
+    private static final int REPLACEMENT = 0xFFFD;
+    private static final int SCRATCH_SIZE = 1 << 13;
+
+    private final int[] sample;
+    // Copy of the bytes of direct buffers, allocated on their first offer and reused afterwards
+    private byte[] scratch;
+    // Decoding state of the sampled code point whose bytes are being read, if any
+    private int slot = -1;
+    private int codePoint;
+    private int remaining;
+    private int minimum;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of code points held by the reservoir
+     * @param random     Source of randomness
+     */
+    public CodePointReservoir(int sampleSize, RandomSource random) {
+        super(sampleSize, random);
+        this.sample = new int[sampleSize];
+    }
+
+    /**
+     * Offers all the UTF-8 bytes of {@code values} to the reservoir
+     *
+     * @param values Bytes to offer
+     */
+    public void offerAll(byte... values) {
+        offerAll(values, 0, values.length);
+    }
+
+    /**
+     * Offers the remaining UTF-8 bytes of {@code buffer} to the reservoir, leaving the buffer at its limit
+     *
+     * @param buffer Buffer containing the bytes to offer
+     */
+    public void offerAll(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            offerAll(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        while (buffer.hasRemaining()) {
+            int length = Math.min(scratch.length, buffer.remaining());
+            buffer.get(scratch, 0, length);
+            offerAll(scratch, 0, length);
+        }
+    }
+
+    /**
+     * Offers {@code length} UTF-8 bytes of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Buffer containing the bytes to offer
+     * @param offset Position of the first byte to offer
+     * @param length Number of bytes to offer
+     */
+    public void offerAll(byte[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            byte value = values[i];
+            if ((value & 0xC0) == 0x80) {
+                // Continuation byte, of the sampled code point or of a skipped one
+                if (slot >= 0) {
+                    continueCodePoint(value);
+                }
+                i++;
+                continue;
+            }
+            if (remaining > 0) {
+                // The sampled code point ended early and keeps its replacement character
+                slot = -1;
+                remaining = 0;
+            }
+            long pending = pendingSkip();
+            if (pending > 0) {
+                // Count the lead bytes of the code points to skip, and move on to the lead byte after them
+                int leads = 0;
+                int j = i;
+                while (j < end && leads < pending) {
+                    if ((values[j++] & 0xC0) != 0x80) {
+                        leads++;
+                    }
+                }
+                while (j < end && (values[j] & 0xC0) == 0x80) {
+                    j++;
+                }
+                skip(leads);
+                slot = -1;
+                i = j;
+                continue;
+            }
+            slot = nextSlot();
+            if (slot >= 0) {
+                startCodePoint(value);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * code points seen by both reservoirs. {@code other} is left untouched. Both reservoirs must have seen whole code
+     * points, a code point being decoded in this reservoir is left as U+FFFD.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(CodePointReservoir other) {
+        merge((AbstractReservoir) other);
+        slot = -1;
+        remaining = 0;
+    }
+
+    /**
+     * Returns a copy of the code points currently held by the reservoir
+     *
+     * @return Sampled code points
+     */
+    public int[] snapshot() {
+        return Arrays.copyOf(sample, size());
+    }
+
+    /**
+     * Starts decoding a sampled code point from its lead byte
+     *
+     * @param lead Lead byte of the code point
+     */
+    private void startCodePoint(byte lead) {
+        if (lead >= 0) {
+            sample[slot] = lead;
+            slot = -1;
+            return;
+        }
+        sample[slot] = REPLACEMENT;
+        if ((lead & 0xE0) == 0xC0) {
+            codePoint = lead & 0x1F;
+            remaining = 1;
+            minimum = 0x80;
+        } else if ((lead & 0xF0) == 0xE0) {
+            codePoint = lead & 0x0F;
+            remaining = 2;
+            minimum = 0x800;
+        } else if ((lead & 0xF8) == 0xF0) {
+            codePoint = lead & 0x07;
+            remaining = 3;
+            minimum = 0x10000;
+        } else {
+            slot = -1;
+        }
+    }
+
+    /**
+     * Adds a continuation byte to the sampled code point, storing the code point once it is complete
+     *
+     * @param value Continuation byte
+     */
+    private void continueCodePoint(byte value) {
+        if (remaining == 0) {
+            // More continuation bytes than the lead byte announced
+            sample[slot] = REPLACEMENT;
+            slot = -1;
+            return;
+        }
+        codePoint = (codePoint << 6) | (value & 0x3F);
+        if (--remaining == 0) {
+            boolean valid = codePoint >= minimum && codePoint <= Character.MAX_CODE_POINT
+                    && (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE);
+            sample[slot] = valid ? codePoint : REPLACEMENT;
+            // Keep the slot until the next lead byte, to detect extra continuation bytes
+        }
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        int value = sample[i];
+        sample[i] = sample[j];
+        sample[j] = value;
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        sample[to] = ((CodePointReservoir) source).sample[from];
+    }
+}
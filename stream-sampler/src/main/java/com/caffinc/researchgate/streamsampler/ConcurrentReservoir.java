@@ -0,0 +1,227 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe reservoir holding a uniform sample of the objects offered to it by any number of threads.
+ * <p>
+ * Every thread offers to its own stripe, a reservoir with its own random generator split from the one of this
+ * reservoir, so offers never contend with each other. Most offers are skipped by Algorithm L and only count the object;
+ * the few which change the sample of the stripe take an uncontended {@link StampedLock} write lock. {@link #snapshot()}
+ * copies the stripes with optimistic reads, retried if a write happened meanwhile, and merges the copies weighted by
+ * their counts, so the sample can be read at any time without blocking the writers.
+ * <p>
+ * Stripes outlive their threads, as the objects those threads offered remain part of the sample. They do not reference
+ * the reservoir, so the stripes left in the thread locals of pooled threads do not keep a discarded reservoir reachable.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class ConcurrentReservoir<T> {
+    private static final int OPTIMISTIC_READS = 4;
+
+    private final int sampleSize;
+    private final RandomSource random;
+    private final List<Stripe> stripes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Stripe> localStripe = ThreadLocal.withInitial(this::newStripe);
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of objects held by the reservoir
+     * @param random     Source of randomness, which is split for every thread offering objects and for every snapshot
+     */
+    public ConcurrentReservoir(int sampleSize, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.random = random;
+    }
+
+    /**
+     * Returns the maximum number of objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of objects offered to the reservoir so far. Offers which are in progress may or may not be
+     * counted.
+     *
+     * @return Number of objects seen
+     */
+    public long count() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.published.get();
+        }
+        return count;
+    }
+
+    /**
+     * Offers a single object to the reservoir, from any thread
+     *
+     * @param value Object to offer
+     */
+    public void offer(T value) {
+        localStripe.get().offer(value);
+    }
+
+    /**
+     * Offers all the objects of {@code values} to the reservoir, in iteration order, from any thread
+     *
+     * @param values Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> values) {
+        Stripe stripe = localStripe.get();
+        for (T value : values) {
+            stripe.offer(value);
+        }
+    }
+
+    /**
+     * Returns a uniform sample of the objects offered so far by all threads, without blocking the threads offering
+     * objects
+     *
+     * @return Sampled objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        RandomSource snapshotRandom = split();
+        Stripe merged = new Stripe(sampleSize, snapshotRandom);
+        for (Stripe stripe : stripes) {
+            Stripe copy = stripe.copy(snapshotRandom);
+            if (copy.count() > 0) {
+                merged.merge(copy);
+            }
+        }
+        List<T> values = new ArrayList<>(merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            values.add((T) merged.sample[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Creates and registers the stripe of the current thread
+     *
+     * @return New stripe
+     */
+    private Stripe newStripe() {
+        Stripe stripe = new Stripe(sampleSize, split());
+        stripes.add(stripe);
+        return stripe;
+    }
+
+    /**
+     * Splits a generator off the one of this reservoir, which is shared between threads
+     *
+     * @return Independent generator
+     */
+    private RandomSource split() {
+        synchronized (random) {
+            return random.split();
+        }
+    }
+
+    /**
+     * Reservoir written by a single thread and copied by any thread. Changes to the sample are made under the write
+     * lock, and the number of objects seen is published after every offer.
+     */
+    private static final class Stripe extends AbstractReservoir {
+        private final Object[] sample;
+        private final StampedLock lock = new StampedLock();
+        private final AtomicLong published = new AtomicLong();
+
+        /**
+         * Initializes an empty stripe
+         *
+         * @param sampleSize Maximum number of objects held by the stripe
+         * @param random     Source of randomness, only used by this stripe
+         */
+        private Stripe(int sampleSize, RandomSource random) {
+            super(sampleSize, random);
+            this.sample = new Object[sampleSize];
+        }
+
+        /**
+         * Offers a single object to the stripe, from its own thread
+         *
+         * @param value Object to offer
+         */
+        private void offer(Object value) {
+            if (skip(1) == 1) {
+                // The sample does not change, so any copy of it is still consistent with the new count
+                published.lazySet(count());
+                return;
+            }
+            long stamp = lock.writeLock();
+            try {
+                sample[nextSlot()] = value;
+                published.lazySet(count());
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Copies the sample of the stripe and the number of objects it was taken from, from any thread. Falls back to
+         * a read lock, which makes the writer wait, if the sample keeps on changing during the optimistic reads.
+         *
+         * @param random Source of randomness of the copy, only used by the calling thread
+         * @return Consistent copy of the stripe
+         */
+        private Stripe copy(RandomSource random) {
+            Stripe copy = new Stripe(sample.length, random);
+            for (int i = 0; i < OPTIMISTIC_READS; i++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp != 0) {
+                    long count = read(copy);
+                    if (lock.validate(stamp)) {
+                        copy.restore(count);
+                        return copy;
+                    }
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                copy.restore(read(copy));
+                return copy;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Reads the sample of the stripe into the slots of {@code copy}
+         *
+         * @param copy Stripe to read into
+         * @return Published number of objects the sample was taken from
+         */
+        private long read(Stripe copy) {
+            long count = published.get();
+            System.arraycopy(sample, 0, copy.sample, 0, (int) Math.min(sample.length, count));
+            return count;
+        }
+
+        @Override
+        protected void swap(int i, int j) {
+            Object value = sample[i];
+            sample[i] = sample[j];
+            sample[j] = value;
+        }
+
+        @Override
+        protected void copy(AbstractReservoir source, int from, int to) {
+            sample[to] = ((Stripe) source).sample[from];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.List;
+
+/**
+ * Reservoir holding a uniform sample, without replacement, of the last {@code windowLength} objects offered to it.
+ * <p>
+ * This is a {@link SlidingWindowReservoir} whose clock is the position of the objects in the stream, so it keeps
+ * O(k log(windowLength/k)) candidates in expectation and offering an object takes amortized O(1) work.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class CountWindowReservoir<T> {
+    private final SlidingWindowReservoir<T> window;
+    private long count;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize   Maximum number of objects held by the reservoir
+     * @param windowLength Number of most recent objects to sample from
+     * @param random       Source of randomness
+     */
+    public CountWindowReservoir(int sampleSize, long windowLength, RandomSource random) {
+        this.window = new SlidingWindowReservoir<>(sampleSize, windowLength, random);
+    }
+
+    /**
+     * Returns the maximum number of objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return window.sampleSize();
+    }
+
+    /**
+     * Returns the number of objects offered to the reservoir so far
+     *
+     * @return Number of objects seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Offers an object to the reservoir
+     *
+     * @param value Object to offer
+     */
+    public void offer(T value) {
+        window.offer(value, count++);
+    }
+
+    /**
+     * Offers all the objects of {@code values} to the reservoir, in iteration order
+     *
+     * @param values Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> values) {
+        for (T value : values) {
+            offer(value);
+        }
+    }
+
+    /**
+     * Returns the sample of the last {@code windowLength} objects
+     *
+     * @return Sampled objects, at max {@code sampleSize} of them, from the oldest to the newest
+     */
+    public List<T> snapshot() {
+        return window.snapshot(count - 1);
+    }
+
+    /**
+     * Returns the number of objects currently kept as candidates, for tests and monitoring
+     *
+     * @return Number of candidates
+     */
+    int candidates() {
+        return window.candidates();
+    }
+}
@@ -0,0 +1,45 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Source of randomness reporting every number drawn from another source to a {@link SamplingListener}.
+ * <p>
+ * Bounded draws and doubles are derived from {@link #nextLong()}, so every 64 random bits drawn are reported once,
+ * including the rare extra draws of the rejection step of bounded draws.
+ *
+ * @author Sriram
+ */
+public class CountingRandomSource implements RandomSource {
+    private final RandomSource delegate;
+    private final SamplingListener listener;
+
+    /**
+     * Initializes a source drawing from {@code delegate}
+     *
+     * @param delegate Source the numbers are drawn from
+     * @param listener Listener notified of every draw
+     */
+    public CountingRandomSource(RandomSource delegate, SamplingListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the source the numbers are drawn from
+     *
+     * @return Underlying source
+     */
+    public RandomSource delegate() {
+        return delegate;
+    }
+
+    @Override
+    public long nextLong() {
+        listener.onRandomDraw();
+        return delegate.nextLong();
+    }
+
+    @Override
+    public CountingRandomSource split() {
+        return new CountingRandomSource(delegate.split(), listener);
+    }
+}
@@ -0,0 +1,92 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.List;
+
+/**
+ * Reservoir holding a sample which favors the most recent of the objects offered to it, with exponential forward decay
+ * (<a href="https://doi.org/10.1109/ICDE.2009.65">Cormode, Shkapenyuk, Srivastava and Xu, Forward Decay</a>).
+ * <p>
+ * An object offered at time t is sampled with a probability proportional to {@code exp(alpha * t)}, so an object which
+ * is {@code 1 / alpha} older than another one is e times less likely to be in the sample. The weights are relative to
+ * a landmark time, and objects are sampled with a {@link WeightedReservoir}, so offering an object takes amortized O(1)
+ * work. Whenever the weights would grow too large the landmark moves forward and the weights seen so far are rescaled,
+ * which does not change the sample.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class DecayingReservoir<T> {
+    private static final double MAX_EXPONENT = 64;
+
+    private final WeightedReservoir<T> reservoir;
+    private final double alpha;
+    private long landmark;
+    private boolean started;
+    private long lastTimestamp;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of objects held by the reservoir
+     * @param alpha      Decay rate, per unit of time of the timestamps
+     * @param random     Source of randomness
+     */
+    public DecayingReservoir(int sampleSize, double alpha, RandomSource random) {
+        if (!(alpha > 0) || Double.isInfinite(alpha)) {
+            throw new IllegalArgumentException("Decay rate must be finite and positive");
+        }
+        this.reservoir = new WeightedReservoir<>(sampleSize, random);
+        this.alpha = alpha;
+    }
+
+    /**
+     * Returns the maximum number of objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return reservoir.sampleSize();
+    }
+
+    /**
+     * Returns the number of objects offered to the reservoir so far
+     *
+     * @return Number of objects seen
+     */
+    public long count() {
+        return reservoir.count();
+    }
+
+    /**
+     * Offers an object to the reservoir
+     *
+     * @param value     Object to offer
+     * @param timestamp Time of the object, not lower than the time of the previous object
+     */
+    public void offer(T value, long timestamp) {
+        if (!started) {
+            started = true;
+            landmark = timestamp;
+        } else if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamps must not decrease");
+        }
+        lastTimestamp = timestamp;
+        double exponent = alpha * (timestamp - landmark);
+        if (exponent > MAX_EXPONENT) {
+            // Move the landmark to the current time, the weights seen so far shrink accordingly, possibly to nothing
+            reservoir.rescale(Math.max(Math.exp(-exponent), Double.MIN_NORMAL));
+            landmark = timestamp;
+            exponent = 0;
+        }
+        reservoir.offer(value, Math.exp(exponent));
+    }
+
+    /**
+     * Returns the objects currently held by the reservoir
+     *
+     * @return Sampled objects
+     */
+    public List<T> snapshot() {
+        return reservoir.snapshot();
+    }
+}
@@ -0,0 +1,332 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reservoir holding a uniform sample of the distinct objects offered to it, however often each of them is repeated,
+ * with a bottom-k sketch (<a href="https://doi.org/10.1145/1247480.1247504">Beyer, Haas, Reinwald, Sismanis and
+ * Gemulla, On synopses for distinct-value estimation under multiset operations</a>).
+ * <p>
+ * Every object is hashed to 64 bits and the reservoir keeps the objects with the {@code k} smallest hashes. As the hashes
+ * of distinct objects behave like independent uniform numbers, these form a uniform sample of the distinct objects,
+ * and the k-th smallest hash tells how densely the hashes are spread, which estimates the number of distinct objects.
+ * The hashes are kept in a primitive max-heap, so objects whose hash is not below the largest one held, which is nearly
+ * all of them once the reservoir is full, are rejected with a single comparison, and a primitive hash set of the held
+ * hashes filters out repeats of sampled objects.
+ * <p>
+ * The sample only depends on the set of objects offered, so reservoirs filled from separate partitions of a stream
+ * with the same hash function can be merged into the sample of the whole stream.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class DistinctReservoir<T> {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_BUCKETS = 1 << 30;
+
+    private final int sampleSize;
+    private final ToLongFunction<? super T> hash;
+    private final long[] hashes;
+    private final Object[] items;
+    // Open-addressing set of the hashes in the heap, with a separate marker as a hash may be 0
+    private final long[] table;
+    private final boolean[] occupied;
+    private int size;
+    private long count;
+
+    /**
+     * Initializes an empty reservoir hashing objects with {@link #hash(Object)}
+     *
+     * @param sampleSize Maximum number of distinct objects held by the reservoir
+     */
+    public DistinctReservoir(int sampleSize) {
+        this(sampleSize, DistinctReservoir::hash);
+    }
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of distinct objects held by the reservoir
+     * @param hash       Function hashing equal objects to equal, uniformly spread, 64 bit hashes
+     */
+    public DistinctReservoir(int sampleSize, ToLongFunction<? super T> hash) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        long buckets = Long.highestOneBit(sampleSize) << 2;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Hash table does not fit in an array");
+        }
+        this.sampleSize = sampleSize;
+        this.hash = hash;
+        this.hashes = new long[sampleSize];
+        this.items = new Object[sampleSize];
+        this.table = new long[(int) buckets];
+        this.occupied = new boolean[(int) buckets];
+    }
+
+    /**
+     * Returns the maximum number of distinct objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of objects offered to the reservoir so far, repeats included
+     *
+     * @return Number of objects seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of distinct objects currently held by the reservoir
+     *
+     * @return Number of sampled objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers an object to the reservoir
+     *
+     * @param item Object to offer
+     */
+    public void offer(T item) {
+        count++;
+        offer(item, hash.applyAsLong(item));
+    }
+
+    /**
+     * Offers all the objects of {@code items} to the reservoir, in iteration order
+     *
+     * @param items Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> items) {
+        for (T item : items) {
+            offer(item);
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir, by keeping the objects with the smallest hashes of both.
+     * Afterwards, this reservoir holds the sample of the distinct objects seen by both reservoirs and can keep on being
+     * offered objects. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size and hash function to merge into this one
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(DistinctReservoir<? extends T> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a reservoir into itself");
+        }
+        if (other.sampleSize != sampleSize) {
+            throw new IllegalArgumentException("Cannot merge reservoirs of different sample sizes");
+        }
+        for (int i = 0; i < other.size; i++) {
+            offer((T) other.items[i], other.hashes[i]);
+        }
+        count += other.count;
+    }
+
+    /**
+     * Estimates the number of distinct objects offered to the reservoir so far. The count is exact while fewer than
+     * {@code sampleSize} distinct objects have been seen, and has a relative standard error of about
+     * {@code 1 / sqrt(sampleSize - 2)} afterwards.
+     *
+     * @return Estimated number of distinct objects
+     */
+    public double distinctCount() {
+        if (size < sampleSize) {
+            return size;
+        }
+        // The k-th smallest of n uniform hashes lies around k / n, and (k - 1) / h_k is an unbiased estimate of n
+        double largest = ((hashes[0] >>> 11) + 1) * 0x1p-53;
+        return (sampleSize - 1) / largest;
+    }
+
+    /**
+     * Returns a copy of the objects currently held by the reservoir
+     *
+     * @return Sampled distinct objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<T> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add((T) items[i]);
+        }
+        return sample;
+    }
+
+    /**
+     * Hashes an object to 64 bits. Integral numbers and characters are mixed from their values, character sequences
+     * with FNV-1a over their characters, and other objects are mixed from their {@link Object#hashCode()}, whose 32
+     * bits collide once there are tens of thousands of distinct objects, so a dedicated hash function should be
+     * passed for those.
+     *
+     * @param item Object to hash, may be null
+     * @return 64 bit hash
+     */
+    public static long hash(Object item) {
+        if (item instanceof Long || item instanceof Integer || item instanceof Short || item instanceof Byte) {
+            return SplitMix64.mix64(((Number) item).longValue());
+        }
+        if (item instanceof Character) {
+            return SplitMix64.mix64((Character) item);
+        }
+        if (item instanceof CharSequence) {
+            CharSequence chars = (CharSequence) item;
+            long hash = FNV_OFFSET;
+            for (int i = 0; i < chars.length(); i++) {
+                hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+            }
+            return SplitMix64.mix64(hash);
+        }
+        return SplitMix64.mix64(item == null ? 0 : item.hashCode());
+    }
+
+    /**
+     * Offers an object whose hash is known
+     *
+     * @param item Object to offer
+     * @param hash Hash of the object
+     */
+    private void offer(Object item, long hash) {
+        if (size == sampleSize && Long.compareUnsigned(hash, hashes[0]) >= 0) {
+            return;
+        }
+        if (contains(hash)) {
+            return;
+        }
+        if (size < sampleSize) {
+            push(item, hash);
+        } else {
+            remove(hashes[0]);
+            hashes[0] = hash;
+            items[0] = item;
+            siftDown(0);
+        }
+        insert(hash);
+    }
+
+    /**
+     * Adds an object to the heap while the reservoir is being filled
+     *
+     * @param item Object to add
+     * @param hash Hash of the object
+     */
+    private void push(Object item, long hash) {
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (Long.compareUnsigned(hashes[parent], hash) >= 0) {
+                break;
+            }
+            hashes[i] = hashes[parent];
+            items[i] = items[parent];
+            i = parent;
+        }
+        hashes[i] = hash;
+        items[i] = item;
+    }
+
+    /**
+     * Restores the heap order after the hash at {@code i} has decreased
+     *
+     * @param i Index of the decreased hash
+     */
+    private void siftDown(int i) {
+        long hash = hashes[i];
+        Object item = items[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && Long.compareUnsigned(hashes[child + 1], hashes[child]) > 0) {
+                child++;
+            }
+            if (Long.compareUnsigned(hash, hashes[child]) >= 0) {
+                break;
+            }
+            hashes[i] = hashes[child];
+            items[i] = items[child];
+            i = child;
+        }
+        hashes[i] = hash;
+        items[i] = item;
+    }
+
+    /**
+     * Tells whether a hash is held
+     *
+     * @param hash Hash to look for
+     * @return true if the hash is in the set
+     */
+    private boolean contains(long hash) {
+        int mask = table.length - 1;
+        for (int bucket = bucket(hash, mask); occupied[bucket]; bucket = (bucket + 1) & mask) {
+            if (table[bucket] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts a hash into the set
+     *
+     * @param hash Hash to insert, not yet in the set
+     */
+    private void insert(long hash) {
+        int mask = table.length - 1;
+        int bucket = bucket(hash, mask);
+        while (occupied[bucket]) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket] = hash;
+        occupied[bucket] = true;
+    }
+
+    /**
+     * Removes a hash from the set, shifting the following hashes of its probe sequence back so that no tombstone is
+     * needed
+     *
+     * @param hash Hash to remove, which is in the set
+     */
+    private void remove(long hash) {
+        int mask = table.length - 1;
+        int bucket = bucket(hash, mask);
+        while (table[bucket] != hash || !occupied[bucket]) {
+            bucket = (bucket + 1) & mask;
+        }
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; occupied[next]; next = (next + 1) & mask) {
+            int home = bucket(table[next], mask);
+            // Move the hash into the hole unless its home bucket lies cyclically within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        occupied[hole] = false;
+    }
+
+    /**
+     * Returns the home bucket of a hash, remixed as the smallest hashes, which are the ones held, share their high bits
+     *
+     * @param hash Hash of an object
+     * @param mask Number of buckets minus one
+     * @return Bucket
+     */
+    private static int bucket(long hash, int mask) {
+        return (int) SplitMix64.mix64(hash) & mask;
+    }
+}
@@ -0,0 +1,92 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Samples the bytes of a range of a file on a {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * Ranges larger than {@code splitSize} are split in two halves which are sampled in parallel, and the two samples are
+ * merged with {@link ByteReservoir#merge(ByteReservoir)}, which weights them by the number of bytes in each half. Every
+ * range samples with its own {@link RandomSource}, split from the one of its parent range before forking, so the result
+ * only depends on the initial generator and not on how the work got scheduled.
+ *
+ * @author Sriram
+ */
+@SuppressWarnings("serial")
+final class FileRangeTask extends RecursiveTask<ByteReservoir> {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final int sampleSize;
+    private final long splitSize;
+    private final RandomSource random;
+
+    /**
+     * Initializes the task sampling the bytes from {@code start} (inclusive) to {@code end} (exclusive)
+     *
+     * @param channel    Channel of the file to sample, only used for positional reads
+     * @param start      Position of the first byte of the range
+     * @param end        Position after the last byte of the range
+     * @param sampleSize Size to sample from the range
+     * @param splitSize  Size above which the range is split
+     * @param random     Source of randomness of the range, only used by this task
+     */
+    FileRangeTask(FileChannel channel, long start, long end, int sampleSize, long splitSize, RandomSource random) {
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+        this.sampleSize = sampleSize;
+        this.splitSize = splitSize;
+        this.random = random;
+    }
+
+    @Override
+    protected ByteReservoir compute() {
+        if (end - start <= splitSize) {
+            return sampleRange();
+        }
+        long middle = start + (end - start) / 2;
+        FileRangeTask left = new FileRangeTask(channel, start, middle, sampleSize, splitSize, random.split());
+        FileRangeTask right = new FileRangeTask(channel, middle, end, sampleSize, splitSize, random.split());
+        left.fork();
+        ByteReservoir rightSample = right.compute();
+        ByteReservoir leftSample = left.join();
+        leftSample.merge(rightSample);
+        return leftSample;
+    }
+
+    /**
+     * Samples the whole range on the current thread. Bytes which the reservoir would skip are not read at all.
+     *
+     * @return Sample of the range
+     * @throws UncheckedIOException Thrown when the range cannot be read, or wrapping an {@link EOFException} if the
+     *                              file was truncated while being sampled
+     */
+    private ByteReservoir sampleRange() {
+        ByteReservoir reservoir = new ByteReservoir(sampleSize, random);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long position = start;
+        try {
+            while ((position += reservoir.skip(end - position)) < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(CHUNK_SIZE, end - position));
+                int length = channel.read(buffer, position);
+                if (length < 0) {
+                    throw new EOFException("File was truncated while being sampled");
+                }
+                reservoir.offerAll(buffer.array(), 0, length);
+                position += length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return reservoir;
+    }
+}
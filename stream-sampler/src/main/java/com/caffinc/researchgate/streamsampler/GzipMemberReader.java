@@ -0,0 +1,279 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the members of a gzip file one at a time from any position of the file, offering their decompressed bytes to a
+ * {@link ByteReservoir}.
+ * <p>
+ * A gzip file is a sequence of members, each one made of a header, a deflate stream and a trailer holding the CRC-32
+ * and the size of its decompressed bytes, which are checked. Files written by concatenating gzip files, by parallel
+ * compressors, or in the BGZF format of bgzip, whose blocks of at most 64 KiB are members of their own, have many
+ * members, which can be decompressed independently of each other once their start is known.
+ *
+ * @author Sriram
+ */
+final class GzipMemberReader {
+    /**
+     * Size of the fixed part of a member header
+     */
+    static final int HEADER_SIZE = 10;
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED = 0xe0;
+
+    private final FileChannel channel;
+    private final byte[] input = new byte[CHUNK_SIZE];
+    private final ByteBuffer wrapper = ByteBuffer.wrap(input);
+    private final byte[] output = new byte[CHUNK_SIZE];
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private long filePosition;
+    private int offset;
+    private int length;
+
+    /**
+     * Initializes the reader of the members starting at {@code position}
+     *
+     * @param channel  Channel of the gzip file, only used for positional reads
+     * @param position Position of the first member to read
+     */
+    GzipMemberReader(FileChannel channel, long position) {
+        this.channel = channel;
+        this.filePosition = position;
+    }
+
+    /**
+     * Returns the position in the file of the next byte to read, which is the start of the next member after a call to
+     * {@link #read(ByteReservoir)}
+     *
+     * @return Position in the file
+     */
+    long position() {
+        return filePosition - (length - offset);
+    }
+
+    /**
+     * Checks whether a member header starts at the current position
+     *
+     * @return {@code true} if a member header starts at the current position, {@code false} at the end of the file or
+     * if other data follows
+     * @throws IOException Thrown if the file cannot be read
+     */
+    boolean atMember() throws IOException {
+        if (length - offset < HEADER_SIZE) {
+            System.arraycopy(input, offset, input, 0, length - offset);
+            length -= offset;
+            offset = 0;
+            while (length < HEADER_SIZE && load()) {
+                // Keep loading until the header is complete or the file ends
+            }
+        }
+        return length - offset >= HEADER_SIZE && isHeader(input, offset);
+    }
+
+    /**
+     * Decompresses the member starting at the current position, offering its bytes to the {@code reservoir}, and checks
+     * its trailer
+     *
+     * @param reservoir Reservoir to offer the decompressed bytes to
+     * @throws IOException Thrown if the file cannot be read, or as {@link ZipException} if the member is malformed
+     */
+    void read(ByteReservoir reservoir) throws IOException {
+        if (readByte() != 0x1f || readByte() != 0x8b || readByte() != 8) {
+            throw new ZipException("Not in GZIP format");
+        }
+        int flags = readByte();
+        if ((flags & RESERVED) != 0) {
+            throw new ZipException("Unsupported GZIP flags");
+        }
+        skipBytes(6);
+        if ((flags & FEXTRA) != 0) {
+            skipBytes(readByte() | readByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            skipString();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipString();
+        }
+        if ((flags & FHCRC) != 0) {
+            skipBytes(2);
+        }
+
+        inflater.reset();
+        crc.reset();
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    fill();
+                    inflater.setInput(input, offset, length - offset);
+                    offset = length;
+                }
+                int inflated = inflater.inflate(output);
+                if (inflated > 0) {
+                    crc.update(output, 0, inflated);
+                    reservoir.offerAll(output, 0, inflated);
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Unexpected preset dictionary in GZIP member");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid GZIP data format");
+        }
+        offset = length - inflater.getRemaining();
+
+        long expectedCrc = readInt();
+        long expectedSize = readInt();
+        if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+    }
+
+    /**
+     * Releases the native resources of the decompressor
+     */
+    void end() {
+        inflater.end();
+    }
+
+    /**
+     * Finds the first position in the range from {@code from} (inclusive) to {@code to} (exclusive) at which a gzip
+     * member header seems to start. Headers are recognized by their magic bytes, compression method and plausible flag,
+     * extra flag and operating system bytes, so the position is likely but not certain to start a member: compressed
+     * data can contain the same bytes.
+     *
+     * @param channel Channel of the gzip file, only used for positional reads
+     * @param from    Position of the first byte of the range
+     * @param to      Position after the last byte of the range
+     * @return Position of the first header candidate, {@code -1} if there is none
+     * @throws IOException Thrown if the file cannot be read
+     */
+    static long find(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        byte[] bytes = buffer.array();
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                // Fill the buffer unless the file ends
+            }
+            int last = (int) Math.min(buffer.position() - HEADER_SIZE, to - position - 1);
+            for (int i = 0; i <= last; i++) {
+                if (isHeader(bytes, i)) {
+                    return position + i;
+                }
+            }
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            position += CHUNK_SIZE - HEADER_SIZE + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the bytes at {@code offset} look like the fixed part of a member header
+     *
+     * @param bytes  Bytes to check, at least {@link #HEADER_SIZE} of them from {@code offset}
+     * @param offset Position of the header candidate
+     * @return {@code true} if the bytes look like a member header
+     */
+    private static boolean isHeader(byte[] bytes, int offset) {
+        int extraFlags = bytes[offset + 8];
+        int os = bytes[offset + 9] & 0xff;
+        return bytes[offset] == 0x1f && bytes[offset + 1] == (byte) 0x8b && bytes[offset + 2] == 8
+                && (bytes[offset + 3] & RESERVED) == 0 && (extraFlags == 0 || extraFlags == 2 || extraFlags == 4)
+                && (os <= 13 || os == 255);
+    }
+
+    /**
+     * Reads more of the file after the bytes already in the input buffer
+     *
+     * @return {@code false} at the end of the file
+     * @throws IOException Thrown if the file cannot be read
+     */
+    private boolean load() throws IOException {
+        wrapper.limit(input.length).position(length);
+        int read = channel.read(wrapper, filePosition);
+        if (read <= 0) {
+            return false;
+        }
+        filePosition += read;
+        length += read;
+        return true;
+    }
+
+    /**
+     * Refills the input buffer once it has been consumed
+     *
+     * @throws IOException Thrown if the file cannot be read, or as {@link EOFException} at the end of the file
+     */
+    private void fill() throws IOException {
+        if (offset == length) {
+            offset = 0;
+            length = 0;
+            if (!load()) {
+                throw new EOFException("Unexpected end of GZIP member");
+            }
+        }
+    }
+
+    /**
+     * Reads the next byte of the file
+     *
+     * @return Unsigned byte
+     * @throws IOException Thrown if the file cannot be read, or as {@link EOFException} at the end of the file
+     */
+    private int readByte() throws IOException {
+        fill();
+        return input[offset++] & 0xff;
+    }
+
+    /**
+     * Reads the next four bytes of the file as an unsigned little-endian integer
+     *
+     * @return Unsigned integer
+     * @throws IOException Thrown if the file cannot be read, or as {@link EOFException} at the end of the file
+     */
+    private long readInt() throws IOException {
+        return readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24;
+    }
+
+    /**
+     * Skips the next {@code count} bytes of the file
+     *
+     * @param count Number of bytes to skip
+     * @throws IOException Thrown if the file cannot be read, or as {@link EOFException} at the end of the file
+     */
+    private void skipBytes(int count) throws IOException {
+        while (count > 0) {
+            fill();
+            int skipped = Math.min(count, length - offset);
+            offset += skipped;
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Skips the next zero-terminated string of the file
+     *
+     * @throws IOException Thrown if the file cannot be read, or as {@link EOFException} at the end of the file
+     */
+    private void skipString() throws IOException {
+        while (readByte() != 0) {
+            // Skip up to the terminating zero
+        }
+    }
+}
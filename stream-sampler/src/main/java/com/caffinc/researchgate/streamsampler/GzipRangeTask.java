@@ -0,0 +1,86 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Samples the decompressed bytes of consecutive members of a gzip file on a {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * The task reads the members from {@code start} until one of them ends at or after {@code target}, usually the start
+ * of the next task, and records the position where it stopped. Tasks may be started at positions which only look like
+ * the start of a member, in which case they fail or stop elsewhere than where the previous task stopped; the caller
+ * only keeps the samples of tasks starting exactly where the previous kept task stopped, which start at actual member
+ * boundaries. Like for {@link FileRangeTask}, every task samples with its own {@link RandomSource}, so the kept samples
+ * are merged with {@link ByteReservoir#merge(ByteReservoir)} weighted by their decompressed sizes.
+ *
+ * @author Sriram
+ */
+@SuppressWarnings("serial")
+final class GzipRangeTask extends RecursiveTask<ByteReservoir> {
+    private final FileChannel channel;
+    private final long start;
+    private final long target;
+    private final int sampleSize;
+    private final RandomSource random;
+    private final SamplingListener listener;
+    private long end;
+
+    /**
+     * Initializes the task sampling the members from {@code start} until one ends at or after {@code target}
+     *
+     * @param channel    Channel of the gzip file, only used for positional reads
+     * @param start      Position of the first member to sample
+     * @param target     Position at or after which to stop at the end of a member
+     * @param sampleSize Size to sample from the decompressed bytes
+     * @param random     Source of randomness of the task, only used by this task
+     * @param listener   Listener notified of the elements stored and skipped by the task
+     */
+    GzipRangeTask(FileChannel channel, long start, long target, int sampleSize, RandomSource random,
+                  SamplingListener listener) {
+        this.channel = channel;
+        this.start = start;
+        this.target = target;
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the position of the first member sampled by the task
+     *
+     * @return Start of the task
+     */
+    long start() {
+        return start;
+    }
+
+    /**
+     * Returns the position where the task stopped, which is the end of the file if the members are followed by other
+     * data, as {@link java.util.zip.GZIPInputStream} ignores trailing data. Only valid once the task completed.
+     *
+     * @return End of the task
+     */
+    long end() {
+        return end;
+    }
+
+    @Override
+    protected ByteReservoir compute() {
+        ByteReservoir reservoir = new ByteReservoir(sampleSize, random);
+        reservoir.listener(listener);
+        GzipMemberReader reader = new GzipMemberReader(channel, start);
+        try {
+            do {
+                reader.read(reservoir);
+            } while (reader.position() < target && reader.atMember());
+            end = reader.position() < target ? channel.size() : reader.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            reader.end();
+        }
+        return reservoir;
+    }
+}
@@ -0,0 +1,94 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.Arrays;
+
+/**
+ * Reservoir holding a uniform sample of the {@code long} values offered to it, without boxing them.
+ * <p>
+ * Values offered in bulk through {@link #offerAll(long[], int, int)} are skipped by offset arithmetic, so the skipped
+ * values are never looked at.
+ *
+ * @author Sriram
+ */
+public class LongReservoir extends AbstractReservoir {
+    private final long[] sample;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of values held by the reservoir
+     * @param random     Source of randomness
+     */
+    public LongReservoir(int sampleSize, RandomSource random) {
+        super(sampleSize, random);
+        this.sample = new long[sampleSize];
+    }
+
+    /**
+     * Offers a single value to the reservoir
+     *
+     * @param value Value to offer
+     */
+    public void offer(long value) {
+        int slot = nextSlot();
+        if (slot >= 0) {
+            sample[slot] = value;
+        }
+    }
+
+    /**
+     * Offers all the values of {@code values} to the reservoir
+     *
+     * @param values Values to offer
+     */
+    public void offerAll(long... values) {
+        offerAll(values, 0, values.length);
+    }
+
+    /**
+     * Offers {@code length} values of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Buffer containing the values to offer
+     * @param offset Position of the first value to offer
+     * @param length Number of values to offer
+     */
+    public void offerAll(long[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            sample[nextSlot()] = values[i++];
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * values seen by both reservoirs and can keep on being offered values. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(LongReservoir other) {
+        merge((AbstractReservoir) other);
+    }
+
+    /**
+     * Returns a copy of the values currently held by the reservoir
+     *
+     * @return Sampled values
+     */
+    public long[] snapshot() {
+        return Arrays.copyOf(sample, size());
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        long value = sample[i];
+        sample[i] = sample[j];
+        sample[j] = value;
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        sample[to] = ((LongReservoir) source).sample[from];
+    }
+}
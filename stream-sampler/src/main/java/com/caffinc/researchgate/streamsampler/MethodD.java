@@ -0,0 +1,165 @@
+package com.caffinc.researchgate.streamsampler;
+
+
+/**
+ * Sequential random sampling with Vitter's Method D (<a href="https://dl.acm.org/doi/10.1145/23002.23003">An
+ * Efficient Algorithm for Sequential Random Sampling</a>).
+ * <p>
+ * Selects {@code n} out of {@code N} records in increasing order, given that {@code N} is known upfront. Each call to
+ * {@link #nextSkip()} returns the number of records to skip before the next selected one, in O(1) expected time.
+ * When {@code n} gets close to {@code N}, the generator switches to the simpler Method A, as the paper suggests.
+ *
+ * @author Sriram
+ */
+final class MethodD {
+    private static final long NEGATIVE_ALPHA_INVERSE = -13;
+
+    private final RandomSource random;
+    private long n;
+    private long bigN;
+    private double nReal;
+    private double bigNReal;
+    private double nInverse;
+    private double vPrime;
+    private long qu1;
+    private double qu1Real;
+    private long threshold;
+    private double top;
+    private boolean methodA;
+
+    /**
+     * Initializes the generator selecting {@code n} out of {@code N} records
+     *
+     * @param n      Number of records to select
+     * @param bigN   Total number of records
+     * @param random Source of randomness
+     */
+    MethodD(long n, long bigN, RandomSource random) {
+        if (n <= 0 || n > bigN) {
+            throw new IllegalArgumentException("Sample size must be positive and at most the number of records");
+        }
+        this.random = random;
+        this.n = n;
+        this.bigN = bigN;
+        this.nReal = n;
+        this.bigNReal = bigN;
+        this.nInverse = 1.0 / n;
+        this.vPrime = Math.exp(Math.log(uniform()) * nInverse);
+        this.qu1 = bigN - n + 1;
+        this.qu1Real = qu1;
+        this.threshold = -NEGATIVE_ALPHA_INVERSE * n;
+    }
+
+    /**
+     * Returns the number of records to skip before the next selected record. Must be called at most {@code n} times.
+     *
+     * @return Number of records to skip
+     */
+    long nextSkip() {
+        if (n <= 0) {
+            throw new IllegalStateException("All records have already been selected");
+        }
+        if (n == 1) {
+            // The last record is picked uniformly among the remaining ones, Method D already has V' for it
+            n--;
+            return (long) (bigNReal * (methodA ? random.nextDouble() : 1.0 - vPrime));
+        }
+        if (!methodA && threshold >= bigN) {
+            methodA = true;
+            top = bigN - n;
+        }
+        return methodA ? nextSkipA() : nextSkipD();
+    }
+
+    /**
+     * One step of Method D, for the case where {@code N} is large compared to {@code n}
+     *
+     * @return Number of records to skip
+     */
+    private long nextSkipD() {
+        double nMinus1Inverse = 1.0 / (nReal - 1.0);
+        long s;
+        double negativeS;
+        while (true) {
+            double x;
+            while (true) {
+                x = bigNReal * (1.0 - vPrime);
+                s = (long) x;
+                if (s < qu1) {
+                    break;
+                }
+                vPrime = Math.exp(Math.log(uniform()) * nInverse);
+            }
+            double u = uniform();
+            negativeS = -s;
+            double y1 = Math.exp(Math.log(u * bigNReal / qu1Real) * nMinus1Inverse);
+            vPrime = y1 * (1.0 - x / bigNReal) * (qu1Real / (negativeS + qu1Real));
+            if (vPrime <= 1.0) {
+                // Accepted with the cheap test
+                break;
+            }
+            double y2 = 1.0;
+            double yTop = bigNReal - 1.0;
+            double bottom;
+            long limit;
+            if (n - 1 > s) {
+                bottom = bigNReal - nReal;
+                limit = bigN - s;
+            } else {
+                bottom = bigNReal + negativeS - 1.0;
+                limit = qu1;
+            }
+            for (long t = bigN - 1; t >= limit; t--) {
+                y2 = (y2 * yTop) / bottom;
+                yTop--;
+                bottom--;
+            }
+            if (bigNReal / (bigNReal - x) >= y1 * Math.exp(Math.log(y2) * nMinus1Inverse)) {
+                // Accepted with the exact test
+                vPrime = Math.exp(Math.log(uniform()) * nMinus1Inverse);
+                break;
+            }
+            vPrime = Math.exp(Math.log(uniform()) * nInverse);
+        }
+        bigN = bigN - s - 1;
+        bigNReal = bigNReal + negativeS - 1.0;
+        n--;
+        nReal--;
+        nInverse = nMinus1Inverse;
+        qu1 -= s;
+        qu1Real += negativeS;
+        threshold += NEGATIVE_ALPHA_INVERSE;
+        return s;
+    }
+
+    /**
+     * One step of Method A, for the case where {@code n} is close to {@code N}
+     *
+     * @return Number of records to skip
+     */
+    private long nextSkipA() {
+        double v = random.nextDouble();
+        long s = 0;
+        double quotient = top / bigNReal;
+        while (quotient > v) {
+            s++;
+            top--;
+            bigNReal--;
+            quotient = (quotient * top) / bigNReal;
+        }
+        bigNReal--;
+        bigN = bigN - s - 1;
+        n--;
+        nReal--;
+        return s;
+    }
+
+    /**
+     * Draws a uniform random number in the range (0, 1], which is safe to pass to {@link Math#log(double)}
+     *
+     * @return Uniform random number
+     */
+    private double uniform() {
+        return 1.0 - random.nextDouble();
+    }
+}
@@ -0,0 +1,69 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.Arrays;
+
+/**
+ * Reservoir holding many independent uniform samples of the characters offered to it, see
+ * {@link AbstractMultiReservoir}.
+ * <p>
+ * Values offered in bulk through {@link #offerAll(char[], int, int)} are skipped by offset arithmetic until the next
+ * value any sample accepts, so the skipped values are never looked at.
+ *
+ * @author Sriram
+ */
+public class MultiCharReservoir extends AbstractMultiReservoir {
+    private final char[] samples;
+
+    /**
+     * Initializes empty samples
+     *
+     * @param sampleSize Maximum number of values held by each sample
+     * @param samples    Number of independent samples
+     * @param random     Source of randomness, split once for every sample, in order
+     */
+    public MultiCharReservoir(int sampleSize, int samples, RandomSource random) {
+        super(sampleSize, samples, random);
+        this.samples = new char[sampleSize * samples];
+    }
+
+    /**
+     * Offers a single value to the samples
+     *
+     * @param value Value to offer
+     */
+    public void offer(char value) {
+        for (int slot = nextSlot(); slot >= 0; slot = nextSlot()) {
+            samples[slot] = value;
+        }
+    }
+
+    /**
+     * Offers {@code length} values of {@code values} starting at {@code offset} to the samples
+     *
+     * @param values Buffer containing the values to offer
+     * @param offset Position of the first value to offer
+     * @param length Number of values to offer
+     */
+    public void offerAll(char[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            offer(values[i++]);
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Returns a copy of the values currently held by a sample
+     *
+     * @param sample Index of the sample, lower than {@link #samples()}
+     * @return Sampled values
+     */
+    public char[] snapshot(int sample) {
+        if (sample < 0 || sample >= samples()) {
+            throw new IndexOutOfBoundsException("Sample " + sample + " does not exist");
+        }
+        int start = sample * sampleSize();
+        return Arrays.copyOfRange(samples, start, start + size());
+    }
+}
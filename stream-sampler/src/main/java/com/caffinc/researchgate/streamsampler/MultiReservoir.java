@@ -0,0 +1,98 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reservoir holding many independent uniform samples of the objects offered to it, see
+ * {@link AbstractMultiReservoir}.
+ * <p>
+ * Objects offered in bulk through arrays or {@link RandomAccess} lists are skipped by index arithmetic until the next
+ * object any sample accepts, so the skipped objects are never looked at.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class MultiReservoir<T> extends AbstractMultiReservoir {
+    private final Object[] samples;
+
+    /**
+     * Initializes empty samples
+     *
+     * @param sampleSize Maximum number of objects held by each sample
+     * @param samples    Number of independent samples
+     * @param random     Source of randomness, split once for every sample, in order
+     */
+    public MultiReservoir(int sampleSize, int samples, RandomSource random) {
+        super(sampleSize, samples, random);
+        this.samples = new Object[sampleSize * samples];
+    }
+
+    /**
+     * Offers a single object to the samples
+     *
+     * @param value Object to offer
+     */
+    public void offer(T value) {
+        for (int slot = nextSlot(); slot >= 0; slot = nextSlot()) {
+            samples[slot] = value;
+        }
+    }
+
+    /**
+     * Offers {@code length} objects of {@code values} starting at {@code offset} to the samples
+     *
+     * @param values Array containing the objects to offer
+     * @param offset Position of the first object to offer
+     * @param length Number of objects to offer
+     */
+    public void offerAll(T[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            offer(values[i++]);
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Offers all the objects of {@code values} to the samples, in iteration order
+     *
+     * @param values Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> values) {
+        if (values instanceof List && values instanceof RandomAccess) {
+            List<? extends T> list = (List<? extends T>) values;
+            int size = list.size();
+            int i = discard(size);
+            while (i < size) {
+                offer(list.get(i++));
+                i += discard(size - i);
+            }
+        } else {
+            for (T value : values) {
+                offer(value);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the objects currently held by a sample
+     *
+     * @param sample Index of the sample, lower than {@link #samples()}
+     * @return Sampled objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot(int sample) {
+        if (sample < 0 || sample >= samples()) {
+            throw new IndexOutOfBoundsException("Sample " + sample + " does not exist");
+        }
+        int start = sample * sampleSize();
+        List<T> values = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            values.add((T) samples[start + i]);
+        }
+        return values;
+    }
+}
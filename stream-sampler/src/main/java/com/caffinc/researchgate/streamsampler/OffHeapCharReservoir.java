@@ -0,0 +1,241 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reservoir holding a uniform sample of the characters offered to it outside of the Java heap, for sample sizes of
+ * hundreds of millions of characters which would otherwise put a heavy load on the garbage collector.
+ * <p>
+ * The sample is stored in direct {@link ByteBuffer}s, or in a memory mapped file for samples larger than the available
+ * memory, which the operating system pages in and out as needed. The storage is split into chunks of at most 1 GiB, as
+ * a single buffer is limited to 2 GiB. Storing a character is an absolute put into its chunk, so replacements take O(1)
+ * work and create no objects. The sample is read back with {@link #get(int)} or streamed to a {@link Writer} with
+ * {@link #writeTo(Writer)}, rather than copied into a heap array.
+ * <p>
+ * Direct memory is only released once the reservoir has been garbage collected, and so is the mapping of the file,
+ * even after {@link #close()}, which closes the file.
+ *
+ * @author Sriram
+ */
+public class OffHeapCharReservoir extends AbstractReservoir implements Closeable {
+    private static final int CHUNK_SHIFT = 29;
+    private static final int WRITE_BUFFER_SIZE = 1 << 13;
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private final ByteBuffer[] chunks;
+    private final FileChannel channel;
+
+    /**
+     * Initializes an empty reservoir stored in direct memory
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param random     Source of randomness
+     */
+    public OffHeapCharReservoir(int sampleSize, RandomSource random) {
+        this(sampleSize, random, CHUNK_SHIFT);
+    }
+
+    /**
+     * Initializes an empty reservoir stored in a memory mapped file. The file is created if it does not exist, and its
+     * previous content is overwritten. It is not deleted when the reservoir is closed.
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param random     Source of randomness
+     * @param file       File to store the sample in
+     * @throws IOException Thrown if the file cannot be opened or mapped
+     */
+    public OffHeapCharReservoir(int sampleSize, RandomSource random, Path file) throws IOException {
+        this(sampleSize, random, file, CHUNK_SHIFT);
+    }
+
+    /**
+     * Initializes an empty reservoir stored in direct memory, with chunks of {@code 2^chunkShift} characters
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param random     Source of randomness
+     * @param chunkShift Base 2 logarithm of the number of characters per chunk
+     */
+    OffHeapCharReservoir(int sampleSize, RandomSource random, int chunkShift) {
+        super(sampleSize, random);
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+        this.chunks = new ByteBuffer[chunkCount(sampleSize, chunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkBytes(sampleSize, i)).order(ByteOrder.nativeOrder());
+        }
+        this.channel = null;
+    }
+
+    /**
+     * Initializes an empty reservoir stored in a memory mapped file, with chunks of {@code 2^chunkShift} characters
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param random     Source of randomness
+     * @param file       File to store the sample in
+     * @param chunkShift Base 2 logarithm of the number of characters per chunk
+     * @throws IOException Thrown if the file cannot be opened or mapped
+     */
+    OffHeapCharReservoir(int sampleSize, RandomSource random, Path file, int chunkShift) throws IOException {
+        super(sampleSize, random);
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+        this.chunks = new ByteBuffer[chunkCount(sampleSize, chunkShift)];
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << (chunkShift + 1);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkBytes(sampleSize, i))
+                        .order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Offers a single character to the reservoir
+     *
+     * @param value Character to offer
+     */
+    public void offer(char value) {
+        int slot = nextSlot();
+        if (slot >= 0) {
+            put(slot, value);
+        }
+    }
+
+    /**
+     * Offers {@code length} characters of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Buffer containing the characters to offer
+     * @param offset Position of the first character to offer
+     * @param length Number of characters to offer
+     */
+    public void offerAll(char[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            put(nextSlot(), values[i++]);
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * characters seen by both reservoirs and can keep on being offered characters. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(OffHeapCharReservoir other) {
+        merge((AbstractReservoir) other);
+    }
+
+    /**
+     * Returns a character of the sample
+     *
+     * @param slot Index of the character, lower than {@link #size()}
+     * @return Sampled character
+     */
+    public char get(int slot) {
+        if (slot < 0 || slot >= size()) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " is not in the sample");
+        }
+        return read(slot);
+    }
+
+    /**
+     * Writes the characters currently held by the reservoir to {@code writer}, through a small heap buffer
+     *
+     * @param writer Writer to write the sample to
+     * @throws IOException Thrown by the writer
+     */
+    public void writeTo(Writer writer) throws IOException {
+        char[] buffer = new char[WRITE_BUFFER_SIZE];
+        int size = size();
+        for (int start = 0; start < size; start += buffer.length) {
+            int length = Math.min(buffer.length, size - start);
+            for (int i = 0; i < length; i++) {
+                buffer[i] = read(start + i);
+            }
+            writer.write(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Closes the file of a memory mapped reservoir, after which the reservoir can still be used until it is garbage
+     * collected. Does nothing for reservoirs stored in direct memory.
+     *
+     * @throws IOException Thrown if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        char value = read(i);
+        put(i, read(j));
+        put(j, value);
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        put(to, ((OffHeapCharReservoir) source).read(from));
+    }
+
+    /**
+     * Stores a character in a slot
+     *
+     * @param slot  Slot of the character
+     * @param value Character to store
+     */
+    private void put(int slot, char value) {
+        chunks[slot >>> chunkShift].putChar((slot & chunkMask) << 1, value);
+    }
+
+    /**
+     * Reads the character of a slot
+     *
+     * @param slot Slot of the character
+     * @return Stored character
+     */
+    private char read(int slot) {
+        return chunks[slot >>> chunkShift].getChar((slot & chunkMask) << 1);
+    }
+
+    /**
+     * Returns the number of chunks needed for a sample
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param chunkShift Base 2 logarithm of the number of characters per chunk
+     * @return Number of chunks
+     */
+    private static int chunkCount(int sampleSize, int chunkShift) {
+        return (int) (((long) sampleSize + (1L << chunkShift) - 1) >>> chunkShift);
+    }
+
+    /**
+     * Returns the number of bytes of a chunk, which is smaller for the last chunk
+     *
+     * @param sampleSize Maximum number of characters held by the reservoir
+     * @param chunk      Index of the chunk
+     * @return Number of bytes
+     */
+    private int chunkBytes(int sampleSize, int chunk) {
+        long start = (long) chunk << chunkShift;
+        return (int) Math.min(1L << chunkShift, sampleSize - start) << 1;
+    }
+}
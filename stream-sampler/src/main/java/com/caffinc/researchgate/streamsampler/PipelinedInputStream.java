@@ -0,0 +1,273 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stream reading its source on a dedicated thread, ahead of the thread consuming it, so that waiting for the input
+ * overlaps with sampling it instead of alternating with it.
+ * <p>
+ * The reader thread fills a ring of buffers allocated up front, and the consumer reads them in order, so no memory is
+ * allocated once the stream is created. The ring is a single-producer single-consumer queue: the reader publishes a
+ * buffer by advancing its write position and the consumer releases it by advancing its read position, each position
+ * being written by one thread only. No locks are taken; a thread finding the ring full or empty spins briefly, then
+ * parks until the other thread advances its position and unparks it.
+ * <p>
+ * The stream can be read as an {@link InputStream} or as a {@link ReadableByteChannel}, by a single thread. Closing it
+ * stops the reader thread after its current read, but does not close the source, like the sampling methods of
+ * {@link StreamSampler} do not close the streams they are passed.
+ *
+ * @author Sriram
+ */
+public class PipelinedInputStream extends InputStream implements ReadableByteChannel {
+    private static final int DEFAULT_BUFFER_COUNT = 8;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int SPINS = 1 << 10;
+
+    private final InputStream source;
+    private final byte[][] buffers;
+    private final int[] lengths;
+    private final int mask;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final Thread reader;
+    private volatile Thread waitingConsumer;
+    private volatile boolean readerWaiting;
+    private volatile boolean finished;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private long position;
+    private int offset;
+
+    /**
+     * Starts reading {@code source} into a ring of 8 buffers of 1 MiB
+     *
+     * @param source Stream to read
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Starts reading {@code source} into a ring of buffers
+     *
+     * @param source      Stream to read
+     * @param bufferCount Number of buffers of the ring, rounded up to a power of 2
+     * @param bufferSize  Size of each buffer, the maximum number of bytes read at once
+     */
+    public PipelinedInputStream(InputStream source, int bufferCount, int bufferSize) {
+        if (bufferCount <= 0 || bufferCount > 1 << 16) {
+            throw new IllegalArgumentException("Buffer count must be between 1 and 65536");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        int count = Integer.highestOneBit(bufferCount - 1) << 1;
+        this.source = source;
+        this.buffers = new byte[Math.max(1, count)][bufferSize];
+        this.lengths = new int[buffers.length];
+        this.mask = buffers.length - 1;
+        this.reader = new Thread(this::fill, "stream-sampler-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!await()) {
+            return -1;
+        }
+        int slot = (int) (position & mask);
+        int value = buffers[slot][offset++] & 0xFF;
+        releaseIfRead(slot);
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!await()) {
+            return -1;
+        }
+        int slot = (int) (position & mask);
+        int read = Math.min(length, lengths[slot] - offset);
+        System.arraycopy(buffers[slot], offset, buffer, off, read);
+        offset += read;
+        releaseIfRead(slot);
+        return read;
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (!destination.hasRemaining()) {
+            return 0;
+        }
+        if (!await()) {
+            return -1;
+        }
+        int slot = (int) (position & mask);
+        int read = Math.min(destination.remaining(), lengths[slot] - offset);
+        destination.put(buffers[slot], offset, read);
+        offset += read;
+        releaseIfRead(slot);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return position < written.get() ? lengths[(int) (position & mask)] - offset : 0;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Stops the reader thread once its current read returns. The source is not closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(reader);
+    }
+
+    /**
+     * Waits until the buffer at the read position has been filled
+     *
+     * @return {@code true} if there are bytes to read, {@code false} at the end of the stream
+     * @throws IOException Thrown if the source could not be read or the stream is closed
+     */
+    private boolean await() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        int spins = 0;
+        while (position == written.get()) {
+            if (finished) {
+                // The last buffer may have been published right before the reader finished
+                if (position == written.get()) {
+                    if (failure != null) {
+                        throw rethrow(failure);
+                    }
+                    return false;
+                }
+                break;
+            }
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            } else {
+                waitingConsumer = Thread.currentThread();
+                if (position == written.get() && !finished) {
+                    LockSupport.park(this);
+                }
+                waitingConsumer = null;
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for input");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases a buffer to the reader thread once all its bytes have been read
+     *
+     * @param slot Slot of the buffer at the read position
+     */
+    private void releaseIfRead(int slot) {
+        if (offset == lengths[slot]) {
+            offset = 0;
+            released.set(++position);
+            if (readerWaiting) {
+                LockSupport.unpark(reader);
+            }
+        }
+    }
+
+    /**
+     * Body of the reader thread: fills the free buffers of the ring until the end of the source, a failure or
+     * {@link #close()}
+     */
+    private void fill() {
+        try {
+            long next = 0;
+            while (!closed) {
+                int spins = 0;
+                while (next - released.get() == buffers.length && !closed) {
+                    if (spins < SPINS) {
+                        spins++;
+                        Thread.onSpinWait();
+                    } else {
+                        readerWaiting = true;
+                        if (next - released.get() == buffers.length && !closed) {
+                            LockSupport.park(this);
+                        }
+                        readerWaiting = false;
+                    }
+                }
+                if (closed) {
+                    break;
+                }
+                int slot = (int) (next & mask);
+                int length = source.read(buffers[slot], 0, buffers[slot].length);
+                if (length < 0) {
+                    break;
+                }
+                if (length > 0) {
+                    lengths[slot] = length;
+                    written.set(++next);
+                    wakeConsumer();
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            finished = true;
+            wakeConsumer();
+        }
+    }
+
+    /**
+     * Rethrows a failure of the reader thread on the consumer thread: unchecked exceptions and errors as they are,
+     * checked exceptions as an {@link IOException}
+     *
+     * @param failure Failure of the reader thread
+     * @return Never returns, declared so that callers can {@code throw} it
+     * @throws IOException The failure itself or wrapping it
+     */
+    private static IOException rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException(failure);
+    }
+
+    /**
+     * Unparks the consumer if it is waiting for a buffer
+     */
+    private void wakeConsumer() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
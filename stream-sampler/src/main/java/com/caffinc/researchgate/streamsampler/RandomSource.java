@@ -0,0 +1,100 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Source of random numbers used by the samplers.
+ * <p>
+ * Implementations only have to provide 64 random bits at a time and a way to split off an independent generator, the
+ * other draws are derived from those bits. Bounded draws use
+ * <a href="https://arxiv.org/abs/1805.10941">Lemire's multiply-shift method</a>, which is unbiased and avoids the
+ * division of {@code nextLong() % bound} in the common case. Implementations are not thread-safe, every thread should
+ * use its own generator, for instance one obtained with {@link #split()}.
+ *
+ * @author Sriram
+ * @see SplitMix64
+ * @see Xoroshiro128PlusPlus
+ */
+public interface RandomSource {
+    /**
+     * Returns 64 random bits
+     *
+     * @return Random long
+     */
+    long nextLong();
+
+    /**
+     * Returns a new generator, whose sequence is independent from the one of this generator. Splitting a seeded
+     * generator always produces the same generator.
+     *
+     * @return Independent generator
+     */
+    RandomSource split();
+
+    /**
+     * Returns a uniform random number in the range [0, 1), with 53 bits of precision
+     *
+     * @return Uniform random number
+     */
+    default double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns a uniform random number in the range [0, bound)
+     *
+     * @param bound Upper bound (exclusive), must be positive
+     * @return Uniform random number
+     */
+    default int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            // Reject the few values which would make the lower bounds more likely
+            long threshold = (1L << 32) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * Returns a uniform random number in the range [0, bound)
+     *
+     * @param bound Upper bound (exclusive), must be positive
+     * @return Uniform random number
+     */
+    default long nextLong(long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+        long bits = nextLong();
+        long low = bits * bound;
+        if (Long.compareUnsigned(low, bound) < 0) {
+            // Reject the few values which would make the lower bounds more likely
+            long threshold = Long.remainderUnsigned(-bound, bound);
+            while (Long.compareUnsigned(low, threshold) < 0) {
+                bits = nextLong();
+                low = bits * bound;
+            }
+        }
+        return unsignedMultiplyHigh(bits, bound);
+    }
+
+    /**
+     * Returns the upper 64 bits of the unsigned 128 bit product of {@code x} and a non-negative {@code y}
+     *
+     * @param x First factor, as an unsigned number
+     * @param y Second factor, must not be negative
+     * @return Upper 64 bits of the product
+     */
+    static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32);
+        return x1 * y1 + (middle >>> 32) + (((middle & 0xFFFFFFFFL) + x0 * y1) >>> 32);
+    }
+}
@@ -0,0 +1,200 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reservoir holding a uniform sample of the delimited records (for instance lines) of the bytes offered to it.
+ * <p>
+ * Delimiters are searched for directly in the offered buffers. The bytes of skipped records are only scanned for the
+ * next delimiter, while the bytes of sampled records are copied into a buffer owned by their slot of the reservoir.
+ * Slot buffers are reused when their record gets replaced, so no memory is allocated for the records of the stream
+ * once the buffers have grown to the size of the longest sampled records.
+ *
+ * @author Sriram
+ */
+public class RecordReservoir extends AbstractReservoir {
+    private static final int INITIAL_RECORD_SIZE = 64;
+    private static final int MAX_RECORD_SIZE = Integer.MAX_VALUE - 8;
+
+    private final byte delimiter;
+    private final byte[][] records;
+    private final int[] lengths;
+    private boolean inRecord;
+    private int slot;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of records held by the reservoir
+     * @param delimiter  Byte terminating the records, which is not part of the records
+     * @param random     Source of randomness
+     */
+    public RecordReservoir(int sampleSize, byte delimiter, RandomSource random) {
+        super(sampleSize, random);
+        this.delimiter = delimiter;
+        this.records = new byte[sampleSize][];
+        this.lengths = new int[sampleSize];
+    }
+
+    /**
+     * Offers the remaining bytes of {@code buffer} to the reservoir, leaving the buffer at its limit. Direct buffers
+     * are scanned in place, so only the bytes of the sampled records are copied out of them.
+     *
+     * @param buffer Buffer containing the bytes to offer
+     * @throws IllegalArgumentException Thrown if a sampled record grows too large to fit in an array
+     */
+    public void offerAll(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            offerAll(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        int end = buffer.limit();
+        int i = buffer.position();
+        while (i < end) {
+            if (!inRecord) {
+                startRecord();
+            }
+            int recordEnd = i;
+            while (recordEnd < end && buffer.get(recordEnd) != delimiter) {
+                recordEnd++;
+            }
+            if (slot >= 0) {
+                int length = recordEnd - i;
+                byte[] record = grow(length);
+                buffer.position(i);
+                buffer.get(record, lengths[slot], length);
+                lengths[slot] += length;
+            }
+            if (recordEnd < end) {
+                inRecord = false;
+                recordEnd++;
+            }
+            i = recordEnd;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Offers {@code length} bytes of {@code values} starting at {@code offset} to the reservoir. Records may span
+     * several calls, the last record of the stream does not need to be terminated by a delimiter.
+     *
+     * @param values Buffer containing the bytes to offer
+     * @param offset Position of the first byte to offer
+     * @param length Number of bytes to offer
+     * @throws IllegalArgumentException Thrown if a sampled record grows too large to fit in an array
+     */
+    public void offerAll(byte[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (!inRecord) {
+                startRecord();
+            }
+            int recordEnd = i;
+            while (recordEnd < end && values[recordEnd] != delimiter) {
+                recordEnd++;
+            }
+            if (slot >= 0) {
+                append(values, i, recordEnd - i);
+            }
+            if (recordEnd < end) {
+                inRecord = false;
+                recordEnd++;
+            }
+            i = recordEnd;
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * records seen by both reservoirs. {@code other} is left untouched. Both reservoirs must have seen whole records,
+     * i.e. their input must have ended with a delimiter or be complete.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(RecordReservoir other) {
+        merge((AbstractReservoir) other);
+        inRecord = false;
+    }
+
+    /**
+     * Returns a copy of the records currently held by the reservoir
+     *
+     * @return Sampled records, without their delimiters
+     */
+    public List<byte[]> snapshot() {
+        List<byte[]> sample = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            sample.add(Arrays.copyOf(records[i], lengths[i]));
+        }
+        return sample;
+    }
+
+    /**
+     * Accounts for a new record starting with the next byte offered
+     */
+    private void startRecord() {
+        inRecord = true;
+        slot = nextSlot();
+        if (slot >= 0) {
+            lengths[slot] = 0;
+        }
+    }
+
+    /**
+     * Appends bytes to the record being sampled
+     *
+     * @param values Buffer containing the bytes to append
+     * @param offset Position of the first byte to append
+     * @param length Number of bytes to append
+     * @throws IllegalArgumentException Thrown if the record grows too large to fit in an array
+     */
+    private void append(byte[] values, int offset, int length) {
+        System.arraycopy(values, offset, grow(length), lengths[slot], length);
+        lengths[slot] += length;
+    }
+
+    /**
+     * Grows the buffer of the slot of the record being sampled if needed, so that {@code length} more bytes fit in it
+     *
+     * @param length Number of bytes to append
+     * @return Buffer of the slot
+     * @throws IllegalArgumentException Thrown if the record grows too large to fit in an array
+     */
+    private byte[] grow(int length) {
+        byte[] record = records[slot];
+        long required = (long) lengths[slot] + length;
+        if (required > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Record does not fit in an array");
+        }
+        if (record == null || record.length < required) {
+            long capacity = Math.max(INITIAL_RECORD_SIZE, record == null ? 0 : record.length);
+            while (capacity < required) {
+                capacity = Math.min(MAX_RECORD_SIZE, capacity * 2);
+            }
+            record = records[slot] = record == null ? new byte[(int) capacity] : Arrays.copyOf(record, (int) capacity);
+        }
+        return record;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        byte[] record = records[i];
+        records[i] = records[j];
+        records[j] = record;
+        int length = lengths[i];
+        lengths[i] = lengths[j];
+        lengths[j] = length;
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        RecordReservoir other = (RecordReservoir) source;
+        records[to] = Arrays.copyOf(other.records[from], other.lengths[from]);
+        lengths[to] = other.lengths[from];
+    }
+}
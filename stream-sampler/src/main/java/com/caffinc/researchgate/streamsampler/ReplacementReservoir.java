@@ -0,0 +1,103 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reservoir holding a uniform sample with replacement of the objects offered to it, see
+ * {@link AbstractReplacementReservoir}.
+ * <p>
+ * In skip-ahead mode, objects offered in bulk through arrays or {@link RandomAccess} lists are skipped by index
+ * arithmetic until the next object replacing a slot, so the skipped objects are never looked at.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class ReplacementReservoir<T> extends AbstractReplacementReservoir {
+    private final Object[] sample;
+
+    /**
+     * Initializes an empty reservoir in skip-ahead mode
+     *
+     * @param sampleSize Number of objects drawn with replacement
+     * @param random     Source of randomness
+     */
+    public ReplacementReservoir(int sampleSize, RandomSource random) {
+        this(sampleSize, random, true);
+    }
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Number of objects drawn with replacement
+     * @param random     Source of randomness
+     * @param skipAhead  {@code true} to skip the objects replacing no slot, {@code false} to draw for every object
+     */
+    public ReplacementReservoir(int sampleSize, RandomSource random, boolean skipAhead) {
+        super(sampleSize, random, skipAhead);
+        this.sample = new Object[sampleSize];
+    }
+
+    /**
+     * Offers a single object to the reservoir
+     *
+     * @param value Object to offer
+     */
+    public void offer(T value) {
+        for (int slot = nextSlot(); slot >= 0; slot = nextSlot()) {
+            sample[slot] = value;
+        }
+    }
+
+    /**
+     * Offers {@code length} objects of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Array containing the objects to offer
+     * @param offset Position of the first object to offer
+     * @param length Number of objects to offer
+     */
+    public void offerAll(T[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            offer(values[i++]);
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Offers all the objects of {@code values} to the reservoir, in iteration order
+     *
+     * @param values Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> values) {
+        if (values instanceof List && values instanceof RandomAccess) {
+            List<? extends T> list = (List<? extends T>) values;
+            int size = list.size();
+            int i = discard(size);
+            while (i < size) {
+                offer(list.get(i++));
+                i += discard(size - i);
+            }
+        } else {
+            for (T value : values) {
+                offer(value);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the objects currently held by the reservoir, in the order of their slots
+     *
+     * @return Sampled objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<T> values = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            values.add((T) sample[i]);
+        }
+        return values;
+    }
+}
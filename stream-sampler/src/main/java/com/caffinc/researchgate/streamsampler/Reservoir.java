@@ -0,0 +1,115 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reservoir holding a uniform sample of the objects offered to it.
+ * <p>
+ * Objects offered in bulk through arrays or {@link RandomAccess} lists are skipped by index arithmetic, so the skipped
+ * objects are never looked at. See {@link IntReservoir}, {@link LongReservoir}, {@link DoubleReservoir},
+ * {@link CharReservoir} and {@link ByteReservoir} for sampling primitive values without boxing them.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class Reservoir<T> extends AbstractReservoir {
+    private final Object[] sample;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of objects held by the reservoir
+     * @param random     Source of randomness
+     */
+    public Reservoir(int sampleSize, RandomSource random) {
+        super(sampleSize, random);
+        this.sample = new Object[sampleSize];
+    }
+
+    /**
+     * Offers a single object to the reservoir
+     *
+     * @param value Object to offer
+     */
+    public void offer(T value) {
+        int slot = nextSlot();
+        if (slot >= 0) {
+            sample[slot] = value;
+        }
+    }
+
+    /**
+     * Offers {@code length} objects of {@code values} starting at {@code offset} to the reservoir
+     *
+     * @param values Array containing the objects to offer
+     * @param offset Position of the first object to offer
+     * @param length Number of objects to offer
+     */
+    public void offerAll(T[] values, int offset, int length) {
+        int end = offset + length;
+        int i = offset + discard(length);
+        while (i < end) {
+            sample[nextSlot()] = values[i++];
+            i += discard(end - i);
+        }
+    }
+
+    /**
+     * Offers all the objects of {@code values} to the reservoir, in iteration order
+     *
+     * @param values Objects to offer
+     */
+    public void offerAll(Iterable<? extends T> values) {
+        if (values instanceof List && values instanceof RandomAccess) {
+            List<? extends T> list = (List<? extends T>) values;
+            int size = list.size();
+            int i = discard(size);
+            while (i < size) {
+                sample[nextSlot()] = list.get(i++);
+                i += discard(size - i);
+            }
+        } else {
+            for (T value : values) {
+                offer(value);
+            }
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir. Afterwards, this reservoir holds a uniform sample of the
+     * objects seen by both reservoirs and can keep on being offered objects. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    public void merge(Reservoir<? extends T> other) {
+        merge((AbstractReservoir) other);
+    }
+
+    /**
+     * Returns a copy of the objects currently held by the reservoir
+     *
+     * @return Sampled objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<T> values = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            values.add((T) sample[i]);
+        }
+        return values;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+        Object value = sample[i];
+        sample[i] = sample[j];
+        sample[j] = value;
+    }
+
+    @Override
+    protected void copy(AbstractReservoir source, int from, int to) {
+        sample[to] = ((Reservoir<?>) source).sample[from];
+    }
+}
@@ -0,0 +1,343 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary checkpoints of the primitive reservoirs, from which sampling continues exactly where it stopped.
+ * <p>
+ * A checkpoint holds the sampled values, the number of values seen, the pending skip and threshold of Algorithm L and
+ * the state of the generator, which must be a {@link SplitMix64} or a {@link Xoroshiro128PlusPlus}. A reservoir read
+ * back from a checkpoint and offered the values following the {@code count()} first values of the stream ends up with
+ * the same sample as the reservoir which was checkpointed. The layout, in big-endian order, is:
+ * <pre>
+ * int    magic ("RSCK")
+ * byte   version
+ * byte   type of reservoir
+ * int    sample size
+ * long   count
+ * long   pending skip
+ * double threshold
+ * byte   type of generator, followed by its two longs of state
+ * ...    min(sampleSize, count) values
+ * int    CRC32 of everything above
+ * </pre>
+ * Files are written to a temporary sibling first and atomically moved in place, so a crash while writing leaves the
+ * previous checkpoint intact.
+ *
+ * @author Sriram
+ * @see Checkpointer
+ */
+public final class ReservoirCheckpoint {
+    private static final int MAGIC = 0x5253434B;
+    private static final byte VERSION = 1;
+
+    private static final byte BYTE_RESERVOIR = 1;
+    private static final byte CHAR_RESERVOIR = 2;
+    private static final byte INT_RESERVOIR = 3;
+    private static final byte LONG_RESERVOIR = 4;
+    private static final byte DOUBLE_RESERVOIR = 5;
+
+    private static final byte SPLIT_MIX_64 = 1;
+    private static final byte XOROSHIRO_128_PLUS_PLUS = 2;
+
+    private ReservoirCheckpoint() {
+    }
+
+    /**
+     * Encodes the state of {@code reservoir} into a checkpoint. This only copies the sample, so it is cheap enough to
+     * be called from the thread offering the values.
+     *
+     * @param reservoir Byte, char, int, long or double reservoir to encode
+     * @return Checkpoint
+     */
+    public static byte[] encode(AbstractReservoir reservoir) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 8 * reservoir.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(typeOf(reservoir));
+            out.writeInt(reservoir.sampleSize());
+            out.writeLong(reservoir.count());
+            out.writeLong(reservoir.pendingSkip());
+            out.writeDouble(reservoir.threshold());
+            writeRandom(reservoir.random(), out);
+            writeSample(reservoir, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write to memory", e);
+        }
+        byte[] checkpoint = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(checkpoint, 0, checkpoint.length);
+        return ByteBuffer.allocate(checkpoint.length + 4).put(checkpoint).putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * Decodes a reservoir from a checkpoint
+     *
+     * @param checkpoint Checkpoint created by {@link #encode(AbstractReservoir)}
+     * @param type       Type of the checkpointed reservoir
+     * @param <R>        Type of the checkpointed reservoir
+     * @return Reservoir in the state it was checkpointed in, with its own generator
+     * @throws IOException thrown if the checkpoint is corrupt or holds another type of reservoir
+     */
+    public static <R extends AbstractReservoir> R decode(byte[] checkpoint, Class<R> type) throws IOException {
+        if (checkpoint.length < 4) {
+            throw new StreamCorruptedException("Checkpoint is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(checkpoint, 0, checkpoint.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(checkpoint, checkpoint.length - 4, 4).getInt()) {
+            throw new StreamCorruptedException("Checkpoint is corrupt");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint, 0, checkpoint.length - 4));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new StreamCorruptedException("Not a checkpoint of this version");
+        }
+        byte reservoirType = in.readByte();
+        int sampleSize = in.readInt();
+        long count = in.readLong();
+        long skip = in.readLong();
+        double threshold = in.readDouble();
+        byte randomType = in.readByte();
+        long state0 = in.readLong();
+        long state1 = in.readLong();
+        RandomSource random = newRandom(randomType, state0, state1);
+        AbstractReservoir reservoir = readSample(reservoirType, sampleSize, (int) Math.min(sampleSize, count), random, in);
+        if (!type.isInstance(reservoir)) {
+            throw new IOException("Checkpoint holds a " + reservoir.getClass().getSimpleName());
+        }
+        // Filling the slots and creating the reservoir drew random numbers, which are rewound here
+        restoreRandom(random, state0, state1);
+        reservoir.restore(count, skip, threshold);
+        return type.cast(reservoir);
+    }
+
+    /**
+     * Writes a checkpoint of {@code reservoir} to {@code path}, replacing the previous one atomically
+     *
+     * @param reservoir Byte, char, int, long or double reservoir to checkpoint
+     * @param path      File to write the checkpoint to
+     * @throws IOException thrown if the file cannot be written
+     */
+    public static void write(AbstractReservoir reservoir, Path path) throws IOException {
+        write(encode(reservoir), path);
+    }
+
+    /**
+     * Writes an encoded checkpoint to {@code path}, replacing the previous one atomically. The checkpoint is forced to
+     * the storage device before it replaces the previous one.
+     *
+     * @param checkpoint Checkpoint created by {@link #encode(AbstractReservoir)}
+     * @param path       File to write the checkpoint to
+     * @throws IOException thrown if the file cannot be written
+     */
+    public static void write(byte[] checkpoint, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a reservoir from the checkpoint at {@code path}
+     *
+     * @param path File holding the checkpoint
+     * @param type Type of the checkpointed reservoir
+     * @param <R>  Type of the checkpointed reservoir
+     * @return Reservoir in the state it was checkpointed in, with its own generator
+     * @throws IOException thrown if the file cannot be read, is corrupt or holds another type of reservoir
+     */
+    public static <R extends AbstractReservoir> R read(Path path, Class<R> type) throws IOException {
+        return decode(Files.readAllBytes(path), type);
+    }
+
+    /**
+     * Returns the type tag of a reservoir
+     *
+     * @param reservoir Reservoir to checkpoint
+     * @return Type tag
+     */
+    private static byte typeOf(AbstractReservoir reservoir) {
+        if (reservoir instanceof ByteReservoir) {
+            return BYTE_RESERVOIR;
+        } else if (reservoir instanceof CharReservoir) {
+            return CHAR_RESERVOIR;
+        } else if (reservoir instanceof IntReservoir) {
+            return INT_RESERVOIR;
+        } else if (reservoir instanceof LongReservoir) {
+            return LONG_RESERVOIR;
+        } else if (reservoir instanceof DoubleReservoir) {
+            return DOUBLE_RESERVOIR;
+        }
+        throw new IllegalArgumentException("Cannot checkpoint a " + reservoir.getClass().getSimpleName());
+    }
+
+    /**
+     * Writes the sampled values of a reservoir, in slot order
+     *
+     * @param reservoir Reservoir to checkpoint
+     * @param out       Output to write to
+     * @throws IOException thrown by {@code out}
+     */
+    private static void writeSample(AbstractReservoir reservoir, DataOutputStream out) throws IOException {
+        if (reservoir instanceof ByteReservoir) {
+            out.write(((ByteReservoir) reservoir).snapshot());
+        } else if (reservoir instanceof CharReservoir) {
+            for (char value : ((CharReservoir) reservoir).snapshot()) {
+                out.writeChar(value);
+            }
+        } else if (reservoir instanceof IntReservoir) {
+            for (int value : ((IntReservoir) reservoir).snapshot()) {
+                out.writeInt(value);
+            }
+        } else if (reservoir instanceof LongReservoir) {
+            for (long value : ((LongReservoir) reservoir).snapshot()) {
+                out.writeLong(value);
+            }
+        } else {
+            for (double value : ((DoubleReservoir) reservoir).snapshot()) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Creates a reservoir and fills its slots with the checkpointed values, in slot order
+     *
+     * @param type       Type tag of the reservoir
+     * @param sampleSize Sample size of the reservoir
+     * @param size       Number of checkpointed values
+     * @param random     Source of randomness of the reservoir
+     * @param in         Input to read the values from
+     * @return Reservoir holding the values, whose sampling state still has to be restored
+     * @throws IOException thrown if the type is unknown or {@code in} is truncated
+     */
+    private static AbstractReservoir readSample(byte type, int sampleSize, int size, RandomSource random,
+                                                DataInputStream in) throws IOException {
+        switch (type) {
+            case BYTE_RESERVOIR:
+                byte[] bytes = new byte[size];
+                in.readFully(bytes);
+                ByteReservoir byteReservoir = new ByteReservoir(sampleSize, random);
+                byteReservoir.offerAll(bytes);
+                return byteReservoir;
+            case CHAR_RESERVOIR:
+                char[] chars = new char[size];
+                for (int i = 0; i < size; i++) {
+                    chars[i] = in.readChar();
+                }
+                CharReservoir charReservoir = new CharReservoir(sampleSize, random);
+                charReservoir.offerAll(chars);
+                return charReservoir;
+            case INT_RESERVOIR:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++) {
+                    ints[i] = in.readInt();
+                }
+                IntReservoir intReservoir = new IntReservoir(sampleSize, random);
+                intReservoir.offerAll(ints);
+                return intReservoir;
+            case LONG_RESERVOIR:
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++) {
+                    longs[i] = in.readLong();
+                }
+                LongReservoir longReservoir = new LongReservoir(sampleSize, random);
+                longReservoir.offerAll(longs);
+                return longReservoir;
+            case DOUBLE_RESERVOIR:
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++) {
+                    doubles[i] = in.readDouble();
+                }
+                DoubleReservoir doubleReservoir = new DoubleReservoir(sampleSize, random);
+                doubleReservoir.offerAll(doubles);
+                return doubleReservoir;
+            default:
+                throw new StreamCorruptedException("Unknown reservoir type " + type);
+        }
+    }
+
+    /**
+     * Writes the type and state of a generator
+     *
+     * @param random Generator to checkpoint, possibly wrapped in a {@link CountingRandomSource}
+     * @param out    Output to write to
+     * @throws IOException thrown by {@code out}
+     */
+    private static void writeRandom(RandomSource random, DataOutputStream out) throws IOException {
+        if (random instanceof CountingRandomSource) {
+            random = ((CountingRandomSource) random).delegate();
+        }
+        long[] state;
+        if (random instanceof SplitMix64) {
+            out.writeByte(SPLIT_MIX_64);
+            state = ((SplitMix64) random).state();
+        } else if (random instanceof Xoroshiro128PlusPlus) {
+            out.writeByte(XOROSHIRO_128_PLUS_PLUS);
+            state = ((Xoroshiro128PlusPlus) random).state();
+        } else {
+            throw new IllegalArgumentException("Cannot checkpoint a " + random.getClass().getSimpleName());
+        }
+        out.writeLong(state[0]);
+        out.writeLong(state[1]);
+    }
+
+    /**
+     * Creates a generator in a checkpointed state
+     *
+     * @param type   Type tag of the generator
+     * @param state0 First long of state
+     * @param state1 Second long of state
+     * @return Generator
+     * @throws IOException thrown if the type is unknown
+     */
+    private static RandomSource newRandom(byte type, long state0, long state1) throws IOException {
+        switch (type) {
+            case SPLIT_MIX_64:
+                return new SplitMix64(state0, state1);
+            case XOROSHIRO_128_PLUS_PLUS:
+                return new Xoroshiro128PlusPlus(state0, state1);
+            default:
+                throw new StreamCorruptedException("Unknown generator type " + type);
+        }
+    }
+
+    /**
+     * Sets a generator created by {@link #newRandom(byte, long, long)} back to its checkpointed state
+     *
+     * @param random Generator to restore
+     * @param state0 First long of state
+     * @param state1 Second long of state
+     */
+    private static void restoreRandom(RandomSource random, long state0, long state1) {
+        if (random instanceof SplitMix64) {
+            ((SplitMix64) random).state(state0, state1);
+        } else {
+            ((Xoroshiro128PlusPlus) random).state(state0, state1);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Uniform samples of {@link java.util.stream.Stream}s and of their primitive variants, collected into reservoirs.
+ * <p>
+ * Every part of a parallel stream is sampled into its own reservoir, with its own generator split from the one passed,
+ * and the partial reservoirs are merged weighted by the number of elements they have seen, so the sample stays uniform
+ * over the whole stream while the parts are sampled on all cores. Sequential streams are sampled like the reservoirs
+ * are, so a seeded sample of a sequential stream is reproducible; the sample of a parallel stream depends on how the
+ * stream was split.
+ *
+ * @author Sriram
+ */
+public final class ReservoirCollectors {
+    /**
+     * Prevents instantiation, all the methods are static
+     */
+    private ReservoirCollectors() {
+    }
+
+    /**
+     * Returns a collector sampling the elements of a stream
+     *
+     * @param sampleSize Maximum number of elements in the sample
+     * @param seed       Seed of the generator
+     * @param <T>        Type of the sampled elements
+     * @return Collector of the sampled elements, in no particular order
+     */
+    public static <T> Collector<T, ?, List<T>> sample(int sampleSize, long seed) {
+        return sample(sampleSize, new Xoroshiro128PlusPlus(seed));
+    }
+
+    /**
+     * Returns a collector sampling the elements of a stream
+     *
+     * @param sampleSize Maximum number of elements in the sample
+     * @param random     Source of randomness, split for every partial reservoir
+     * @param <T>        Type of the sampled elements
+     * @return Collector of the sampled elements, in no particular order
+     */
+    public static <T> Collector<T, ?, List<T>> sample(int sampleSize, RandomSource random) {
+        Supplier<Reservoir<T>> supplier = supplier(sampleSize, random, Reservoir::new);
+        return Collector.of(supplier, Reservoir::offer, (left, right) -> {
+            left.merge(right);
+            return left;
+        }, Reservoir::snapshot, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Samples the values of an {@link IntStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param seed       Seed of the generator
+     * @return Sampled values, in no particular order
+     */
+    public static int[] sample(IntStream stream, int sampleSize, long seed) {
+        return sample(stream, sampleSize, new Xoroshiro128PlusPlus(seed));
+    }
+
+    /**
+     * Samples the values of an {@link IntStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param random     Source of randomness, split for every partial reservoir
+     * @return Sampled values, in no particular order
+     */
+    public static int[] sample(IntStream stream, int sampleSize, RandomSource random) {
+        return stream.collect(supplier(sampleSize, random, IntReservoir::new), IntReservoir::offer, IntReservoir::merge)
+                .snapshot();
+    }
+
+    /**
+     * Samples the values of a {@link LongStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param seed       Seed of the generator
+     * @return Sampled values, in no particular order
+     */
+    public static long[] sample(LongStream stream, int sampleSize, long seed) {
+        return sample(stream, sampleSize, new Xoroshiro128PlusPlus(seed));
+    }
+
+    /**
+     * Samples the values of a {@link LongStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param random     Source of randomness, split for every partial reservoir
+     * @return Sampled values, in no particular order
+     */
+    public static long[] sample(LongStream stream, int sampleSize, RandomSource random) {
+        return stream.collect(supplier(sampleSize, random, LongReservoir::new), LongReservoir::offer,
+                LongReservoir::merge).snapshot();
+    }
+
+    /**
+     * Samples the values of a {@link DoubleStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param seed       Seed of the generator
+     * @return Sampled values, in no particular order
+     */
+    public static double[] sample(DoubleStream stream, int sampleSize, long seed) {
+        return sample(stream, sampleSize, new Xoroshiro128PlusPlus(seed));
+    }
+
+    /**
+     * Samples the values of a {@link DoubleStream}
+     *
+     * @param stream     Stream to sample
+     * @param sampleSize Maximum number of values in the sample
+     * @param random     Source of randomness, split for every partial reservoir
+     * @return Sampled values, in no particular order
+     */
+    public static double[] sample(DoubleStream stream, int sampleSize, RandomSource random) {
+        return stream.collect(supplier(sampleSize, random, DoubleReservoir::new), DoubleReservoir::offer,
+                DoubleReservoir::merge).snapshot();
+    }
+
+    /**
+     * Returns a supplier of empty reservoirs, each with its own generator split from {@code random}. Suppliers are
+     * called from the threads of parallel streams, so the splits are synchronized on {@code random}.
+     *
+     * @param sampleSize Maximum number of elements held by the reservoirs
+     * @param random     Source of randomness
+     * @param factory    Constructor of the reservoirs
+     * @param <R>        Type of the reservoirs
+     * @return Supplier of reservoirs
+     */
+    private static <R extends AbstractReservoir> Supplier<R> supplier(int sampleSize, RandomSource random,
+                                                                      Factory<R> factory) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        return () -> {
+            RandomSource split;
+            synchronized (random) {
+                split = random.split();
+            }
+            return factory.create(sampleSize, split);
+        };
+    }
+
+    /**
+     * Constructor of reservoirs
+     *
+     * @param <R> Type of the reservoirs
+     */
+    private interface Factory<R extends AbstractReservoir> {
+        /**
+         * Creates an empty reservoir
+         *
+         * @param sampleSize Maximum number of elements held by the reservoir
+         * @param random     Source of randomness
+         * @return Reservoir
+         */
+        R create(int sampleSize, RandomSource random);
+    }
+}
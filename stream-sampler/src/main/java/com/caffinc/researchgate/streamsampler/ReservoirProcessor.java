@@ -0,0 +1,147 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * {@link Flow.Processor} holding a uniform sample of the items published to it, for sampling reactive streams without
+ * a blocking {@link java.io.InputStream} and a thread to read it.
+ * <p>
+ * Items are requested from the upstream publisher in batches: {@code batchSize} items are requested on subscription,
+ * and more are requested once half of them have arrived, so the publisher is never starved and the demand is never
+ * more than {@code batchSize}. The pending skip of Algorithm L carries over from one batch to the next, and skipped
+ * items are only counted, never stored or looked at. Nothing blocks in {@link #onNext(Object)}, so thousands of
+ * processors can share a small executor.
+ * <p>
+ * The sample is published downstream, to any number of subscribers, once the upstream publisher completes, and
+ * optionally every {@code publishInterval} items. Periodic samples are dropped for subscribers whose buffer is full,
+ * as a newer one follows anyway. The final sample is also available through {@link #result()}, so the processor can
+ * be used as a plain {@link Flow.Subscriber}.
+ *
+ * @param <T> Type of the sampled items
+ * @author Sriram
+ */
+public class ReservoirProcessor<T> extends SubmissionPublisher<List<T>> implements Flow.Processor<T, List<T>> {
+    private final Reservoir<T> reservoir;
+    private final int batchSize;
+    private final long publishInterval;
+    private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private long demand;
+    private long untilPublish;
+
+    /**
+     * Initializes a processor publishing the final sample only, on the common {@link ForkJoinPool}
+     *
+     * @param sampleSize Maximum number of items held by the sample
+     * @param random     Source of randomness
+     * @param batchSize  Number of items requested from the upstream publisher at a time
+     */
+    public ReservoirProcessor(int sampleSize, RandomSource random, int batchSize) {
+        this(sampleSize, random, batchSize, 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initializes a processor
+     *
+     * @param sampleSize      Maximum number of items held by the sample
+     * @param random          Source of randomness
+     * @param batchSize       Number of items requested from the upstream publisher at a time
+     * @param publishInterval Number of items between two samples published downstream, 0 to only publish the final
+     *                        sample
+     * @param executor        Executor delivering the samples to the downstream subscribers
+     */
+    public ReservoirProcessor(int sampleSize, RandomSource random, int batchSize, long publishInterval,
+                              Executor executor) {
+        super(executor, Flow.defaultBufferSize());
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (publishInterval < 0) {
+            throw new IllegalArgumentException("Publish interval must not be negative");
+        }
+        this.reservoir = new Reservoir<>(sampleSize, random);
+        this.batchSize = batchSize;
+        this.publishInterval = publishInterval;
+        this.untilPublish = publishInterval;
+    }
+
+    /**
+     * Sets the listener notified of the items stored and skipped
+     *
+     * @param listener Listener, {@link SamplingListener#NONE} to stop listening
+     */
+    public void listener(SamplingListener listener) {
+        reservoir.listener(listener);
+    }
+
+    /**
+     * Returns the final sample, which completes when the upstream publisher does, or exceptionally if it fails
+     *
+     * @return Future of the sampled items
+     */
+    public CompletableFuture<List<T>> result() {
+        return result;
+    }
+
+    /**
+     * Requests the first batch of items. A second subscription is cancelled, as a processor samples a single stream.
+     *
+     * @param subscription Subscription to the upstream publisher
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        demand = batchSize;
+        subscription.request(batchSize);
+    }
+
+    /**
+     * Offers an item to the sample, requesting the next batch once half of the current one has arrived
+     *
+     * @param item Item to offer
+     */
+    @Override
+    public void onNext(T item) {
+        reservoir.offer(item);
+        if (publishInterval > 0 && --untilPublish == 0) {
+            untilPublish = publishInterval;
+            offer(reservoir.snapshot(), null);
+        }
+        if (--demand <= batchSize >>> 1) {
+            subscription.request(batchSize - demand);
+            demand = batchSize;
+        }
+    }
+
+    /**
+     * Fails the final sample and the downstream subscribers
+     *
+     * @param throwable Failure of the upstream publisher
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+        closeExceptionally(throwable);
+    }
+
+    /**
+     * Publishes the final sample downstream and completes the downstream subscribers. Waits for room in the buffer of
+     * downstream subscribers which are still consuming periodic samples.
+     */
+    @Override
+    public void onComplete() {
+        List<T> sample = reservoir.snapshot();
+        submit(sample);
+        close();
+        result.complete(sample);
+    }
+}
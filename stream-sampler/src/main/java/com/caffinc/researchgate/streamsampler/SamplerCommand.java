@@ -0,0 +1,573 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Command line of the sampler: parses the options, samples stdin or the files passed and writes the sample to stdout.
+ * <p>
+ * Input is read through {@link java.nio.channels.FileChannel}s into a large direct buffer. Bytes and lines are sampled
+ * straight from that buffer, so skipped bytes and lines are never copied, while the other units are decoded or copied
+ * from it in bulk.
+ * With {@code --pipeline}, each input is read ahead on another thread through a {@link PipelinedInputStream}, so that
+ * slow pipes are read while the previous buffers are sampled.
+ * The sample is written to stdout as UTF-8 through a buffered stream rather than through the logger. If the process
+ * is interrupted, for instance with Ctrl+C while reading from the console, the sample of the input read so far is
+ * written by a shutdown hook.
+ *
+ * @author Sriram
+ */
+class SamplerCommand {
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int CHAR_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Unit of the input which is sampled
+     */
+    enum Unit {
+        CHAR, CODEPOINT, BYTE, LINE
+    }
+
+    /**
+     * Algorithm used to sample
+     */
+    enum Algorithm {
+        FAST, NAIVE
+    }
+
+    /**
+     * Format the sample is written in
+     */
+    enum Format {
+        RAW, LINES, JSON
+    }
+
+    private int sampleSize;
+    private Unit unit = Unit.CHAR;
+    private Algorithm algorithm = Algorithm.FAST;
+    private Format format = Format.RAW;
+    private Long seed;
+    private int pipeline;
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * Parses the command line arguments
+     *
+     * @param args Options, followed or preceded by the sample size and the files to sample
+     * @return Parsed command
+     * @throws IllegalArgumentException Thrown if the arguments are invalid
+     */
+    static SamplerCommand parse(String[] args) {
+        SamplerCommand command = new SamplerCommand();
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-") || arg.equals("-")) {
+                positional.add(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of option " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-u":
+                case "--unit":
+                    command.unit = parseEnum(Unit.class, value, arg);
+                    break;
+                case "-a":
+                case "--algorithm":
+                    command.algorithm = parseEnum(Algorithm.class, value, arg);
+                    break;
+                case "-f":
+                case "--format":
+                    command.format = parseEnum(Format.class, value, arg);
+                    break;
+                case "-s":
+                case "--seed":
+                    try {
+                        command.seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid seed: " + value);
+                    }
+                    break;
+                case "-p":
+                case "--pipeline":
+                    try {
+                        command.pipeline = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number of buffers: " + value);
+                    }
+                    if (command.pipeline < 0 || command.pipeline > 1 << 16) {
+                        throw new IllegalArgumentException("Number of buffers must be between 0 and 65536");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            throw new IllegalArgumentException("Too few or too many arguments passed");
+        }
+        try {
+            command.sampleSize = Integer.parseInt(positional.get(0));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sample size: " + positional.get(0));
+        }
+        if (command.sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        if (command.algorithm == Algorithm.NAIVE && command.unit != Unit.CHAR) {
+            throw new IllegalArgumentException("Naive sampling only supports the char unit");
+        }
+        for (String file : positional.subList(1, positional.size())) {
+            command.files.add(file.equals("-") ? null : Paths.get(file));
+        }
+        return command;
+    }
+
+    /**
+     * Samples the input and writes the sample to {@code stdout}
+     *
+     * @param stdin  Channel read when no file, or the file {@code -}, is passed
+     * @param stdout Stream the sample is written to, flushed but not closed
+     * @throws IOException Thrown if a file cannot be opened, or the input read or the output written
+     */
+    void run(ReadableByteChannel stdin, OutputStream stdout) throws IOException {
+        RandomSource random = seed == null ? new Xoroshiro128PlusPlus() : new Xoroshiro128PlusPlus(seed);
+        Sink sink = sink(random);
+        AtomicBoolean written = new AtomicBoolean();
+        Thread hook = new Thread(() -> {
+            if (written.compareAndSet(false, true)) {
+                try {
+                    sink.write(stdout, format);
+                    stdout.flush();
+                } catch (IOException e) {
+                    // Nothing can be reported while the JVM is shutting down
+                }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            if (files.isEmpty()) {
+                read(stdin, buffer, sink);
+            }
+            for (Path file : files) {
+                if (file == null) {
+                    read(stdin, buffer, sink);
+                } else {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        read(channel, buffer, sink);
+                    }
+                }
+            }
+            buffer.flip();
+            sink.finish(buffer);
+        } finally {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        }
+        if (written.compareAndSet(false, true)) {
+            sink.write(stdout, format);
+            stdout.flush();
+        }
+    }
+
+    /**
+     * Reads a channel into the sink, through a {@link PipelinedInputStream} reading it on another thread if the
+     * command has a pipeline
+     *
+     * @param channel Channel to read
+     * @param buffer  Read buffer, in write mode
+     * @param sink    Sink to offer the bytes to
+     * @throws IOException Thrown if the channel cannot be read
+     */
+    private void read(ReadableByteChannel channel, ByteBuffer buffer, Sink sink) throws IOException {
+        if (pipeline == 0) {
+            drain(channel, buffer, sink);
+            return;
+        }
+        try (PipelinedInputStream pipelined = new PipelinedInputStream(Channels.newInputStream(channel), pipeline,
+                READ_BUFFER_SIZE)) {
+            drain(pipelined, buffer, sink);
+        }
+    }
+
+    /**
+     * Reads a channel into the sink, leaving the bytes the sink did not consume, such as an incomplete character, at the
+     * start of the buffer
+     *
+     * @param channel Channel to read
+     * @param buffer  Read buffer, in write mode
+     * @param sink    Sink to offer the bytes to
+     * @throws IOException Thrown if the channel cannot be read
+     */
+    private static void drain(ReadableByteChannel channel, ByteBuffer buffer, Sink sink) throws IOException {
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            sink.offer(buffer);
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Creates the sink of the unit and algorithm of the command
+     *
+     * @param random Source of randomness
+     * @return Sink
+     */
+    private Sink sink(RandomSource random) {
+        switch (unit) {
+            case BYTE:
+                return new ByteSink(new ByteReservoir(sampleSize, random));
+            case CODEPOINT:
+                return new CodePointSink(new CodePointReservoir(sampleSize, random));
+            case LINE:
+                return new LineSink(new RecordReservoir(sampleSize, (byte) '\n', random));
+            default:
+                return algorithm == Algorithm.NAIVE ? new NaiveCharSink(sampleSize, random)
+                        : new CharSink(new CharReservoir(sampleSize, random));
+        }
+    }
+
+    /**
+     * Parses the value of an option naming an enum constant, case insensitively
+     *
+     * @param type   Enum of the option
+     * @param value  Value passed
+     * @param option Name of the option, for the error message
+     * @param <E>    Type of the enum
+     * @return Enum constant
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String option) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value of option " + option + ": " + value);
+        }
+    }
+
+    /**
+     * Receives the bytes of the input and writes the sample
+     */
+    private interface Sink {
+        /**
+         * Offers the bytes remaining in {@code buffer}, moving its position past the bytes consumed
+         *
+         * @param buffer Bytes read, in read mode
+         */
+        void offer(ByteBuffer buffer);
+
+        /**
+         * Offers the bytes left at the end of the input
+         *
+         * @param buffer Bytes left, in read mode
+         */
+        default void finish(ByteBuffer buffer) {
+            offer(buffer);
+        }
+
+        /**
+         * Writes the sample
+         *
+         * @param out    Stream to write to
+         * @param format Format of the sample
+         * @throws IOException Thrown if the sample cannot be written
+         */
+        void write(OutputStream out, Format format) throws IOException;
+    }
+
+    /**
+     * Samples bytes directly from the read buffer, skipping by position arithmetic
+     */
+    private static class ByteSink implements Sink {
+        private final ByteReservoir reservoir;
+
+        ByteSink(ByteReservoir reservoir) {
+            this.reservoir = reservoir;
+        }
+
+        @Override
+        public void offer(ByteBuffer buffer) {
+            int limit = buffer.limit();
+            int i = buffer.position() + (int) reservoir.skip(buffer.remaining());
+            while (i < limit) {
+                reservoir.offer(buffer.get(i++));
+                i += (int) reservoir.skip(limit - i);
+            }
+            buffer.position(limit);
+        }
+
+        @Override
+        public void write(OutputStream out, Format format) throws IOException {
+            byte[] sample = reservoir.snapshot();
+            if (format == Format.RAW) {
+                out.write(sample);
+                return;
+            }
+            List<String> values = new ArrayList<>(sample.length);
+            for (byte value : sample) {
+                values.add(Integer.toString(value & 0xFF));
+            }
+            writeValues(out, format, values, false);
+        }
+    }
+
+    /**
+     * Samples UTF-16 characters, decoding the input as UTF-8
+     */
+    private static class CharSink implements Sink {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        private final CharReservoir reservoir;
+
+        CharSink(CharReservoir reservoir) {
+            this.reservoir = reservoir;
+        }
+
+        CharSink() {
+            this.reservoir = null;
+        }
+
+        @Override
+        public void offer(ByteBuffer buffer) {
+            decode(buffer, false);
+        }
+
+        @Override
+        public void finish(ByteBuffer buffer) {
+            decode(buffer, true);
+            decoder.flush(chars);
+            drain();
+        }
+
+        /**
+         * Decodes the bytes of the buffer and offers the characters
+         *
+         * @param buffer     Bytes to decode
+         * @param endOfInput Whether no more bytes follow
+         */
+        private void decode(ByteBuffer buffer, boolean endOfInput) {
+            while (decoder.decode(buffer, chars, endOfInput).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+
+        /**
+         * Offers the decoded characters and clears the character buffer
+         */
+        private void drain() {
+            chars.flip();
+            offer(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+            chars.clear();
+        }
+
+        /**
+         * Offers decoded characters
+         *
+         * @param values Buffer containing the characters
+         * @param offset Position of the first character
+         * @param length Number of characters
+         */
+        void offer(char[] values, int offset, int length) {
+            reservoir.offerAll(values, offset, length);
+        }
+
+        /**
+         * Returns the sampled characters
+         *
+         * @return Sample
+         */
+        String sample() {
+            return new String(reservoir.snapshot());
+        }
+
+        @Override
+        public void write(OutputStream out, Format format) throws IOException {
+            String sample = sample();
+            if (format == Format.RAW) {
+                out.write((sample + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            List<String> values = new ArrayList<>(sample.length());
+            for (int i = 0; i < sample.length(); i++) {
+                values.add(String.valueOf(sample.charAt(i)));
+            }
+            writeValues(out, format, values, true);
+        }
+    }
+
+    /**
+     * Samples UTF-16 characters with Algorithm R, drawing a random number for every character
+     */
+    private static class NaiveCharSink extends CharSink {
+        private final char[] sample;
+        private final RandomSource random;
+        private long count;
+
+        NaiveCharSink(int sampleSize, RandomSource random) {
+            this.sample = new char[sampleSize];
+            this.random = random;
+        }
+
+        @Override
+        void offer(char[] values, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (count < sample.length) {
+                    sample[(int) count] = values[i];
+                } else {
+                    long randomPosition = random.nextLong(count + 1);
+                    if (randomPosition < sample.length) {
+                        sample[(int) randomPosition] = values[i];
+                    }
+                }
+                count++;
+            }
+        }
+
+        @Override
+        String sample() {
+            return new String(sample, 0, (int) Math.min(sample.length, count));
+        }
+    }
+
+    /**
+     * Samples code points, only decoding the sampled ones
+     */
+    private static class CodePointSink implements Sink {
+        private final CodePointReservoir reservoir;
+
+        CodePointSink(CodePointReservoir reservoir) {
+            this.reservoir = reservoir;
+        }
+
+        @Override
+        public void offer(ByteBuffer buffer) {
+            reservoir.offerAll(buffer);
+        }
+
+        @Override
+        public void write(OutputStream out, Format format) throws IOException {
+            int[] sample = reservoir.snapshot();
+            if (format == Format.RAW) {
+                out.write((new String(sample, 0, sample.length) + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            List<String> values = new ArrayList<>(sample.length);
+            for (int codePoint : sample) {
+                values.add(new String(Character.toChars(codePoint)));
+            }
+            writeValues(out, format, values, true);
+        }
+    }
+
+    /**
+     * Samples lines, only copying the sampled ones out of the read buffer
+     */
+    private static class LineSink implements Sink {
+        private final RecordReservoir reservoir;
+
+        LineSink(RecordReservoir reservoir) {
+            this.reservoir = reservoir;
+        }
+
+        @Override
+        public void offer(ByteBuffer buffer) {
+            reservoir.offerAll(buffer);
+        }
+
+        @Override
+        public void write(OutputStream out, Format format) throws IOException {
+            List<String> values = new ArrayList<>();
+            for (byte[] record : reservoir.snapshot()) {
+                int length = record.length;
+                if (length > 0 && record[length - 1] == '\r') {
+                    length--;
+                }
+                values.add(new String(record, 0, length, StandardCharsets.UTF_8));
+            }
+            writeValues(out, format == Format.RAW ? Format.LINES : format, values, true);
+        }
+    }
+
+    /**
+     * Writes sampled values one per line or as a JSON array
+     *
+     * @param out     Stream to write to
+     * @param format  {@link Format#LINES} or {@link Format#JSON}
+     * @param values  Sampled values
+     * @param strings Whether the values are written as JSON strings rather than numbers
+     * @throws IOException Thrown if the values cannot be written
+     */
+    private static void writeValues(OutputStream out, Format format, List<String> values, boolean strings)
+            throws IOException {
+        StringBuilder builder = new StringBuilder();
+        if (format == Format.JSON) {
+            builder.append('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                if (strings) {
+                    appendJsonString(builder, values.get(i));
+                } else {
+                    builder.append(values.get(i));
+                }
+            }
+            builder.append("]\n");
+        } else {
+            for (String value : values) {
+                builder.append(value).append('\n');
+            }
+        }
+        out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a JSON string literal
+     *
+     * @param builder Builder to append to
+     * @param value   String to quote
+     */
+    private static void appendJsonString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c == '\r') {
+                builder.append("\\r");
+            } else if (c == '\t') {
+                builder.append("\\t");
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                builder.append(c).append(value.charAt(++i));
+            } else if (c < 0x20 || Character.isSurrogate(c)) {
+                // Escape control characters, and lone surrogates which cannot be encoded as UTF-8
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+}
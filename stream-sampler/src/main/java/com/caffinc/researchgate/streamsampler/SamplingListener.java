@@ -0,0 +1,63 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * Receives the events of a sampler, for instance to maintain metrics such as {@link SamplingMetrics}.
+ * <p>
+ * Events are reported on the sampling thread, most of them once per element which is stored and once per run of
+ * skipped elements, so implementations must be cheap and must not block. Samplers which sample on several threads
+ * report from all of them concurrently, namely {@link StreamSampler#gzipSample(java.nio.file.Path, int,
+ * java.util.concurrent.ForkJoinPool)} for files with several members, and listeners passed to them must be
+ * thread-safe, like {@link SamplingMetrics} is. All methods do nothing by default, and the samplers use {@link #NONE}
+ * when no listener is set, which the JIT compiles away.
+ *
+ * @author Sriram
+ */
+public interface SamplingListener {
+    /**
+     * Listener ignoring all events
+     */
+    SamplingListener NONE = new SamplingListener() {
+    };
+
+    /**
+     * Called when bytes have been read from the input
+     *
+     * @param bytes Number of bytes read
+     */
+    default void onRead(long bytes) {
+    }
+
+    /**
+     * Called when an element is stored while the reservoir is being filled, before any element is skipped
+     */
+    default void onFill() {
+    }
+
+    /**
+     * Called when a skip is drawn, once the reservoir is full
+     *
+     * @param length Number of elements which will be skipped before the next replacement
+     */
+    default void onSkip(long length) {
+    }
+
+    /**
+     * Called when elements are skipped
+     *
+     * @param count Number of elements skipped
+     */
+    default void onSkipped(long count) {
+    }
+
+    /**
+     * Called when an element replaces another one in the reservoir
+     */
+    default void onReplacement() {
+    }
+
+    /**
+     * Called when a random number is drawn, see {@link CountingRandomSource}
+     */
+    default void onRandomDraw() {
+    }
+}
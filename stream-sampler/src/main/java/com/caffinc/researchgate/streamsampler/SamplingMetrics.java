@@ -0,0 +1,184 @@
+package com.caffinc.researchgate.streamsampler;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by samplers, which can be read from other threads and exposed through JMX.
+ * <p>
+ * The counters are {@link LongAdder}s, so samplers on several threads can share the same metrics without contending,
+ * and events which happen once per element only cost an uncontended increment. Pass the metrics to
+ * {@link StreamSampler#listener(SamplingListener)} or {@link AbstractReservoir#listener(SamplingListener)}, and
+ * optionally {@link #register(String)} them with the platform MBean server.
+ *
+ * @author Sriram
+ */
+public class SamplingMetrics implements SamplingListener, SamplingMetricsMBean {
+    private static final String DOMAIN = "com.caffinc.researchgate.streamsampler";
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder filled = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+    private final LongAdder randomDraws = new LongAdder();
+    private final LongAdder skips = new LongAdder();
+    private final LongAdder skipLengths = new LongAdder();
+    private final LongAdder[] skipHistogram = new LongAdder[Long.SIZE];
+    private volatile long startNanos;
+    private volatile long lastReadNanos;
+
+    /**
+     * Initializes metrics with all counters at 0
+     */
+    public SamplingMetrics() {
+        for (int i = 0; i < skipHistogram.length; i++) {
+            skipHistogram[i] = new LongAdder();
+        }
+        startNanos = lastReadNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under the type {@code SamplingMetrics}
+     *
+     * @param name Name distinguishing these metrics from the other registered ones
+     * @return Name the metrics are registered under
+     * @throws JMException Thrown if the name is invalid or already registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregisters the metrics registered under {@code name} from the platform MBean server, if any
+     *
+     * @param name Name the metrics were registered with
+     * @throws JMException Thrown if the name is invalid
+     */
+    public static void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @Override
+    public void onRead(long bytes) {
+        bytesRead.add(bytes);
+        lastReadNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onFill() {
+        filled.increment();
+    }
+
+    @Override
+    public void onSkip(long length) {
+        skips.increment();
+        skipLengths.add(length);
+        skipHistogram[Long.SIZE - Long.numberOfLeadingZeros(length)].increment();
+    }
+
+    @Override
+    public void onSkipped(long count) {
+        skipped.add(count);
+    }
+
+    @Override
+    public void onReplacement() {
+        replacements.increment();
+    }
+
+    @Override
+    public void onRandomDraw() {
+        randomDraws.increment();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getElements() {
+        return filled.sum() + replacements.sum() + skipped.sum();
+    }
+
+    @Override
+    public long getFilledElements() {
+        return filled.sum();
+    }
+
+    @Override
+    public long getReplacements() {
+        return replacements.sum();
+    }
+
+    @Override
+    public long getRandomDraws() {
+        return randomDraws.sum();
+    }
+
+    @Override
+    public long getSkips() {
+        return skips.sum();
+    }
+
+    @Override
+    public double getMeanSkipLength() {
+        long count = skips.sum();
+        return count == 0 ? 0 : skipLengths.sum() / (double) count;
+    }
+
+    @Override
+    public long[] getSkipLengthHistogram() {
+        long[] histogram = new long[skipHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = skipHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : bytesRead.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public long getMillisSinceLastRead() {
+        return (System.nanoTime() - lastReadNanos) / 1000000;
+    }
+
+    @Override
+    public void reset() {
+        bytesRead.reset();
+        filled.reset();
+        skipped.reset();
+        replacements.reset();
+        randomDraws.reset();
+        skips.reset();
+        skipLengths.reset();
+        for (LongAdder bucket : skipHistogram) {
+            bucket.reset();
+        }
+        startNanos = lastReadNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the JMX name of metrics
+     *
+     * @param name Name distinguishing the metrics
+     * @return Object name
+     * @throws JMException Thrown if the name is invalid
+     */
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=SamplingMetrics,name=" + ObjectName.quote(name));
+    }
+}
@@ -0,0 +1,85 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * JMX view of {@link SamplingMetrics}
+ *
+ * @author Sriram
+ */
+public interface SamplingMetricsMBean {
+    /**
+     * Returns the number of bytes read from the input
+     *
+     * @return Bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the number of elements consumed, stored or skipped
+     *
+     * @return Elements consumed
+     */
+    long getElements();
+
+    /**
+     * Returns the number of elements stored while the reservoirs were being filled, each of which costs as much as
+     * an element of naive sampling
+     *
+     * @return Elements stored while filling
+     */
+    long getFilledElements();
+
+    /**
+     * Returns the number of elements which replaced another one in a reservoir
+     *
+     * @return Replacements
+     */
+    long getReplacements();
+
+    /**
+     * Returns the number of random numbers drawn
+     *
+     * @return Random draws
+     */
+    long getRandomDraws();
+
+    /**
+     * Returns the number of skips drawn
+     *
+     * @return Skips drawn
+     */
+    long getSkips();
+
+    /**
+     * Returns the mean length of the skips drawn
+     *
+     * @return Mean skip length, 0 if no skip was drawn
+     */
+    double getMeanSkipLength();
+
+    /**
+     * Returns the distribution of the skip lengths: element {@code i} counts the skips of length in
+     * {@code [2^(i-1), 2^i)}, element 0 the skips of length 0
+     *
+     * @return Histogram of the skip lengths, with 64 buckets
+     */
+    long[] getSkipLengthHistogram();
+
+    /**
+     * Returns the mean number of bytes read per second since the metrics were created or reset
+     *
+     * @return Read throughput in bytes per second
+     */
+    double getBytesPerSecond();
+
+    /**
+     * Returns the time since bytes were last read, which grows when the sampler stalls on its input
+     *
+     * @return Milliseconds since the last read, or since the metrics were created or reset if nothing was read
+     */
+    long getMillisSinceLastRead();
+
+    /**
+     * Resets all the metrics to 0
+     */
+    void reset();
+}
@@ -0,0 +1,270 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reservoir holding a uniform sample, without replacement, of the objects offered to it within a sliding window of
+ * time, for instance the last 60 seconds.
+ * <p>
+ * Implements priority sampling (<a href="https://dl.acm.org/doi/10.5555/545381.545465">Babcock, Datar and Motwani,
+ * Sampling From a Moving Window Over Streaming Data</a>): every object gets a random priority and the sample is made of
+ * the {@code sampleSize} objects of the window with the highest priorities. An object which has {@code sampleSize}
+ * newer objects with higher priorities can never be sampled again, as those objects leave the window after it, so only
+ * the other objects are kept as candidates, O(k log(n/k)) of them in expectation for n objects in the window.
+ * <p>
+ * Objects are appended and expired in O(1), and the dominated candidates are pruned in bulk once the candidates have
+ * doubled since the last pruning, so offering an object takes amortized O(1) work. Timestamps are in any unit, as long
+ * as they never decrease.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ * @see CountWindowReservoir
+ */
+public class SlidingWindowReservoir<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int sampleSize;
+    private final long windowLength;
+    private final RandomSource random;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] priorities = new double[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    private int pruneSize;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize   Maximum number of objects held by the reservoir
+     * @param windowLength Length of the window, an object offered at time t is in the window until
+     *                     {@code t + windowLength} (exclusive)
+     * @param random       Source of randomness
+     */
+    public SlidingWindowReservoir(int sampleSize, long windowLength, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        if (windowLength <= 0) {
+            throw new IllegalArgumentException("Window length must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.windowLength = windowLength;
+        this.random = random;
+        this.pruneSize = Math.max(INITIAL_CAPACITY, 4 * sampleSize);
+    }
+
+    /**
+     * Returns the maximum number of objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the length of the window
+     *
+     * @return Window length
+     */
+    public long windowLength() {
+        return windowLength;
+    }
+
+    /**
+     * Offers an object to the reservoir
+     *
+     * @param value     Object to offer
+     * @param timestamp Time of the object, not lower than the time of the previous object
+     */
+    public void offer(T value, long timestamp) {
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamps must not decrease");
+        }
+        lastTimestamp = timestamp;
+        expire(timestamp);
+        if (size == values.length) {
+            grow();
+        }
+        int tail = index(size++);
+        timestamps[tail] = timestamp;
+        priorities[tail] = random.nextDouble();
+        values[tail] = value;
+        if (size >= pruneSize) {
+            prune();
+            pruneSize = Math.max(pruneSize, 2 * size);
+        }
+    }
+
+    /**
+     * Returns the sample of the objects in the window ending at {@code now}, i.e. offered after
+     * {@code now - windowLength}. Objects older than the window are dropped for good.
+     *
+     * @param now Current time, not lower than the time of the last object
+     * @return Sampled objects, at max {@code sampleSize} of them, from the oldest to the newest
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot(long now) {
+        if (now < lastTimestamp) {
+            throw new IllegalArgumentException("Timestamps must not decrease");
+        }
+        lastTimestamp = now;
+        expire(now);
+        int sampled = Math.min(sampleSize, size);
+        List<T> sample = new ArrayList<>(sampled);
+        if (sampled == 0) {
+            return sample;
+        }
+        // The k-th highest priority of the window decides which candidates are sampled
+        double[] window = new double[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = priorities[index(i)];
+        }
+        Arrays.sort(window);
+        double threshold = window[size - sampled];
+        for (int i = 0; i < size && sample.size() < sampled; i++) {
+            int slot = index(i);
+            if (priorities[slot] >= threshold) {
+                sample.add((T) values[slot]);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Returns the number of objects currently kept as candidates, for tests and monitoring
+     *
+     * @return Number of candidates
+     */
+    int candidates() {
+        return size;
+    }
+
+    /**
+     * Drops the candidates which left the window ending at {@code now}
+     *
+     * @param now Current time
+     */
+    private void expire(long now) {
+        long oldest = now - windowLength;
+        while (size > 0 && timestamps[head] <= oldest) {
+            values[head] = null;
+            head = (head + 1) % values.length;
+            size--;
+        }
+    }
+
+    /**
+     * Drops the candidates which have at least {@code sampleSize} newer candidates with higher priorities, scanning
+     * from the newest to the oldest with a min-heap of the highest priorities seen so far. Most candidates are lower
+     * than the heap minimum, so the scan is linear in practice.
+     */
+    private void prune() {
+        double[] heap = new double[sampleSize];
+        int heapSize = 0;
+        int kept = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = index(i);
+            double priority = priorities[slot];
+            if (heapSize < sampleSize) {
+                heapSize = push(heap, heapSize, priority);
+            } else if (priority > heap[0]) {
+                heap[0] = priority;
+                siftDown(heap, heapSize);
+            } else {
+                continue;
+            }
+            // Keep the candidate, compacting the kept ones towards the newest end
+            int target = index(size - 1 - kept++);
+            timestamps[target] = timestamps[slot];
+            priorities[target] = priority;
+            values[target] = values[slot];
+        }
+        for (int i = 0; i < size - kept; i++) {
+            values[index(i)] = null;
+        }
+        head = index(size - kept);
+        size = kept;
+    }
+
+    /**
+     * Doubles the capacity of the candidate buffers, moving the candidates to the beginning
+     */
+    private void grow() {
+        int capacity = values.length * 2;
+        long[] newTimestamps = new long[capacity];
+        double[] newPriorities = new double[capacity];
+        Object[] newValues = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = index(i);
+            newTimestamps[i] = timestamps[slot];
+            newPriorities[i] = priorities[slot];
+            newValues[i] = values[slot];
+        }
+        timestamps = newTimestamps;
+        priorities = newPriorities;
+        values = newValues;
+        head = 0;
+    }
+
+    /**
+     * Returns the slot of the {@code i}-th oldest candidate in the circular buffers
+     *
+     * @param i Position of the candidate from the oldest one
+     * @return Slot of the candidate
+     */
+    private int index(int i) {
+        int slot = head + i;
+        return slot < values.length ? slot : slot - values.length;
+    }
+
+    /**
+     * Adds a priority to a min-heap
+     *
+     * @param heap     Heap of priorities
+     * @param heapSize Size of the heap
+     * @param priority Priority to add
+     * @return New size of the heap
+     */
+    private static int push(double[] heap, int heapSize, double priority) {
+        int i = heapSize;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= priority) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = priority;
+        return heapSize + 1;
+    }
+
+    /**
+     * Restores the order of a min-heap after its minimum has increased
+     *
+     * @param heap     Heap of priorities
+     * @param heapSize Size of the heap
+     */
+    private static void siftDown(double[] heap, int heapSize) {
+        double priority = heap[0];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (priority <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = priority;
+    }
+}
@@ -0,0 +1,111 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SplitMix64 generator, the algorithm behind {@link java.util.SplittableRandom}
+ * (<a href="https://doi.org/10.1145/2714064.2660195">Fast Splittable Pseudorandom Number Generators</a>).
+ * <p>
+ * Produces the same sequence as a {@link java.util.SplittableRandom} created with the same seed, but implements
+ * {@link RandomSource} and is not synchronized, so that drawing a number costs an addition and a few multiplications.
+ *
+ * @author Sriram
+ */
+public class SplitMix64 implements RandomSource {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong SEEDS = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * Initializes a generator with a seed which is different for every generator created this way
+     */
+    public SplitMix64() {
+        this(nextSeed());
+    }
+
+    /**
+     * Initializes a generator with a seed for reproducibility
+     *
+     * @param seed Seed for the random state
+     */
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Initializes a generator with its full state
+     *
+     * @param seed  Seed for the random state
+     * @param gamma Odd increment of the seed
+     */
+    SplitMix64(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(seed += gamma);
+    }
+
+    @Override
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong(), mixGamma(seed += gamma));
+    }
+
+    /**
+     * Returns the full state of the generator, for checkpoints
+     *
+     * @return Seed and increment
+     */
+    long[] state() {
+        return new long[]{seed, gamma};
+    }
+
+    /**
+     * Restores the full state of the generator from a checkpoint
+     *
+     * @param seed  Seed for the random state
+     * @param gamma Odd increment of the seed
+     */
+    void state(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Returns a seed which is different for every call, for the generators which are not explicitly seeded
+     *
+     * @return Seed
+     */
+    static long nextSeed() {
+        return mix64(SEEDS.getAndAdd(2 * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Scrambles the bits of a 64 bit value (variant 13 of Stafford's MurmurHash3 finalizer)
+     *
+     * @param z Value to scramble
+     * @return Scrambled value
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Derives the odd increment of a split generator, avoiding increments with too few bit transitions
+     *
+     * @param z Value to derive the increment from
+     * @return Odd increment
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
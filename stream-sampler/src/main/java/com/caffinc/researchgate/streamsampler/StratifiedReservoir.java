@@ -0,0 +1,366 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reservoirs holding a uniform sample of the objects offered for every key, for instance every tenant or endpoint, of
+ * a single mixed stream, within a global memory budget.
+ * <p>
+ * The keys are mapped to their reservoirs by a primitive open-addressing hash map, and the reservoirs are stored in
+ * flat arrays, so a key costs no object of its own. Every reservoir samples with Li's Algorithm L, whose threshold and
+ * pending skip are kept in the arrays too, so most offers only decrement the skip of their key. When the budget is
+ * exhausted, the key to evict is the least recently used or the least frequently used one among a few random keys,
+ * which keeps evictions O(1) and approximates the exact policies closely.
+ * <p>
+ * The memory budget and {@link #footprint()} only account for the arrays of this class, not for the sampled objects
+ * themselves, and assume 8 bytes per reference, which overestimates the footprint on JVMs using compressed references.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class StratifiedReservoir<T> {
+    /**
+     * Policy deciding which key is evicted when the memory budget is exhausted
+     */
+    public enum Eviction {
+        /**
+         * Evicts the key which was offered an object the longest time ago
+         */
+        LEAST_RECENTLY_USED,
+        /**
+         * Evicts the key which was offered the fewest objects
+         */
+        LEAST_FREQUENTLY_USED
+    }
+
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 8;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EVICTION_SAMPLES = 8;
+    private static final int MAX_KEYS = 1 << 28;
+    // Headers and alignment of the 8 arrays
+    private static final int FIXED_BYTES = 8 * (ARRAY_HEADER_BYTES + 8);
+
+    private final int sampleSize;
+    private final int maxKeys;
+    private final Eviction eviction;
+    private final RandomSource random;
+
+    // Hash table from keys to slots, stored as slot + 1 so that 0 marks an empty bucket
+    private long[] tableKeys;
+    private int[] tableSlots;
+
+    // State of the reservoir of every slot
+    private long[] keys;
+    private long[] counts;
+    private long[] skips;
+    private double[] thresholds;
+    private long[] lastUsed;
+    private Object[] values;
+
+    private int used;
+    private long tick;
+    private long evictions;
+
+    /**
+     * Initializes an empty sampler
+     *
+     * @param sampleSize   Maximum number of objects held for every key
+     * @param memoryBudget Maximum number of bytes used by the sampler, which bounds the number of keys held at once
+     * @param eviction     Policy deciding which key is evicted when the budget is exhausted
+     * @param random       Source of randomness
+     */
+    public StratifiedReservoir(int sampleSize, long memoryBudget, Eviction eviction, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        long keysInBudget = (memoryBudget - FIXED_BYTES) / bytesPerKey(sampleSize);
+        if (keysInBudget < 1) {
+            throw new IllegalArgumentException("Memory budget is too small for a single key");
+        }
+        this.sampleSize = sampleSize;
+        this.maxKeys = (int) Math.min(keysInBudget, Math.min(MAX_KEYS, (Integer.MAX_VALUE - 8) / sampleSize));
+        this.eviction = eviction;
+        this.random = random;
+        allocate(Math.min(INITIAL_CAPACITY, maxKeys));
+    }
+
+    /**
+     * Returns the maximum number of objects held for every key
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the maximum number of keys held at once within the memory budget
+     *
+     * @return Maximum number of keys
+     */
+    public int maxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * Returns the number of keys currently held
+     *
+     * @return Number of keys
+     */
+    public int size() {
+        return used;
+    }
+
+    /**
+     * Returns the number of keys evicted so far
+     *
+     * @return Number of evictions
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the keys currently held
+     *
+     * @return Keys, in no particular order
+     */
+    public long[] keys() {
+        return Arrays.copyOf(keys, used);
+    }
+
+    /**
+     * Returns the number of objects offered for {@code key} since it was last added
+     *
+     * @param key Key of the objects
+     * @return Number of objects seen for the key, 0 if the key is not held
+     */
+    public long count(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Offers an object for {@code key}, adding the key if it is not held yet, which may evict another key
+     *
+     * @param key   Key of the object
+     * @param value Object to offer
+     */
+    public void offer(long key, T value) {
+        int slot = find(key);
+        if (slot < 0) {
+            slot = add(key);
+        }
+        lastUsed[slot] = ++tick;
+        long count = counts[slot]++;
+        int base = slot * sampleSize;
+        if (count < sampleSize) {
+            values[base + (int) count] = value;
+            if (count + 1 == sampleSize) {
+                double threshold = AlgorithmL.initialThreshold(sampleSize, random);
+                skips[slot] = AlgorithmL.skip(threshold, random);
+                thresholds[slot] = AlgorithmL.nextThreshold(threshold, sampleSize, random);
+            }
+        } else if (skips[slot] > 0) {
+            skips[slot]--;
+        } else {
+            values[base + random.nextInt(sampleSize)] = value;
+            skips[slot] = AlgorithmL.skip(thresholds[slot], random);
+            thresholds[slot] = AlgorithmL.nextThreshold(thresholds[slot], sampleSize, random);
+        }
+    }
+
+    /**
+     * Returns a copy of the objects currently held for {@code key}
+     *
+     * @param key Key of the objects
+     * @return Sampled objects, empty if the key is not held
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return new ArrayList<>();
+        }
+        int size = (int) Math.min(sampleSize, counts[slot]);
+        List<T> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add((T) values[slot * sampleSize + i]);
+        }
+        return sample;
+    }
+
+    /**
+     * Returns the number of bytes currently used by the arrays of the sampler, which never exceeds the memory budget
+     *
+     * @return Heap footprint in bytes
+     */
+    public long footprint() {
+        return arrayBytes(tableKeys.length, Long.BYTES) + arrayBytes(tableSlots.length, Integer.BYTES)
+                + arrayBytes(keys.length, Long.BYTES) + arrayBytes(counts.length, Long.BYTES)
+                + arrayBytes(skips.length, Long.BYTES) + arrayBytes(thresholds.length, Double.BYTES)
+                + arrayBytes(lastUsed.length, Long.BYTES) + arrayBytes(values.length, REFERENCE_BYTES);
+    }
+
+    /**
+     * Returns the number of bytes used for every key in the worst case: the references to the sampled objects, the
+     * state of the reservoir and up to four buckets of the hash table, which is kept between a quarter and half full
+     *
+     * @param sampleSize Maximum number of objects held for every key
+     * @return Bytes per key
+     */
+    public static long bytesPerKey(int sampleSize) {
+        return (long) sampleSize * REFERENCE_BYTES + 5 * Long.BYTES + 4 * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Finds the slot of a key
+     *
+     * @param key Key to find
+     * @return Slot of the key, or -1 if it is not held
+     */
+    private int find(long key) {
+        int mask = tableKeys.length - 1;
+        for (int bucket = bucket(key, mask); ; bucket = (bucket + 1) & mask) {
+            int slot = tableSlots[bucket];
+            if (slot == 0) {
+                return -1;
+            }
+            if (tableKeys[bucket] == key) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a key, in a new slot while the budget allows it, in the slot of an evicted key otherwise
+     *
+     * @param key Key to add
+     * @return Slot of the key
+     */
+    private int add(long key) {
+        int slot;
+        if (used < maxKeys) {
+            if (used == keys.length) {
+                allocate((int) Math.min(2L * keys.length, maxKeys));
+            }
+            slot = used++;
+        } else {
+            slot = victim();
+            remove(keys[slot]);
+            Arrays.fill(values, slot * sampleSize, (slot + 1) * sampleSize, null);
+            evictions++;
+        }
+        keys[slot] = key;
+        counts[slot] = 0;
+        skips[slot] = 0;
+        insert(key, slot);
+        return slot;
+    }
+
+    /**
+     * Picks the slot to evict among a few random slots, or among all of them if there are few
+     *
+     * @return Slot to evict
+     */
+    private int victim() {
+        int best = -1;
+        long bestScore = Long.MAX_VALUE;
+        int samples = Math.min(EVICTION_SAMPLES, used);
+        for (int i = 0; i < samples; i++) {
+            int slot = used <= EVICTION_SAMPLES ? i : random.nextInt(used);
+            long score = eviction == Eviction.LEAST_RECENTLY_USED ? lastUsed[slot] : counts[slot];
+            if (score < bestScore) {
+                bestScore = score;
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Inserts a key into the hash table
+     *
+     * @param key  Key to insert, not yet in the table
+     * @param slot Slot of the key
+     */
+    private void insert(long key, int slot) {
+        int mask = tableKeys.length - 1;
+        int bucket = bucket(key, mask);
+        while (tableSlots[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        tableKeys[bucket] = key;
+        tableSlots[bucket] = slot + 1;
+    }
+
+    /**
+     * Removes a key from the hash table, shifting the following keys of its probe sequence back so that no tombstone
+     * is needed
+     *
+     * @param key Key to remove, which is in the table
+     */
+    private void remove(long key) {
+        int mask = tableKeys.length - 1;
+        int bucket = bucket(key, mask);
+        while (tableKeys[bucket] != key || tableSlots[bucket] == 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; tableSlots[next] != 0; next = (next + 1) & mask) {
+            int home = bucket(tableKeys[next], mask);
+            // Move the key into the hole unless its home bucket lies cyclically within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                tableKeys[hole] = tableKeys[next];
+                tableSlots[hole] = tableSlots[next];
+                hole = next;
+            }
+        }
+        tableSlots[hole] = 0;
+    }
+
+    /**
+     * Grows the arrays to hold {@code capacity} keys, rehashing the table which is kept at most half full
+     *
+     * @param capacity Number of keys to hold
+     */
+    private void allocate(int capacity) {
+        keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+        counts = counts == null ? new long[capacity] : Arrays.copyOf(counts, capacity);
+        skips = skips == null ? new long[capacity] : Arrays.copyOf(skips, capacity);
+        thresholds = thresholds == null ? new double[capacity] : Arrays.copyOf(thresholds, capacity);
+        lastUsed = lastUsed == null ? new long[capacity] : Arrays.copyOf(lastUsed, capacity);
+        values = values == null ? new Object[capacity * sampleSize] : Arrays.copyOf(values, capacity * sampleSize);
+        int buckets = Integer.highestOneBit(Math.max(1, capacity - 1)) << 2;
+        tableKeys = new long[buckets];
+        tableSlots = new int[buckets];
+        for (int slot = 0; slot < used; slot++) {
+            insert(keys[slot], slot);
+        }
+    }
+
+    /**
+     * Returns the home bucket of a key
+     *
+     * @param key  Key to hash
+     * @param mask Number of buckets minus one
+     * @return Bucket
+     */
+    private static int bucket(long key, int mask) {
+        return (int) SplitMix64.mix64(key) & mask;
+    }
+
+    /**
+     * Returns the number of bytes used by an array
+     *
+     * @param length      Length of the array
+     * @param elementSize Size of an element
+     * @return Bytes, rounded up to 8
+     */
+    private static long arrayBytes(int length, int elementSize) {
+        return (ARRAY_HEADER_BYTES + (long) length * elementSize + 7) & ~7L;
+    }
+}
@@ -3,11 +3,35 @@ package com.caffinc.researchgate.streamsampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.Random;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 /**
  * <h1>StreamSampler</h1>
@@ -19,14 +43,19 @@ import java.util.Random;
  */
 public class StreamSampler {
     private static final Logger LOG = LoggerFactory.getLogger(StreamSampler.class);
+    private static final int BYTE_BUFFER_SIZE = 1 << 16;
+    private static final int PAGE_SIZE = 1 << 12;
+    private static final long MIN_SPLIT_SIZE = 1 << 20;
+    private static final long MAX_SPLITS = 1 << 10;
 
-    private Random random;
+    private RandomSource random;
+    private SamplingListener listener = SamplingListener.NONE;
 
     /**
      * Default constructor which initializes a random stream sampler
      */
     public StreamSampler() {
-        this.random = new Random();
+        this(new Xoroshiro128PlusPlus());
     }
 
     /**
@@ -35,30 +64,58 @@ public class StreamSampler {
      * @param seed Seed for the random state
      */
     public StreamSampler(int seed) {
-        this.random = new Random(seed);
+        this(new Xoroshiro128PlusPlus(seed));
     }
 
     /**
-     * Main method executed when this application is started from the commandline.
-     * Utilizes a {@link Runtime#addShutdownHook(Thread)} to monitor process shutdown to print the sample to the console.
+     * Initializes a stream sampler drawing its random numbers from the given generator, for instance a
+     * {@link SplitMix64} or a {@link Xoroshiro128PlusPlus}
      *
-     * @param args Command line arguments specifying the streamSize
-     * @throws IOException Thrown by the underlying {@link InputStream}
+     * @param random Source of randomness, which should not be shared with other threads
+     */
+    public StreamSampler(RandomSource random) {
+        this.random = random;
+    }
+
+    /**
+     * Sets the listener notified of the bytes read, of the elements stored and skipped and of the random numbers drawn
+     * by the sampling methods called afterwards, for instance {@link SamplingMetrics}. The random numbers drawn while
+     * resuming from a checkpoint and by {@link StreamSampler#parallelFileSample(Path, int, ForkJoinPool)} are not
+     * reported, and neither are the elements of the samples which do not use a reservoir of fixed size.
+     * <p>
+     * Events are reported on the calling thread, except by {@link StreamSampler#gzipSample(Path, int, ForkJoinPool)}
+     * for files with several members, which reports the elements and random numbers of every range from the worker
+     * of the pool sampling it, concurrently with the other ranges, so the listener must then be thread-safe like
+     * {@link SamplingMetrics}. Its elements include those decompressed from ranges which are discarded because they
+     * started at bytes which only looked like a member header.
+     *
+     * @param listener Listener, {@link SamplingListener#NONE} to stop listening
+     */
+    public void listener(SamplingListener listener) {
+        this.listener = listener;
+        RandomSource source = random instanceof CountingRandomSource ? ((CountingRandomSource) random).delegate() : random;
+        this.random = listener == SamplingListener.NONE ? source : new CountingRandomSource(source, listener);
+    }
+
+    /**
+     * Main method executed when this application is started from the commandline. Samples stdin, or the files passed,
+     * and writes the sample to stdout, see {@link SamplerCommand}. Utilizes a {@link Runtime#addShutdownHook(Thread)}
+     * to monitor process shutdown to print the sample to the console.
+     *
+     * @param args Command line arguments specifying the options, the sampleSize and the files to sample
+     * @throws IOException Thrown if a file cannot be opened, or the input read or the output written
      */
     public static void main(String[] args) throws IOException {
+        SamplerCommand command;
         try {
-            if (args.length != 1) {
-                throw new IllegalArgumentException("Too few or too many arguments passed");
-            }
-            int sampleSize = Integer.parseInt(args[0]);
-            final char[] sample = new char[sampleSize];
-            // Register a ShutdownHook to print the final sample
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> LOG.info(new String(sample))));
-            new StreamSampler().fastSample(System.in, sample);
+            command = SamplerCommand.parse(args);
         } catch (IllegalArgumentException e) {
             LOG.error("Error: {}", e.getLocalizedMessage());
             LOG.error(getUsageMessage());
+            return;
         }
+        OutputStream stdout = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BYTE_BUFFER_SIZE);
+        command.run(new FileInputStream(FileDescriptor.in).getChannel(), stdout);
     }
 
     /**
@@ -96,16 +153,20 @@ public class StreamSampler {
         long count = 0;
         int length;
         char[] buffer = new char[1000];
-        BufferedReader br = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
         while ((length = br.read(buffer)) > 0) {
             for (int i = 0; i < length; i++) {
                 char character = buffer[i];
                 if (count < sampleSize) {
                     sample[(int) count] = character;
+                    listener.onFill();
                 } else {
-                    long randomPosition = Math.abs(random.nextLong() % (count + 1));
+                    long randomPosition = random.nextLong(count + 1);
                     if (randomPosition < sampleSize) {
                         sample[(int) randomPosition] = character;
+                        listener.onReplacement();
+                    } else {
+                        listener.onSkipped(1);
                     }
                 }
                 count++;
@@ -115,10 +176,12 @@ public class StreamSampler {
     }
 
     /**
-     * Performs a Fast Approximate Reservoir Sampling of the {@code stream}. Speed improvements are noticeable when
-     * the input is several orders of magnitude larger than the {@code sampleSize}.
+     * Performs a Fast Reservoir Sampling of the {@code stream}. Speed improvements are noticeable when the input is
+     * several orders of magnitude larger than the {@code sampleSize}.
      * <p>
-     * Based on <a href="http://erikerlandson.github.io/blog/2015/11/20/very-fast-reservoir-sampling/">Erik Erlandson's blog</a>.
+     * Uses Li's Algorithm L, which computes the number of characters to skip between two replacements instead of
+     * drawing a random number for every character. The sample is exactly uniform, like the one of
+     * {@link StreamSampler#sample(InputStream, int)}.
      *
      * @param stream     Stream to read data from
      * @param sampleSize Size to sample from the stream
@@ -126,78 +189,794 @@ public class StreamSampler {
      * @throws IOException Thrown by the passed {@link InputStream}'s read method
      */
     public String fastSample(InputStream stream, int sampleSize) throws IOException {
-        if (sampleSize <= 0) {
-            throw new IllegalArgumentException("Sample size must be positive");
+        CharReservoir reservoir = listen(new CharReservoir(sampleSize, random));
+        fastSample(stream, reservoir);
+        return new String(reservoir.snapshot());
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the {@code stream} like {@link StreamSampler#fastSample(InputStream, int)},
+     * reading the stream ahead on a dedicated thread through a {@link PipelinedInputStream}. Reading then overlaps with
+     * decoding and sampling, instead of each waiting for the other, which samples slow pipes at close to the speed
+     * they deliver data at. The sample is the same as the one of {@link StreamSampler#fastSample(InputStream, int)}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size to sample from the stream
+     * @return Sampled String containing at max {@code sampleSize} characters
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public String pipelinedSample(InputStream stream, int sampleSize) throws IOException {
+        CharReservoir reservoir = listen(new CharReservoir(sampleSize, random));
+        try (PipelinedInputStream pipelined = new PipelinedInputStream(stream)) {
+            fastSample(pipelined, reservoir);
         }
-        char[] sample = new char[sampleSize];
-        long count = fastSample(stream, sample);
-        return new String(sample, 0, (int) Math.min(sampleSize, count));
+        return new String(reservoir.snapshot());
     }
 
+    /**
+     * Draws {@code samples} independent Fast Reservoir Samplings of the {@code stream} in a single pass, for instance to
+     * bootstrap confidence intervals, see {@link MultiCharReservoir}. The stream is decoded once, and characters which
+     * no sample accepts only cost a comparison. Sample {@code r} is the one
+     * {@link StreamSampler#fastSample(InputStream, int)} would draw with the {@code r}-th generator split from the
+     * generator of this sampler, so the samples are reproducible from a seed.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size of each sample
+     * @param samples    Number of samples
+     * @return Sampled Strings, each containing at max {@code sampleSize} characters
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public List<String> multiSample(InputStream stream, int sampleSize, int samples) throws IOException {
+        MultiCharReservoir reservoir = new MultiCharReservoir(sampleSize, samples, random);
+        int length;
+        char[] buffer = new char[1000];
+        BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
+        while ((length = br.read(buffer)) > 0) {
+            reservoir.offerAll(buffer, 0, length);
+        }
+        List<String> sampled = new ArrayList<>(samples);
+        for (int r = 0; r < samples; r++) {
+            sampled.add(new String(reservoir.snapshot(r)));
+        }
+        return sampled;
+    }
 
     /**
-     * Performs a Fast Approximate Reservoir Sampling of the {@code stream}. Speed improvements are noticeable when
-     * the input is several orders of magnitude larger than the {@code sampleSize}.
+     * Draws {@code sampleSize} characters of the {@code stream} uniformly with replacement, as bootstrap estimators
+     * need, so a character may be sampled several times and the sample always has {@code sampleSize} characters unless
+     * the stream is empty. Characters which replace no slot are skipped ahead, see {@link CharReplacementReservoir}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Number of characters to draw
+     * @return Sampled String containing {@code sampleSize} characters, or none for an empty stream
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public String replacementSample(InputStream stream, int sampleSize) throws IOException {
+        CharReplacementReservoir reservoir = new CharReplacementReservoir(sampleSize, random);
+        int length;
+        char[] buffer = new char[1000];
+        BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
+        while ((length = br.read(buffer)) > 0) {
+            reservoir.offerAll(buffer, 0, length);
+        }
+        return new String(reservoir.snapshot());
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the Unicode code points of a UTF-8 {@code stream}. Unlike
+     * {@link StreamSampler#fastSample(InputStream, int)}, which samples UTF-16 characters, supplementary characters such
+     * as emoji are never split into lone surrogates. The bytes are not decoded, the code points are counted by their
+     * lead bytes and only the sampled ones are decoded, see {@link CodePointReservoir}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Number of code points to sample from the stream
+     * @return Sampled String containing at max {@code sampleSize} code points
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public String codePointSample(InputStream stream, int sampleSize) throws IOException {
+        CodePointReservoir reservoir = listen(new CodePointReservoir(sampleSize, random));
+        int length;
+        byte[] buffer = new byte[BYTE_BUFFER_SIZE];
+        while ((length = stream.read(buffer)) > 0) {
+            listener.onRead(length);
+            reservoir.offerAll(buffer, 0, length);
+        }
+        int[] codePoints = reservoir.snapshot();
+        return new String(codePoints, 0, codePoints.length);
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the {@code stream} into the {@code reservoir}, which uses Li's Algorithm L.
+     * Skipped characters are never looked at, the skip is applied by moving the offset into the read buffer.
      * <p>
-     * Based on <a href="http://erikerlandson.github.io/blog/2015/11/20/very-fast-reservoir-sampling/">Erik Erlandson's blog</a>.
+     * Note: The {@code reservoir} is passed in, rather than returned, to allow for Ctrl+C behavior
      *
-     * @param stream Stream to read data from
-     * @param sample Character buffer to hold the sample from the stream
-     * @return Number of characters read from the stream
+     * @param stream    Stream to read data from
+     * @param reservoir Reservoir to hold the sample from the stream
      * @throws IOException Thrown by the passed {@link InputStream}'s read method
      */
-    private long fastSample(InputStream stream, char[] sample) throws IOException {
-        int sampleSize = sample.length;
-        int threshold = 4 * sampleSize;
-        long skip = -1;
-        long count = 0;
+    private void fastSample(InputStream stream, CharReservoir reservoir) throws IOException {
         int length;
         char[] buffer = new char[1000];
-        BufferedReader br = new BufferedReader(new InputStreamReader(stream));
+        BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
         while ((length = br.read(buffer)) > 0) {
-            for (int i = 0; i < length; i++) {
-                char character = buffer[i];
-                if (count < sampleSize) {
-                    sample[(int) count] = character;
-                } else {
-                    if (count < threshold) {
-                        // Up to a Threshold, do the naive way
-                        long randomPosition = Math.abs(random.nextLong() % (count + 1));
-                        if (randomPosition < sampleSize) {
-                            sample[(int) randomPosition] = character;
-                        }
-                    } else {
-                        // After the Threshold, instead of finding the probability of the character going into the sample,
-                        // compute the number of characters to skip before picking one and putting it in the sample
-                        if (skip == -1) {
-                            double probability = sampleSize / (double) count;
-                            double rf = random.nextDouble();
-                            skip = ((Double) Math.floor(Math.log(rf) / Math.log(1 - probability))).intValue();
-                        } else if (skip == 0) {
-                            int randomPosition = random.nextInt(sampleSize);
-                            sample[randomPosition] = character;
-                            skip = -1;
-                        }
+            reservoir.offerAll(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the {@code stream} like {@link StreamSampler#fastSample(InputStream, int)},
+     * checkpointing the reservoir to {@code checkpoint} every {@code intervalMillis} milliseconds in the background and
+     * once more, synchronously, at the end of the stream.
+     * <p>
+     * If {@code checkpoint} already exists, sampling resumes from it, with the random state it was checkpointed with,
+     * and {@code stream} must continue right after the characters the checkpoint has seen (see
+     * {@link CharReservoir#count()} of {@link ReservoirCheckpoint#read(Path, Class)}). The sample is then the same as if
+     * the whole stream had been sampled at once. The generator of this sampler must be a {@link SplitMix64} or a
+     * {@link Xoroshiro128PlusPlus}, whose state can be checkpointed.
+     *
+     * @param stream         Stream to read data from
+     * @param sampleSize     Size to sample from the stream
+     * @param checkpoint     File to resume from, if it exists, and to write the checkpoints to
+     * @param intervalMillis Minimum time between two checkpoints, in milliseconds
+     * @return Sampled String containing at max {@code sampleSize} characters
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method, or if the checkpoint cannot be read
+     *                     or written
+     */
+    public String fastSample(InputStream stream, int sampleSize, Path checkpoint, long intervalMillis)
+            throws IOException {
+        CharReservoir reservoir;
+        if (Files.exists(checkpoint)) {
+            reservoir = listen(ReservoirCheckpoint.read(checkpoint, CharReservoir.class));
+            if (reservoir.sampleSize() != sampleSize) {
+                throw new IllegalArgumentException("Checkpoint has a different sample size");
+            }
+        } else {
+            reservoir = listen(new CharReservoir(sampleSize, random));
+        }
+        try (Checkpointer checkpointer = new Checkpointer(checkpoint)) {
+            long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            long lastCheckpoint = System.nanoTime();
+            int length;
+            char[] buffer = new char[1000];
+            BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
+            while ((length = br.read(buffer)) > 0) {
+                reservoir.offerAll(buffer, 0, length);
+                long now = System.nanoTime();
+                if (now - lastCheckpoint >= interval && checkpointer.checkpoint(reservoir)) {
+                    lastCheckpoint = now;
+                }
+            }
+        }
+        ReservoirCheckpoint.write(reservoir, checkpoint);
+        return new String(reservoir.snapshot());
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of a UTF-8 {@code stream} like {@link StreamSampler#fastSample(InputStream, int)},
+     * but holds the sample in direct memory and streams it to {@code output}, so that samples of hundreds of millions
+     * of characters do not burden the heap, see {@link OffHeapCharReservoir}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size to sample from the stream
+     * @param output     Writer to write the sampled characters to, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method or by the {@code output}
+     */
+    public void offHeapSample(InputStream stream, int sampleSize, Writer output) throws IOException {
+        offHeapSample(stream, listen(new OffHeapCharReservoir(sampleSize, random)), output);
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of a UTF-8 {@code stream} like
+     * {@link StreamSampler#offHeapSample(InputStream, int, Writer)}, but holds the sample in the memory mapped
+     * {@code spillFile}, for samples larger than the available memory. The file is overwritten and left in place.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size to sample from the stream
+     * @param spillFile  File to hold the sample in
+     * @param output     Writer to write the sampled characters to, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method, by the {@code output} or if the
+     *                     {@code spillFile} cannot be mapped
+     */
+    public void offHeapSample(InputStream stream, int sampleSize, Path spillFile, Writer output) throws IOException {
+        offHeapSample(stream, listen(new OffHeapCharReservoir(sampleSize, random, spillFile)), output);
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of a UTF-8 {@code stream} into an off-heap {@code reservoir}, then writes the
+     * sample to {@code output} and closes the reservoir
+     *
+     * @param stream    Stream to read data from
+     * @param reservoir Reservoir to hold the sample from the stream
+     * @param output    Writer to write the sampled characters to
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method or by the {@code output}
+     */
+    private void offHeapSample(InputStream stream, OffHeapCharReservoir reservoir, Writer output) throws IOException {
+        try (OffHeapCharReservoir sample = reservoir) {
+            int length;
+            char[] buffer = new char[1000];
+            BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
+            while ((length = br.read(buffer)) > 0) {
+                sample.offerAll(buffer, 0, length);
+            }
+            sample.writeTo(output);
+            output.flush();
+        }
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the bytes of the {@code stream}. Unlike
+     * {@link StreamSampler#fastSample(InputStream, int)}, the input is not decoded into characters, the skipped bytes
+     * are jumped over in a large read buffer and only the sampled bytes are copied.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size to sample from the stream
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public byte[] byteSample(InputStream stream, int sampleSize) throws IOException {
+        ByteReservoir reservoir = listen(new ByteReservoir(sampleSize, random));
+        int length;
+        byte[] buffer = new byte[BYTE_BUFFER_SIZE];
+        while ((length = stream.read(buffer)) > 0) {
+            listener.onRead(length);
+            reservoir.offerAll(buffer, 0, length);
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of an ASCII {@code stream}. Only the sampled bytes are decoded, see
+     * {@link StreamSampler#byteSample(InputStream, int)}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Size to sample from the stream
+     * @return Sampled String containing at max {@code sampleSize} characters
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public String asciiSample(InputStream stream, int sampleSize) throws IOException {
+        return new String(byteSample(stream, sampleSize), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the lines of a UTF-8 {@code stream}. Lines are terminated by {@code \n},
+     * and a trailing {@code \r} is removed from the sampled lines. Only the sampled lines are decoded into Strings.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Number of lines to sample from the stream
+     * @return Sampled lines, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public List<String> lineSample(InputStream stream, int sampleSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (byte[] record : recordSample(stream, sampleSize, (byte) '\n')) {
+            int length = record.length;
+            if (length > 0 && record[length - 1] == '\r') {
+                length--;
+            }
+            lines.add(new String(record, 0, length, StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    /**
+     * Samples the distinct lines of a UTF-8 {@code stream}, so that every distinct line has the same chance of being
+     * sampled however often it is repeated, with a {@link DistinctReservoir}.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Number of distinct lines to sample from the stream
+     * @return Sampled distinct lines, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public List<String> distinctLineSample(InputStream stream, int sampleSize) throws IOException {
+        DistinctReservoir<String> reservoir = new DistinctReservoir<>(sampleSize);
+        BufferedReader br = new BufferedReader(new InputStreamReader(counted(stream), StandardCharsets.UTF_8));
+        String line;
+        while ((line = br.readLine()) != null) {
+            reservoir.offer(line);
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Performs a Fast Reservoir Sampling of the records of the {@code stream}, which are separated by the
+     * {@code delimiter} byte. The delimiters are searched for in the read buffer, and the bytes of skipped records are
+     * never copied.
+     *
+     * @param stream     Stream to read data from
+     * @param sampleSize Number of records to sample from the stream
+     * @param delimiter  Byte terminating the records
+     * @return Sampled records without their delimiters, at max {@code sampleSize} of them
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method
+     */
+    public List<byte[]> recordSample(InputStream stream, int sampleSize, byte delimiter) throws IOException {
+        RecordReservoir reservoir = listen(new RecordReservoir(sampleSize, delimiter, random));
+        int length;
+        byte[] buffer = new byte[BYTE_BUFFER_SIZE];
+        while ((length = stream.read(buffer)) > 0) {
+            listener.onRead(length);
+            reservoir.offerAll(buffer, 0, length);
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Downsamples the bytes of the {@code stream} at a fixed {@code rate}, see
+     * {@link StreamSampler#rateSample(ReadableByteChannel, double, WritableByteChannel)}
+     *
+     * @param stream Stream to read data from
+     * @param rate   Probability of selecting each byte, in the range (0, 1]
+     * @param output Stream the selected bytes are written to, neither flushed nor closed
+     * @return Number of bytes selected
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method or {@link OutputStream}'s write method
+     */
+    public long rateSample(InputStream stream, double rate, OutputStream output) throws IOException {
+        return rateSample(Channels.newChannel(stream), rate, Channels.newChannel(output));
+    }
+
+    /**
+     * Downsamples the bytes of the {@code input} at a fixed {@code rate}: every byte is selected independently with
+     * probability {@code rate}, see {@link BernoulliSampler}. Selected bytes are written to {@code output} in input
+     * order, as soon as the buffer they were read in has been sampled, so the output keeps up with the input and memory
+     * stays constant. Skipped bytes are never looked at.
+     *
+     * @param input  Channel to read data from
+     * @param rate   Probability of selecting each byte, in the range (0, 1]
+     * @param output Channel the selected bytes are written to, not closed
+     * @return Number of bytes selected
+     * @throws IOException Thrown if the input cannot be read or the output written
+     */
+    public long rateSample(ReadableByteChannel input, double rate, WritableByteChannel output) throws IOException {
+        BernoulliSampler sampler = new BernoulliSampler(rate, random);
+        ByteBuffer buffer = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        ByteBuffer selected = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        byte[] values = buffer.array();
+        int length;
+        while ((length = input.read(buffer)) >= 0) {
+            listener.onRead(length);
+            int end = buffer.position();
+            int i = (int) sampler.skip(end);
+            while (i < end) {
+                sampler.next();
+                selected.put(values[i++]);
+                if (!selected.hasRemaining()) {
+                    write(selected, output);
+                }
+                i += (int) sampler.skip(end - i);
+            }
+            write(selected, output);
+            buffer.clear();
+        }
+        return sampler.selected();
+    }
+
+    /**
+     * Downsamples the delimited records (for instance lines) of the {@code stream} at a fixed {@code rate}, see
+     * {@link StreamSampler#rateRecordSample(ReadableByteChannel, double, byte, WritableByteChannel)}
+     *
+     * @param stream    Stream to read data from
+     * @param rate      Probability of selecting each record, in the range (0, 1]
+     * @param delimiter Byte terminating the records
+     * @param output    Stream the selected records are written to, neither flushed nor closed
+     * @return Number of records selected
+     * @throws IOException Thrown by the passed {@link InputStream}'s read method or {@link OutputStream}'s write method
+     */
+    public long rateRecordSample(InputStream stream, double rate, byte delimiter, OutputStream output)
+            throws IOException {
+        return rateRecordSample(Channels.newChannel(stream), rate, delimiter, Channels.newChannel(output));
+    }
+
+    /**
+     * Downsamples the delimited records (for instance lines) of the {@code input} at a fixed {@code rate}: every record
+     * is selected independently with probability {@code rate}, see {@link BernoulliSampler}. Selected records are
+     * written to {@code output} in input order, each terminated by the delimiter, as soon as the buffer they end in has
+     * been sampled, so the output keeps up with the input and memory stays constant whatever the length of the
+     * records. The bytes of skipped records are only scanned for the next delimiter.
+     *
+     * @param input     Channel to read data from
+     * @param rate      Probability of selecting each record, in the range (0, 1]
+     * @param delimiter Byte terminating the records, which the last record of the input does not need to end with
+     * @param output    Channel the selected records are written to, not closed
+     * @return Number of records selected
+     * @throws IOException Thrown if the input cannot be read or the output written
+     */
+    public long rateRecordSample(ReadableByteChannel input, double rate, byte delimiter, WritableByteChannel output)
+            throws IOException {
+        BernoulliSampler sampler = new BernoulliSampler(rate, random);
+        ByteBuffer buffer = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        ByteBuffer selected = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        byte[] values = buffer.array();
+        boolean inRecord = false;
+        boolean inSelectedRecord = false;
+        int length;
+        while ((length = input.read(buffer)) >= 0) {
+            listener.onRead(length);
+            int end = buffer.position();
+            int i = 0;
+            while (i < end) {
+                if (!inRecord) {
+                    inRecord = true;
+                    inSelectedRecord = sampler.next();
+                }
+                int recordEnd = i;
+                while (recordEnd < end && values[recordEnd] != delimiter) {
+                    recordEnd++;
+                }
+                if (recordEnd < end) {
+                    inRecord = false;
+                    recordEnd++;
+                }
+                if (inSelectedRecord) {
+                    append(buffer, i, recordEnd, selected, output);
+                }
+                i = recordEnd;
+            }
+            write(selected, output);
+            buffer.clear();
+        }
+        if (inRecord && inSelectedRecord) {
+            selected.put(delimiter);
+            write(selected, output);
+        }
+        return sampler.selected();
+    }
 
-                        // There is a skip required, skip up to the min(skip, remaining buffer length)
-                        if (skip > 0) {
-                            count += Math.min(skip - 1, length - i - 1L);
-                            if (skip < length - i - 1) {
-                                // Skip the remaining characters in skip and sample the next character
-                                i += skip - 1;
-                                skip = 0;
-                            } else {
-                                // Skip all the remaining characters in this buffer and reduce that amount from the skip
-                                skip -= length - i;
-                                i = length;
-                            }
+    /**
+     * Samples the bytes of the file at {@code path}, see {@link StreamSampler#fileSample(FileChannel, int)}
+     *
+     * @param path       File to sample
+     * @param sampleSize Size to sample from the file
+     * @return Sampled bytes, at max {@code sampleSize} of them, in file order
+     * @throws IOException Thrown when the file cannot be opened or read
+     */
+    public byte[] fileSample(Path path, int sampleSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fileSample(channel, sampleSize);
+        }
+    }
+
+    /**
+     * Samples the bytes of a file whose size is known upfront. Instead of streaming the whole file, {@code sampleSize}
+     * sorted random offsets are drawn with Vitter's Method D and only the pages containing them are read, using
+     * positional reads on the {@code channel}. The position of the {@code channel} is not modified.
+     *
+     * @param channel    Channel of the file to sample
+     * @param sampleSize Size to sample from the file
+     * @return Sampled bytes, at max {@code sampleSize} of them, in file order
+     * @throws IOException Thrown when the file cannot be read, or is truncated while being sampled
+     */
+    public byte[] fileSample(FileChannel channel, int sampleSize) throws IOException {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        long size = channel.size();
+        byte[] sample = new byte[(int) Math.min(sampleSize, size)];
+        if (sample.length == 0) {
+            return sample;
+        }
+        MethodD method = new MethodD(sample.length, size, random);
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        long pageStart = 0;
+        long position = -1;
+        page.limit(0);
+        for (int i = 0; i < sample.length; i++) {
+            position += method.nextSkip() + 1;
+            if (position >= pageStart + page.limit()) {
+                // Only read the page holding the sampled byte
+                pageStart = position - position % PAGE_SIZE;
+                page.clear();
+                while (page.hasRemaining()) {
+                    if (channel.read(page, pageStart + page.position()) < 0) {
+                        break;
+                    }
+                }
+                page.flip();
+                listener.onRead(page.limit());
+                if (position >= pageStart + page.limit()) {
+                    throw new EOFException("File was truncated while being sampled");
+                }
+            }
+            sample[i] = page.get((int) (position - pageStart));
+        }
+        return sample;
+    }
+
+    /**
+     * Samples the bytes of the file at {@code path} in parallel on the {@link ForkJoinPool#commonPool()}, see
+     * {@link StreamSampler#parallelFileSample(Path, int, ForkJoinPool)}
+     *
+     * @param path       File to sample
+     * @param sampleSize Size to sample from the file
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown when the file cannot be opened or read
+     */
+    public byte[] parallelFileSample(Path path, int sampleSize) throws IOException {
+        return parallelFileSample(path, sampleSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Samples the bytes of the file at {@code path} in parallel. The file is split into ranges which are sampled by the
+     * workers of the {@code pool}, each one with its own random state, and the samples of the ranges are merged
+     * weighted by the size of the ranges, so that the result is a uniform sample of the whole file. Seeded samplers
+     * produce the same sample regardless of the parallelism of the {@code pool}.
+     *
+     * @param path       File to sample
+     * @param sampleSize Size to sample from the file
+     * @param pool       Pool to run the sampling on
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown when the file cannot be opened or read
+     */
+    public byte[] parallelFileSample(Path path, int sampleSize, ForkJoinPool pool) throws IOException {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long splitSize = Math.max(MIN_SPLIT_SIZE, size / MAX_SPLITS);
+            return pool.invoke(new FileRangeTask(channel, 0, size, sampleSize, splitSize, random.split())).snapshot();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Samples the decompressed bytes of the gzip file at {@code path} on the {@link ForkJoinPool#commonPool()}, see
+     * {@link StreamSampler#gzipSample(Path, int, ForkJoinPool)}
+     *
+     * @param path       Gzip file to sample
+     * @param sampleSize Size to sample from the decompressed bytes
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown when the file cannot be opened or read, or as {@link ZipException} if it is not a
+     *                     valid gzip file
+     */
+    public byte[] gzipSample(Path path, int sampleSize) throws IOException {
+        return gzipSample(path, sampleSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Samples the decompressed bytes of the gzip file at {@code path}, which are the bytes a {@link GZIPInputStream}
+     * over it would read, decompressing them in parallel where the file allows it.
+     * <p>
+     * Files with many members, such as concatenated gzip files or BGZF files written by bgzip, are split into ranges
+     * starting at member headers, which are found by scanning the ranges in parallel. The members of every range are
+     * decompressed and sampled by the workers of the {@code pool}, see {@link GzipRangeTask}, and the samples of the
+     * ranges are merged weighted by their decompressed sizes, in file order. Only as many ranges as the parallelism of
+     * the {@code pool} are sampled ahead of the merge, so at most that many samples wait in memory to be merged. A
+     * range starting at bytes which only looked like a member header is discarded and its bytes are sampled as part of
+     * the previous range, so the result is always a uniform sample of the decompressed bytes. Seeded samplers produce
+     * the same sample regardless of the parallelism of the {@code pool}.
+     * <p>
+     * A file with a single member cannot be decompressed in parallel, so it is decompressed on the reader thread of a
+     * {@link PipelinedInputStream} while the calling thread samples it.
+     *
+     * @param path       Gzip file to sample
+     * @param sampleSize Size to sample from the decompressed bytes
+     * @param pool       Pool to run the decompression and sampling on
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown when the file cannot be opened or read, or as {@link ZipException} if it is not a
+     *                     valid gzip file
+     */
+    public byte[] gzipSample(Path path, int sampleSize, ForkJoinPool pool) throws IOException {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (GzipMemberReader.find(channel, 0, 1) != 0) {
+                throw new ZipException("Not in GZIP format");
+            }
+            long splitSize = Math.max(MIN_SPLIT_SIZE, size / MAX_SPLITS);
+            List<ForkJoinTask<Long>> searches = new ArrayList<>();
+            for (long from = splitSize; from < size; from += splitSize) {
+                long rangeStart = from;
+                long rangeEnd = Math.min(from + splitSize, size);
+                searches.add(pool.submit(() -> findMember(channel, rangeStart, rangeEnd)));
+            }
+            List<Long> starts = new ArrayList<>();
+            starts.add(0L);
+            for (ForkJoinTask<Long> search : searches) {
+                long start = search.join();
+                if (start >= 0) {
+                    starts.add(start);
+                }
+            }
+            if (starts.size() == 1) {
+                return pipelinedGzipSample(channel, sampleSize);
+            }
+
+            // Split the generators of the ranges up front, so they do not depend on when the ranges are started
+            RandomSource[] randoms = new RandomSource[starts.size()];
+            for (int i = 0; i < randoms.length; i++) {
+                randoms[i] = random.split();
+            }
+            GzipRangeTask[] tasks = new GzipRangeTask[starts.size()];
+            int window = Math.max(1, pool.getParallelism());
+            int started = 0;
+            try {
+                ByteReservoir sample = null;
+                long position = 0;
+                int next = 0;
+                while (position < size) {
+                    // Skip the ranges which started inside a member read by the previous range
+                    while (next < tasks.length && starts.get(next) < position) {
+                        if (tasks[next] != null) {
+                            tasks[next].cancel(false);
+                            tasks[next] = null;
                         }
+                        next++;
+                    }
+                    // Only run a window of ranges ahead of the merge, so the samples waiting for it stay bounded
+                    for (started = Math.max(started, next); started < tasks.length && started < next + window;
+                         started++) {
+                        long target = started + 1 < tasks.length ? starts.get(started + 1) : size;
+                        tasks[started] = new GzipRangeTask(channel, starts.get(started), target, sampleSize,
+                                randoms[started], listener);
+                        pool.execute(tasks[started]);
+                    }
+                    GzipRangeTask task;
+                    ByteReservoir part;
+                    if (next < tasks.length && starts.get(next) == position) {
+                        task = tasks[next];
+                        tasks[next++] = null;
+                        part = task.join();
+                    } else {
+                        // No range starts where the previous one stopped, sample up to the next range here
+                        long target = next < tasks.length ? starts.get(next) : size;
+                        task = new GzipRangeTask(channel, position, target, sampleSize, random.split(), listener);
+                        part = task.invoke();
+                    }
+                    if (sample == null) {
+                        sample = part;
+                    } else {
+                        sample.merge(part);
+                    }
+                    listener.onRead(task.end() - position);
+                    position = task.end();
+                }
+                return sample.snapshot();
+            } finally {
+                for (GzipRangeTask task : tasks) {
+                    if (task != null) {
+                        task.cancel(false);
                     }
                 }
-                count++;
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return count;
+    }
+
+    /**
+     * Appends bytes of a buffer to the selected bytes, writing the selected bytes out first if they do not fit, and
+     * writing the appended bytes directly if they do not fit in an empty buffer either
+     *
+     * @param buffer   Buffer containing the bytes to append, whose position and limit are left untouched
+     * @param start    Position of the first byte to append
+     * @param end      Position after the last byte to append
+     * @param selected Selected bytes waiting to be written, in write mode
+     * @param output   Channel the selected bytes are written to
+     * @throws IOException Thrown if the output cannot be written
+     */
+    private static void append(ByteBuffer buffer, int start, int end, ByteBuffer selected, WritableByteChannel output)
+            throws IOException {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(end).position(start);
+        if (buffer.remaining() > selected.remaining()) {
+            write(selected, output);
+        }
+        if (buffer.remaining() > selected.remaining()) {
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+        } else {
+            selected.put(buffer);
+        }
+        buffer.limit(limit).position(position);
+    }
+
+    /**
+     * Writes out the selected bytes and clears them
+     *
+     * @param selected Selected bytes waiting to be written, in write mode
+     * @param output   Channel to write to
+     * @throws IOException Thrown if the output cannot be written
+     */
+    private static void write(ByteBuffer selected, WritableByteChannel output) throws IOException {
+        selected.flip();
+        while (selected.hasRemaining()) {
+            output.write(selected);
+        }
+        selected.clear();
+    }
+
+    /**
+     * Finds the first member header candidate in a range of a gzip file, see
+     * {@link GzipMemberReader#find(FileChannel, long, long)}
+     *
+     * @param channel Channel of the gzip file
+     * @param from    Position of the first byte of the range
+     * @param to      Position after the last byte of the range
+     * @return Position of the first header candidate, {@code -1} if there is none
+     */
+    private static long findMember(FileChannel channel, long from, long to) {
+        try {
+            return GzipMemberReader.find(channel, from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Samples the decompressed bytes of a gzip file, decompressed on the reader thread of a
+     * {@link PipelinedInputStream}
+     *
+     * @param channel    Channel of the gzip file, at position 0
+     * @param sampleSize Size to sample from the decompressed bytes
+     * @return Sampled bytes, at max {@code sampleSize} of them
+     * @throws IOException Thrown when the file cannot be read, or as {@link ZipException} if it is not a valid gzip
+     *                     file
+     */
+    private byte[] pipelinedGzipSample(FileChannel channel, int sampleSize) throws IOException {
+        ByteReservoir reservoir = listen(new ByteReservoir(sampleSize, random));
+        byte[] buffer = new byte[1 << 16];
+        long read = 0;
+        try (GZIPInputStream gzip = new GZIPInputStream(Channels.newInputStream(channel), 1 << 16);
+             PipelinedInputStream pipelined = new PipelinedInputStream(gzip)) {
+            int length;
+            while ((length = pipelined.read(buffer)) >= 0) {
+                // The file is read on the reader thread, report its progress on this one
+                long position = channel.position();
+                listener.onRead(position - read);
+                read = position;
+                reservoir.offerAll(buffer, 0, length);
+            }
+        }
+        return reservoir.snapshot();
+    }
+
+    /**
+     * Sets the listener of this sampler on a reservoir
+     *
+     * @param reservoir Reservoir created by a sampling method
+     * @param <R>       Type of the reservoir
+     * @return {@code reservoir}
+     */
+    private <R extends AbstractReservoir> R listen(R reservoir) {
+        reservoir.listener(listener);
+        return reservoir;
+    }
+
+    /**
+     * Wraps a stream so that the bytes read from it are reported to the listener of this sampler
+     *
+     * @param stream Stream to read data from
+     * @return {@code stream} itself if there is no listener, a reporting stream otherwise
+     */
+    private InputStream counted(InputStream stream) {
+        if (listener == SamplingListener.NONE) {
+            return stream;
+        }
+        SamplingListener target = listener;
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    target.onRead(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    target.onRead(read);
+                }
+                return read;
+            }
+        };
     }
 
     /**
@@ -208,7 +987,13 @@ public class StreamSampler {
     private static String getUsageMessage() {
         return "StreamSampler Usage:\n" +
                 "===================\n" +
-                "cat abc.txt | java -jar stream-sampler.jar n\n" +
-                "This samples \"n\" characters from the piped input";
+                "cat abc.txt | java -jar stream-sampler.jar [options] n [file...]\n" +
+                "This samples \"n\" characters from the piped input, or from the files\n" +
+                "Options:\n" +
+                "  -u, --unit char|codepoint|byte|line  Unit to sample (default: char)\n" +
+                "  -a, --algorithm fast|naive           Sampling algorithm, naive only samples chars (default: fast)\n" +
+                "  -s, --seed seed                      Seed of the random generator, for reproducible samples\n" +
+                "  -f, --format raw|lines|json          Output format (default: raw)\n" +
+                "  -p, --pipeline buffers               Read ahead on another thread into a ring of 1 MiB buffers";
     }
 }
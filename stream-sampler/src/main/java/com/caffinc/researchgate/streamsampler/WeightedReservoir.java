@@ -0,0 +1,243 @@
+package com.caffinc.researchgate.streamsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reservoir holding a weighted sample of the objects offered to it, where objects are sampled with probabilities
+ * proportional to their weights.
+ * <p>
+ * Implements Efraimidis and Spirakis' A-ExpJ algorithm
+ * (<a href="https://doi.org/10.1016/j.ipl.2005.11.003">Weighted random sampling with a reservoir</a>). Every sampled
+ * object has a random key {@code u^(1/w)} and the reservoir keeps the objects with the largest keys. Instead of drawing
+ * a key for every object, an exponential jump tells how much weight can be skipped before the next object which goes
+ * into the reservoir, so random numbers are only drawn, and the heap of keys only updated, O(k log(n/k)) times.
+ * <p>
+ * Keys are kept as their logarithms, in a primitive min-heap, so that very large and very small weights do not underflow.
+ *
+ * @param <T> Type of the sampled objects
+ * @author Sriram
+ */
+public class WeightedReservoir<T> {
+    private final int sampleSize;
+    private final RandomSource random;
+    private final double[] keys;
+    private final Object[] items;
+    private int size;
+    private long count;
+    private double totalWeight;
+    private double jump;
+
+    /**
+     * Initializes an empty reservoir
+     *
+     * @param sampleSize Maximum number of objects held by the reservoir
+     * @param random     Source of randomness
+     */
+    public WeightedReservoir(int sampleSize, RandomSource random) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.keys = new double[sampleSize];
+        this.items = new Object[sampleSize];
+    }
+
+    /**
+     * Returns the maximum number of objects held by the reservoir
+     *
+     * @return Sample size
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the number of objects offered to the reservoir so far
+     *
+     * @return Number of objects seen
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the weights of the objects offered to the reservoir so far
+     *
+     * @return Total weight seen
+     */
+    public double totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns the number of objects currently held by the reservoir
+     *
+     * @return Number of sampled objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers an object to the reservoir. Objects with a weight of 0 are counted but never sampled.
+     *
+     * @param item   Object to offer
+     * @param weight Weight of the object, must be positive or 0
+     */
+    public void offer(T item, double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight must be finite and not negative");
+        }
+        count++;
+        totalWeight += weight;
+        if (weight == 0) {
+            return;
+        }
+        if (size < sampleSize) {
+            // Fill the reservoir, with keys u^(1/w)
+            push(item, Math.log(uniform()) / weight);
+            if (size == sampleSize) {
+                jump = nextJump();
+            }
+            return;
+        }
+        jump -= weight;
+        if (jump <= 0) {
+            // The jump ends within this object, its key is drawn above the current minimum key
+            double minimumKey = Math.exp(weight * keys[0]);
+            double key = Math.log(minimumKey + (1.0 - minimumKey) * uniform()) / weight;
+            items[0] = item;
+            keys[0] = key;
+            siftDown(0);
+            jump = nextJump();
+        }
+    }
+
+    /**
+     * Merges the sample of {@code other} into this reservoir, by keeping the objects with the largest keys of both.
+     * Afterwards, this reservoir holds a weighted sample of the objects seen by both reservoirs and can keep on being
+     * offered objects. {@code other} is left untouched.
+     *
+     * @param other Reservoir of the same sample size to merge into this one
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(WeightedReservoir<? extends T> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a reservoir into itself");
+        }
+        if (other.sampleSize != sampleSize) {
+            throw new IllegalArgumentException("Cannot merge reservoirs of different sample sizes");
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (size < sampleSize) {
+                push((T) other.items[i], other.keys[i]);
+            } else if (other.keys[i] > keys[0]) {
+                items[0] = other.items[i];
+                keys[0] = other.keys[i];
+                siftDown(0);
+            }
+        }
+        count += other.count;
+        totalWeight += other.totalWeight;
+        if (size == sampleSize) {
+            // Exponential jumps are memoryless, so a fresh one is as good as the pending one
+            jump = nextJump();
+        }
+    }
+
+    /**
+     * Multiplies the weights of all the objects seen so far by {@code factor}, which changes neither the sample nor the
+     * probabilities of the objects to come, only the scale their weights are expressed in. Used to keep exponentially
+     * growing weights within the range of doubles.
+     *
+     * @param factor Positive factor applied to the weights
+     */
+    void rescale(double factor) {
+        for (int i = 0; i < size; i++) {
+            keys[i] /= factor;
+        }
+        totalWeight *= factor;
+        jump *= factor;
+    }
+
+    /**
+     * Returns a copy of the objects currently held by the reservoir
+     *
+     * @return Sampled objects
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<T> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add((T) items[i]);
+        }
+        return sample;
+    }
+
+    /**
+     * Draws the amount of weight to skip before the next object which goes into the reservoir, given the current
+     * minimum key
+     *
+     * @return Weight to skip
+     */
+    private double nextJump() {
+        return Math.log(uniform()) / keys[0];
+    }
+
+    /**
+     * Adds an object to the heap while the reservoir is being filled
+     *
+     * @param item Object to add
+     * @param key  Logarithm of the key of the object
+     */
+    private void push(Object item, double key) {
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            items[i] = items[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        items[i] = item;
+    }
+
+    /**
+     * Restores the heap order after the key at {@code i} has increased
+     *
+     * @param i Index of the increased key
+     */
+    private void siftDown(int i) {
+        double key = keys[i];
+        Object item = items[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            items[i] = items[child];
+            i = child;
+        }
+        keys[i] = key;
+        items[i] = item;
+    }
+
+    /**
+     * Draws a uniform random number in the range (0, 1], which is safe to pass to {@link Math#log(double)}
+     *
+     * @return Uniform random number
+     */
+    private double uniform() {
+        return 1.0 - random.nextDouble();
+    }
+}
@@ -0,0 +1,107 @@
+package com.caffinc.researchgate.streamsampler;
+
+/**
+ * xoroshiro128++ generator (<a href="https://prng.di.unimi.it/">Blackman and Vigna</a>), a small and very fast
+ * generator with 128 bits of state, which is the default generator of the {@link StreamSampler}.
+ * <p>
+ * {@link #split()} hands out the current sequence and jumps this generator 2^64 numbers ahead, so that split generators
+ * never overlap.
+ *
+ * @author Sriram
+ */
+public class Xoroshiro128PlusPlus implements RandomSource {
+    private static final long[] JUMP = {0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L};
+
+    private long s0;
+    private long s1;
+
+    /**
+     * Initializes a generator with a seed which is different for every generator created this way
+     */
+    public Xoroshiro128PlusPlus() {
+        this(SplitMix64.nextSeed());
+    }
+
+    /**
+     * Initializes a generator with a seed for reproducibility. The 128 bits of state are expanded from the seed with
+     * {@link SplitMix64}, as recommended by the authors.
+     *
+     * @param seed Seed for the random state
+     */
+    public Xoroshiro128PlusPlus(long seed) {
+        SplitMix64 seeds = new SplitMix64(seed);
+        this.s0 = seeds.nextLong();
+        this.s1 = seeds.nextLong();
+    }
+
+    /**
+     * Initializes a generator with its full state
+     *
+     * @param s0 First half of the state
+     * @param s1 Second half of the state
+     */
+    public Xoroshiro128PlusPlus(long s0, long s1) {
+        if (s0 == 0 && s1 == 0) {
+            throw new IllegalArgumentException("State must not be all zeros");
+        }
+        this.s0 = s0;
+        this.s1 = s1;
+    }
+
+    @Override
+    public long nextLong() {
+        long x0 = s0;
+        long x1 = s1;
+        long result = Long.rotateLeft(x0 + x1, 17) + x0;
+        x1 ^= x0;
+        s0 = Long.rotateLeft(x0, 49) ^ x1 ^ (x1 << 21);
+        s1 = Long.rotateLeft(x1, 28);
+        return result;
+    }
+
+    @Override
+    public Xoroshiro128PlusPlus split() {
+        Xoroshiro128PlusPlus split = new Xoroshiro128PlusPlus(s0, s1);
+        jump();
+        return split;
+    }
+
+    /**
+     * Returns the full state of the generator, for checkpoints
+     *
+     * @return Both halves of the state
+     */
+    long[] state() {
+        return new long[]{s0, s1};
+    }
+
+    /**
+     * Restores the full state of the generator from a checkpoint
+     *
+     * @param s0 First half of the state
+     * @param s1 Second half of the state
+     */
+    void state(long s0, long s1) {
+        this.s0 = s0;
+        this.s1 = s1;
+    }
+
+    /**
+     * Advances the generator by 2^64 numbers
+     */
+    private void jump() {
+        long x0 = 0;
+        long x1 = 0;
+        for (long jump : JUMP) {
+            for (int b = 0; b < 64; b++) {
+                if ((jump & (1L << b)) != 0) {
+                    x0 ^= s0;
+                    x1 ^= s1;
+                }
+                nextLong();
+            }
+        }
+        s0 = x0;
+        s1 = x1;
+    }
+}
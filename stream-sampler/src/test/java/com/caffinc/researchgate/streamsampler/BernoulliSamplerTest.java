@@ -0,0 +1,173 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the {@link BernoulliSampler} class and the rate sampling methods of {@link StreamSampler}
+ *
+ * @author Sriram
+ */
+public class BernoulliSamplerTest {
+    /**
+     * Tests that elements are selected at the rate, drawing a single random number per selected element
+     */
+    @Test
+    public void testElementsAreSelectedAtRate() {
+        SamplingMetrics metrics = new SamplingMetrics();
+        BernoulliSampler sampler = new BernoulliSampler(0.01, new CountingRandomSource(new SplitMix64(0), metrics));
+        int n = 1000000;
+        for (int i = 0; i < n; i++) {
+            sampler.next();
+        }
+        Assert.assertEquals("Every element should be counted", n, sampler.count());
+        Assert.assertEquals("1% of the elements should be selected", 10000, sampler.selected(), 300);
+        Assert.assertEquals("One random number should be drawn per selected element", sampler.selected() + 1,
+                metrics.getRandomDraws());
+    }
+
+    /**
+     * Tests that skipping elements in bulk selects the same elements as accounting for them one at a time
+     */
+    @Test
+    public void testSkipMatchesNext() {
+        BernoulliSampler single = new BernoulliSampler(0.05, new SplitMix64(0));
+        BernoulliSampler bulk = new BernoulliSampler(0.05, new SplitMix64(0));
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            if (single.next()) {
+                expected.add(i);
+            }
+        }
+        int i = (int) bulk.skip(10000);
+        while (i < 10000) {
+            Assert.assertTrue("Element after a skip should be selected", bulk.next());
+            actual.add(i++);
+            i += (int) bulk.skip(10000 - i);
+        }
+        Assert.assertEquals("Skips should select the same elements", expected, actual);
+        Assert.assertEquals("Every element should be counted", 10000, bulk.count());
+    }
+
+    /**
+     * Tests that downsampled records are whole records of the input, in order, selected at the rate, and that the
+     * last record is terminated
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testRecordsAreDownsampled() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            builder.append("record ").append(i).append('\n');
+        }
+        String input = builder.toString();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long selected = new StreamSampler(0).rateRecordSample(stream(input), 0.1, (byte) '\n', output);
+        String[] records = output.toString("UTF-8").split("\n");
+        Assert.assertEquals("Selected records should be written", selected, records.length);
+        Assert.assertEquals("10% of the records should be selected", 10000, selected, 400);
+        int previous = -1;
+        for (String record : records) {
+            int index = Integer.parseInt(record.substring("record ".length()));
+            Assert.assertTrue("Records should be written in input order", index > previous);
+            previous = index;
+        }
+
+        output.reset();
+        new StreamSampler(0).rateRecordSample(stream("A\nB\n\nC"), 1, (byte) '\n', output);
+        Assert.assertEquals("Rate 1 should select every record", "A\nB\n\nC\n", output.toString("UTF-8"));
+
+        String longRecords = builder.toString().replace('\n', ' ') + "\nB\n" + builder;
+        output.reset();
+        new StreamSampler(0).rateRecordSample(stream(longRecords), 1, (byte) '\n', output);
+        Assert.assertEquals("Records longer than the buffers should be written whole", longRecords,
+                output.toString("UTF-8"));
+    }
+
+    /**
+     * Tests that downsampled bytes are a subsequence of the input selected at the rate
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testBytesAreDownsampled() throws Exception {
+        byte[] input = new byte[200000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 100);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long selected = new StreamSampler(0).rateSample(new ByteArrayInputStream(input), 0.5, output);
+        Assert.assertEquals("Selected bytes should be written", selected, output.size());
+        Assert.assertEquals("Half of the bytes should be selected", 100000, selected, 1000);
+
+        output.reset();
+        new StreamSampler(0).rateSample(new ByteArrayInputStream(input), 1, output);
+        Assert.assertArrayEquals("Rate 1 should select every byte", input, output.toByteArray());
+    }
+
+    /**
+     * Tests that selected records are written before the end of the input is reached
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testRecordsAreWrittenBeforeEndOfInput() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InputStream input = new InputStream() {
+            private boolean first = true;
+
+            @Override
+            public int read() {
+                return -1;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (first) {
+                    first = false;
+                    buffer[offset] = 'A';
+                    buffer[offset + 1] = '\n';
+                    return 2;
+                }
+                Assert.assertEquals("Record should be written before the end of the input", "A\n",
+                        new String(output.toByteArray(), StandardCharsets.UTF_8));
+                return -1;
+            }
+        };
+        new StreamSampler(0).rateRecordSample(input, 1, (byte) '\n', output);
+    }
+
+    /**
+     * Tests that rates outside of (0, 1] are rejected
+     */
+    @Test
+    public void testInvalidRates() {
+        for (double rate : new double[]{0, -0.5, 1.5, Double.NaN}) {
+            try {
+                new BernoulliSampler(rate, new SplitMix64(0));
+                Assert.fail("Rate should be rejected: " + rate);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.caffinc.researchgate.streamsampler;
+
+import com.caffinc.researchgate.streamsampler.helper.RandomInputStream;
+import com.caffinc.researchgate.streamsampler.helper.StringInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Tests the {@link StreamSampler#byteSample(InputStream, int)} and {@link StreamSampler#asciiSample(InputStream, int)}
+ * methods, and the underlying {@link ByteReservoir}
+ *
+ * @author Sriram
+ */
+public class ByteStreamSamplerTest {
+    private String pattern = "THEQUICKBROWNFOXJUMPSOVERTHELAZYDOG";
+
+    /**
+     * Tests {@link StreamSampler#byteSample(InputStream, int)} when a {@link java.io.InputStream} is passed to it
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testByteSample() throws Exception {
+        int expectedSize = 10;
+        byte[] sample = new StreamSampler().byteSample(new RandomInputStream(0, 20), expectedSize);
+        Assert.assertEquals("Sample should have " + expectedSize + " bytes", expectedSize, sample.length);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#asciiSample(InputStream, int)} samples up to available input if
+     * {@code sampleSize} exceeds stream size
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testAsciiSampleWithExcessSize() throws Exception {
+        int sampleSize = pattern.length() + 10;
+        String sample = new StreamSampler().asciiSample(new StringInputStream(pattern, pattern.length()), sampleSize);
+        Assert.assertEquals("Sample should have original pattern", pattern, sample);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#byteSample(InputStream, int)} throws {@link IllegalArgumentException} for 0
+     * {@code sampleSize}
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testByteSampleWithZeroSampleSize() throws Exception {
+        new StreamSampler().byteSample(new StringInputStream(pattern, pattern.length()), 0);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#asciiSample(InputStream, int)} samples large streams correctly when seeded
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testAsciiSampleForLargeInputWithSeed() throws Exception {
+        int seed = 0;
+        int expectedSize = 10;
+        String first = new StreamSampler(seed).asciiSample(new StringInputStream(pattern, expectedSize * 100000), expectedSize);
+        String second = new StreamSampler(seed).asciiSample(new StringInputStream(pattern, expectedSize * 100000), expectedSize);
+        Assert.assertEquals("Sample should have " + expectedSize + " characters", expectedSize, first.length());
+        Assert.assertEquals("Seeded samples should be reproducible", first, second);
+    }
+
+    /**
+     * Tests that offering bytes one by one and in bulk to a {@link ByteReservoir} produces the same sample
+     */
+    @Test
+    public void testOfferAllMatchesOffer() {
+        byte[] input = new byte[100000];
+        new Random(1).nextBytes(input);
+
+        ByteReservoir single = new ByteReservoir(16, new SplitMix64(0));
+        for (byte b : input) {
+            single.offer(b);
+        }
+        ByteReservoir bulk = new ByteReservoir(16, new SplitMix64(0));
+        for (int offset = 0; offset < input.length; offset += 777) {
+            bulk.offerAll(input, offset, Math.min(777, input.length - offset));
+        }
+
+        Assert.assertEquals("Both reservoirs should have seen all bytes", single.count(), bulk.count());
+        Assert.assertArrayEquals("Bulk and single offers should sample the same bytes", single.snapshot(), bulk.snapshot());
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#byteSample(InputStream, int)} picks every position of the stream with the
+     * same probability
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testByteSampleIsUniform() throws Exception {
+        int nRuns = 20000;
+        int sampleSize = 4;
+        byte[] input = new byte[150000];
+        for (int i = input.length / 2; i < input.length; i++) {
+            input[i] = 1;
+        }
+
+        StreamSampler sampler = new StreamSampler(0);
+        long secondHalf = 0;
+        for (int i = 0; i < nRuns; i++) {
+            for (byte b : sampler.byteSample(new ByteArrayInputStream(input), sampleSize)) {
+                secondHalf += b;
+            }
+        }
+
+        double ratio = secondHalf / (double) (nRuns * sampleSize);
+        Assert.assertEquals("Both halves of the stream should be sampled equally", 0.5, ratio, 0.01);
+    }
+}
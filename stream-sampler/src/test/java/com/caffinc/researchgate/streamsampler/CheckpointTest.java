@@ -0,0 +1,135 @@
+package com.caffinc.researchgate.streamsampler;
+
+import com.caffinc.researchgate.streamsampler.helper.StringInputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Tests the {@link ReservoirCheckpoint} and {@link Checkpointer} classes, and resuming
+ * {@link StreamSampler#fastSample(java.io.InputStream, int, Path, long)} from a checkpoint
+ *
+ * @author Sriram
+ */
+public class CheckpointTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a reservoir decoded from a checkpoint continues sampling exactly like the checkpointed one, for both
+     * generators
+     *
+     * @throws Exception thrown if the checkpoint cannot be decoded
+     */
+    @Test
+    public void testCheckpointContinuesExactly() throws Exception {
+        int[] values = new Random(1).ints(100000).toArray();
+        for (RandomSource random : new RandomSource[]{new SplitMix64(0), new Xoroshiro128PlusPlus(0)}) {
+            IntReservoir original = new IntReservoir(16, random);
+            original.offerAll(values, 0, 50000);
+            IntReservoir resumed = ReservoirCheckpoint.decode(ReservoirCheckpoint.encode(original), IntReservoir.class);
+            Assert.assertEquals("Resumed reservoir should have the same count", original.count(), resumed.count());
+            Assert.assertArrayEquals("Resumed reservoir should have the same sample", original.snapshot(), resumed.snapshot());
+
+            original.offerAll(values, 50000, 50000);
+            resumed.offerAll(values, 50000, 50000);
+            Assert.assertArrayEquals("Resumed reservoir should keep on sampling the same values", original.snapshot(),
+                    resumed.snapshot());
+        }
+    }
+
+    /**
+     * Tests that a partially filled reservoir can be checkpointed and keeps on filling after being resumed
+     *
+     * @throws Exception thrown if the checkpoint cannot be written or read
+     */
+    @Test
+    public void testCheckpointWithExcessSize() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("bytes.checkpoint");
+        ByteReservoir original = new ByteReservoir(10, new SplitMix64(0));
+        original.offerAll((byte) 1, (byte) 2, (byte) 3);
+        ReservoirCheckpoint.write(original, path);
+        ByteReservoir resumed = ReservoirCheckpoint.read(path, ByteReservoir.class);
+        resumed.offerAll((byte) 4);
+        Assert.assertArrayEquals("Resumed reservoir should keep all values", new byte[]{1, 2, 3, 4}, resumed.snapshot());
+    }
+
+    /**
+     * Tests that sampling a stream in two runs, resuming from a checkpoint, gives the same sample as sampling it at once
+     *
+     * @throws Exception thrown if the checkpoints cannot be written or read
+     */
+    @Test
+    public void testFastSampleResumesFromCheckpoint() throws Exception {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(0);
+        for (int i = 0; i < 200000; i++) {
+            text.append((char) ('A' + random.nextInt(26)));
+        }
+        String first = text.substring(0, 120000);
+        String second = text.substring(120000);
+
+        Path once = folder.getRoot().toPath().resolve("once.checkpoint");
+        String expected = new StreamSampler(7).fastSample(new StringInputStream(text.toString(), text.length()), 10, once, 0);
+
+        Path twice = folder.getRoot().toPath().resolve("twice.checkpoint");
+        new StreamSampler(7).fastSample(new StringInputStream(first, first.length()), 10, twice, 0);
+        Assert.assertEquals("Checkpoint should have seen the first part", first.length(),
+                ReservoirCheckpoint.read(twice, CharReservoir.class).count());
+        String resumed = new StreamSampler(99).fastSample(new StringInputStream(second, second.length()), 10, twice, 0);
+
+        Assert.assertEquals("Resumed sample should match the sample of the whole stream", expected, resumed);
+        Assert.assertEquals("Checkpoint should have seen the whole stream", text.length(),
+                ReservoirCheckpoint.read(twice, CharReservoir.class).count());
+    }
+
+    /**
+     * Tests that the {@link Checkpointer} writes checkpoints in the background, readable once it is closed
+     *
+     * @throws Exception thrown if the checkpoint cannot be written or read
+     */
+    @Test
+    public void testCheckpointerWritesInBackground() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("longs.checkpoint");
+        LongReservoir reservoir = new LongReservoir(8, new Xoroshiro128PlusPlus(0));
+        reservoir.offerAll(new Random(0).longs(1000).toArray());
+        try (Checkpointer checkpointer = new Checkpointer(path)) {
+            Assert.assertTrue("First checkpoint should be written", checkpointer.checkpoint(reservoir));
+        }
+        LongReservoir resumed = ReservoirCheckpoint.read(path, LongReservoir.class);
+        Assert.assertArrayEquals("Checkpoint should have the sample", reservoir.snapshot(), resumed.snapshot());
+        Assert.assertFalse("Temporary file should be moved in place",
+                Files.exists(path.resolveSibling("longs.checkpoint.tmp")));
+    }
+
+    /**
+     * Tests that a corrupt checkpoint is rejected
+     *
+     * @throws Exception thrown if the checkpoint cannot be encoded
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptCheckpoint() throws Exception {
+        CharReservoir reservoir = new CharReservoir(4, new SplitMix64(0));
+        reservoir.offerAll("THEQUICKBROWNFOX");
+        byte[] checkpoint = ReservoirCheckpoint.encode(reservoir);
+        checkpoint[checkpoint.length / 2] ^= 1;
+        ReservoirCheckpoint.decode(checkpoint, CharReservoir.class);
+    }
+
+    /**
+     * Tests that a checkpoint cannot be read as another type of reservoir
+     *
+     * @throws Exception thrown if the checkpoint cannot be encoded
+     */
+    @Test(expected = IOException.class)
+    public void testCheckpointOfAnotherType() throws Exception {
+        CharReservoir reservoir = new CharReservoir(4, new SplitMix64(0));
+        ReservoirCheckpoint.decode(ReservoirCheckpoint.encode(reservoir), IntReservoir.class);
+    }
+}
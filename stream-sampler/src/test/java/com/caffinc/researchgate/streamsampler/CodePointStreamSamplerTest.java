@@ -0,0 +1,131 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests the {@link StreamSampler#codePointSample(InputStream, int)} method and the underlying
+ * {@link CodePointReservoir}
+ *
+ * @author Sriram
+ */
+public class CodePointStreamSamplerTest {
+    private String text = "THE QUICK öäÄÜÖß FOX 🦊 JUMPS हिन्दी 😀😀";
+
+    /**
+     * Tests that {@link StreamSampler#codePointSample(InputStream, int)} only samples whole code points of the input
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testCodePointSample() throws Exception {
+        StreamSampler sampler = new StreamSampler(0);
+        for (int run = 0; run < 100; run++) {
+            String sample = sampler.codePointSample(stream(text), 5);
+            Assert.assertEquals("Sample should have 5 code points", 5, sample.codePointCount(0, sample.length()));
+            sample.codePoints().forEach(codePoint -> Assert.assertTrue("Sample should only have code points of the input",
+                    text.codePoints().anyMatch(c -> c == codePoint)));
+        }
+    }
+
+    /**
+     * Tests that {@link StreamSampler#codePointSample(InputStream, int)} returns the whole input if {@code sampleSize}
+     * exceeds the number of code points
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testCodePointSampleWithExcessSize() throws Exception {
+        String sample = new StreamSampler(0).codePointSample(stream(text), 100);
+        Assert.assertEquals("Sample should be the whole input", text, sample);
+    }
+
+    /**
+     * Tests that code points encoded with 1 to 4 bytes are sampled equally often
+     */
+    @Test
+    public void testCodePointReservoirIsUniform() {
+        byte[] input = repeat("aöह😀", 1000).getBytes(StandardCharsets.UTF_8);
+        int nRuns = 2000;
+        int sampleSize = 4;
+        RandomSource random = new SplitMix64(0);
+        int[] widths = new int[5];
+        for (int run = 0; run < nRuns; run++) {
+            CodePointReservoir reservoir = new CodePointReservoir(sampleSize, random);
+            reservoir.offerAll(input);
+            for (int codePoint : reservoir.snapshot()) {
+                widths[new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length]++;
+            }
+        }
+        for (int width = 1; width <= 4; width++) {
+            Assert.assertEquals("Code points of " + width + " bytes should be a quarter of the sample", 0.25,
+                    widths[width] / (double) (nRuns * sampleSize), 0.02);
+        }
+    }
+
+    /**
+     * Tests that code points split across calls are decoded whole, from heap and direct buffers
+     */
+    @Test
+    public void testCodePointReservoirAcrossBuffers() {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        CodePointReservoir reservoir = new CodePointReservoir(100, new SplitMix64(0));
+        for (byte value : input) {
+            reservoir.offerAll(value);
+        }
+        int[] codePoints = reservoir.snapshot();
+        Assert.assertEquals("Sample should be the whole input", text, new String(codePoints, 0, codePoints.length));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(input.length);
+        buffer.put(input).flip();
+        reservoir = new CodePointReservoir(100, new SplitMix64(0));
+        reservoir.offerAll(buffer);
+        codePoints = reservoir.snapshot();
+        Assert.assertEquals("Sample should be the whole input", text, new String(codePoints, 0, codePoints.length));
+        Assert.assertFalse("Buffer should be consumed", buffer.hasRemaining());
+    }
+
+    /**
+     * Tests that malformed sequences are sampled as U+FFFD
+     */
+    @Test
+    public void testCodePointReservoirWithMalformedInput() {
+        CodePointReservoir reservoir = new CodePointReservoir(100, new SplitMix64(0));
+        // Truncated, invalid lead byte, overlong, surrogate, extra continuation byte and truncated at the end
+        reservoir.offerAll(new byte[]{'A', (byte) 0xC3, 'B', (byte) 0xFF, (byte) 0xC0, (byte) 0x80, (byte) 0xED,
+                (byte) 0xA0, (byte) 0x80, (byte) 0xC3, (byte) 0xB6, (byte) 0xB6, 'C', (byte) 0xE2, (byte) 0x82});
+        int[] codePoints = reservoir.snapshot();
+        Assert.assertEquals("Malformed sequences should be replaced", "A�B����C�",
+                new String(codePoints, 0, codePoints.length));
+    }
+
+    /**
+     * Repeats a String
+     *
+     * @param value String to repeat
+     * @param times Number of repetitions
+     * @return Repeated String
+     */
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
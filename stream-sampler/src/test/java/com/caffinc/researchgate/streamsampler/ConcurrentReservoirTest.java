@@ -0,0 +1,163 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests the {@link ConcurrentReservoir} class
+ *
+ * @author Sriram
+ */
+public class ConcurrentReservoirTest {
+    /**
+     * Tests that a {@link ConcurrentReservoir} keeps all objects offered by all threads when fewer than
+     * {@code sampleSize} are offered
+     *
+     * @throws Exception thrown if a writer fails
+     */
+    @Test
+    public void testConcurrentReservoirWithExcessSize() throws Exception {
+        ConcurrentReservoir<Integer> reservoir = new ConcurrentReservoir<>(100, new SplitMix64(0));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int first = t * 10;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < first + 10; i++) {
+                        reservoir.offer(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        List<Integer> sample = reservoir.snapshot();
+        Collections.sort(sample);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            expected.add(i);
+        }
+        Assert.assertEquals("Sample should have all objects", expected, sample);
+        Assert.assertEquals("Reservoir should count all objects", 40, reservoir.count());
+    }
+
+    /**
+     * Tests that the objects offered by every thread are sampled proportionally to the number of objects each thread
+     * offered
+     *
+     * @throws Exception thrown if a writer fails
+     */
+    @Test
+    public void testConcurrentReservoirIsUniform() throws Exception {
+        int nRuns = 1000;
+        int sampleSize = 8;
+        int nThreads = 3;
+        RandomSource random = new SplitMix64(0);
+        long[] sampled = new long[nThreads];
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            for (int run = 0; run < nRuns; run++) {
+                ConcurrentReservoir<Integer> reservoir = new ConcurrentReservoir<>(sampleSize, random.split());
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < nThreads; t++) {
+                    int thread = t;
+                    // Thread t offers 100 * (t + 1) objects, so it should have (t + 1) / 6 of the sample
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 100 * (thread + 1); i++) {
+                            reservoir.offer(thread);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                for (int thread : reservoir.snapshot()) {
+                    sampled[thread]++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int t = 0; t < nThreads; t++) {
+            Assert.assertEquals("Objects of every thread should be sampled proportionally to their count",
+                    (t + 1) / 6.0, sampled[t] / (double) (nRuns * sampleSize), 0.02);
+        }
+    }
+
+    /**
+     * Tests that snapshots taken while threads are offering objects are consistent samples of what was offered
+     *
+     * @throws Exception thrown if a writer fails
+     */
+    @Test
+    public void testConcurrentReservoirSnapshotWhileOffering() throws Exception {
+        int sampleSize = 16;
+        int nThreads = 4;
+        ConcurrentReservoir<Integer> reservoir = new ConcurrentReservoir<>(sampleSize, new SplitMix64(0));
+        CountDownLatch started = new CountDownLatch(nThreads);
+        AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < nThreads; t++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    for (int i = 0; !stopped.get(); i++) {
+                        reservoir.offer(i);
+                    }
+                }));
+            }
+            started.await();
+            long lastCount = 0;
+            for (int i = 0; i < 1000; i++) {
+                List<Integer> sample = reservoir.snapshot();
+                Assert.assertTrue("Sample should never exceed the sample size", sample.size() <= sampleSize);
+                Assert.assertFalse("Sample should only have offered objects", sample.contains(null));
+                long count = reservoir.count();
+                Assert.assertTrue("Count should never decrease", count >= lastCount);
+                lastCount = count;
+            }
+            stopped.set(true);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals("Final sample should be full", sampleSize, reservoir.snapshot().size());
+    }
+
+    /**
+     * Tests that offering through {@link ConcurrentReservoir#offerAll(Iterable)} from a single thread counts all
+     * objects
+     */
+    @Test
+    public void testConcurrentReservoirOfferAll() {
+        ConcurrentReservoir<String> reservoir = new ConcurrentReservoir<>(2, new SplitMix64(0));
+        reservoir.offerAll(Arrays.asList("THE", "QUICK", "BROWN", "FOX"));
+        Assert.assertEquals("Reservoir should count all objects", 4, reservoir.count());
+        Assert.assertEquals("Sample should be full", 2, reservoir.snapshot().size());
+    }
+
+    /**
+     * Tests that a {@link ConcurrentReservoir} throws {@link IllegalArgumentException} for 0 {@code sampleSize}
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcurrentReservoirWithZeroSampleSize() {
+        new ConcurrentReservoir<String>(0, new SplitMix64(0));
+    }
+}
@@ -0,0 +1,130 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests the {@link DistinctReservoir} class and the {@link StreamSampler#distinctLineSample(InputStream, int)} method
+ *
+ * @author Sriram
+ */
+public class DistinctReservoirTest {
+    /**
+     * Tests that a value repeated many times is not sampled more often than the values seen once
+     */
+    @Test
+    public void testDistinctReservoirIgnoresRepeats() {
+        int nRuns = 2000;
+        int sampleSize = 10;
+        int distinct = 100;
+        RandomSource random = new SplitMix64(0);
+        long heavyHitters = 0;
+        for (int run = 0; run < nRuns; run++) {
+            // Shift the values so that every run sees other hashes
+            long base = random.nextLong();
+            DistinctReservoir<Long> reservoir = new DistinctReservoir<>(sampleSize);
+            for (int i = 0; i < 1000; i++) {
+                reservoir.offer(base);
+            }
+            for (int i = 1; i < distinct; i++) {
+                reservoir.offer(base + i);
+            }
+            List<Long> sample = reservoir.snapshot();
+            Assert.assertEquals("Sample should not repeat values", sampleSize, new HashSet<>(sample).size());
+            if (sample.contains(base)) {
+                heavyHitters++;
+            }
+        }
+        Assert.assertEquals("Repeated value should be sampled like any other", sampleSize / (double) distinct,
+                heavyHitters / (double) nRuns, 0.02);
+    }
+
+    /**
+     * Tests that the distinct count is exact below the sample size and close to the truth above it
+     */
+    @Test
+    public void testDistinctCount() {
+        DistinctReservoir<Integer> reservoir = new DistinctReservoir<>(1024);
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int i = 0; i < 1000; i++) {
+                reservoir.offer(i);
+            }
+        }
+        Assert.assertEquals("Count should be exact below the sample size", 1000, reservoir.distinctCount(), 0);
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int i = 0; i < 1000000; i++) {
+                reservoir.offer(i);
+            }
+        }
+        Assert.assertEquals("Count should be within a few standard errors", 1000000, reservoir.distinctCount(),
+                100000);
+        Assert.assertEquals("Every offer should be counted", 2002000, reservoir.count());
+    }
+
+    /**
+     * Tests that merging the reservoirs of two overlapping partitions gives the reservoir of the whole stream
+     */
+    @Test
+    public void testDistinctReservoirMerge() {
+        DistinctReservoir<String> whole = new DistinctReservoir<>(50);
+        DistinctReservoir<String> left = new DistinctReservoir<>(50);
+        DistinctReservoir<String> right = new DistinctReservoir<>(50);
+        for (int i = 0; i < 10000; i++) {
+            String value = "VALUE" + (i % 3000);
+            whole.offer(value);
+            if (i < 6000) {
+                left.offer(value);
+            } else {
+                right.offer(value);
+            }
+        }
+        left.merge(right);
+        List<String> merged = left.snapshot();
+        List<String> expected = whole.snapshot();
+        merged.sort(null);
+        expected.sort(null);
+        Assert.assertEquals("Merged sample should be the sample of the whole stream", expected, merged);
+        Assert.assertEquals("Merged estimate should be the estimate of the whole stream", whole.distinctCount(),
+                left.distinctCount(), 0);
+        Assert.assertEquals("Merged count should add up", 10000, left.count());
+    }
+
+    /**
+     * Tests that sample sizes whose hash table does not fit in an array are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistinctReservoirWithTooLargeSize() {
+        new DistinctReservoir<String>(1 << 29);
+    }
+
+    /**
+     * Tests that {@link DistinctReservoir#merge(DistinctReservoir)} rejects reservoirs of different sample sizes
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistinctReservoirMergeWithDifferentSizes() {
+        new DistinctReservoir<String>(10).merge(new DistinctReservoir<>(20));
+    }
+
+    /**
+     * Tests that {@link StreamSampler#distinctLineSample(InputStream, int)} returns every distinct line once if
+     * {@code sampleSize} exceeds the number of distinct lines
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testDistinctLineSample() throws Exception {
+        String text = "THE\nQUICK\nTHE\nFOX\r\nTHE\nJUMPS öäÄÜÖß\nFOX";
+        InputStream stream = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        List<String> sample = new StreamSampler(0).distinctLineSample(stream, 10);
+        sample.sort(null);
+        Assert.assertEquals("Sample should have every distinct line once",
+                Arrays.asList("FOX", "JUMPS öäÄÜÖß", "QUICK", "THE"), sample);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
@@ -112,7 +113,7 @@ public class FastStreamSamplerTest {
         int seed = 0;
         int expectedSize = 10;
         String sample = new StreamSampler(seed).fastSample(new StringInputStream(pattern, expectedSize * 10), expectedSize);
-        Assert.assertEquals("Sample should only have characters from the provided pattern", "DNGGYTDäOE", sample);
+        Assert.assertEquals("Sample should only have characters from the provided pattern", "INJSÄUUOMÖ", sample);
     }
 
 
@@ -126,7 +127,38 @@ public class FastStreamSamplerTest {
         int seed = 0;
         int expectedSize = 10;
         String sample = new StreamSampler(seed).fastSample(new StringInputStream(pattern, expectedSize * 100000), expectedSize);
-        Assert.assertEquals("Sample should only have expected characters for the seed", "HTKLöOöQVE", sample);
+        Assert.assertEquals("Sample should only have expected characters for the seed", "GIUOHDDöDA", sample);
+    }
+
+
+    /**
+     * Tests that the {@link StreamSampler#fastSample(InputStream, int)} picks every position of the stream with the
+     * same probability, including positions which are far apart in different read buffers
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testFastSampleIsUniform() throws Exception {
+        int nRuns = 20000;
+        int sampleSize = 4;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            input.append(i < 1250 ? 'A' : 'B');
+        }
+        byte[] bytes = input.toString().getBytes();
+
+        StreamSampler sampler = new StreamSampler(0);
+        long firstHalf = 0;
+        for (int i = 0; i < nRuns; i++) {
+            for (char c : sampler.fastSample(new ByteArrayInputStream(bytes), sampleSize).toCharArray()) {
+                if (c == 'A') {
+                    firstHalf++;
+                }
+            }
+        }
+
+        double ratio = firstHalf / (double) (nRuns * sampleSize);
+        Assert.assertEquals("Both halves of the stream should be sampled equally", 0.5, ratio, 0.01);
     }
 
 
@@ -142,8 +174,14 @@ public class FastStreamSamplerTest {
         String expectedError = "Error: Too few or too many arguments passed\n" +
                 "StreamSampler Usage:\n" +
                 "===================\n" +
-                "cat abc.txt | java -jar stream-sampler.jar n\n" +
-                "This samples \"n\" characters from the piped input\n";
+                "cat abc.txt | java -jar stream-sampler.jar [options] n [file...]\n" +
+                "This samples \"n\" characters from the piped input, or from the files\n" +
+                "Options:\n" +
+                "  -u, --unit char|codepoint|byte|line  Unit to sample (default: char)\n" +
+                "  -a, --algorithm fast|naive           Sampling algorithm, naive only samples chars (default: fast)\n" +
+                "  -s, --seed seed                      Seed of the random generator, for reproducible samples\n" +
+                "  -f, --format raw|lines|json          Output format (default: raw)\n" +
+                "  -p, --pipeline buffers               Read ahead on another thread into a ring of 1 MiB buffers\n";
         StreamSampler.main(new String[]{});
         String actualError = printStream.getBuffer();
         Assert.assertEquals("Error and usage message should be displayed when sample size is not present in the arguments",
@@ -0,0 +1,113 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests the {@link StreamSampler#fileSample(Path, int)} method and the underlying {@link MethodD}
+ *
+ * @author Sriram
+ */
+public class FileStreamSamplerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the {@link StreamSampler#fileSample(Path, int)} returns bytes in file order
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testFileSample() throws Exception {
+        byte[] content = new byte[1 << 20];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 127 / content.length);
+        }
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        int expectedSize = 100;
+        byte[] sample = new StreamSampler(0).fileSample(file, expectedSize);
+        Assert.assertEquals("Sample should have " + expectedSize + " bytes", expectedSize, sample.length);
+        for (int i = 1; i < sample.length; i++) {
+            Assert.assertTrue("Sample should be in file order", sample[i - 1] <= sample[i]);
+        }
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#fileSample(Path, int)} returns the whole file if {@code sampleSize} exceeds
+     * the file size
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testFileSampleWithExcessSize() throws Exception {
+        byte[] content = "THEQUICKBROWNFOXJUMPSOVERTHELAZYDOG".getBytes();
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        byte[] sample = new StreamSampler().fileSample(file, content.length + 10);
+        Assert.assertArrayEquals("Sample should have the whole file", content, sample);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#fileSample(Path, int)} returns an empty sample for an empty file
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be read
+     */
+    @Test
+    public void testFileSampleWithEmptyFile() throws Exception {
+        byte[] sample = new StreamSampler().fileSample(folder.newFile().toPath(), 10);
+        Assert.assertEquals("Sample should be empty", 0, sample.length);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#fileSample(Path, int)} throws {@link IllegalArgumentException} for 0
+     * {@code sampleSize}
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be read
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileSampleWithZeroSampleSize() throws Exception {
+        new StreamSampler().fileSample(folder.newFile().toPath(), 0);
+    }
+
+    /**
+     * Tests that {@link MethodD} selects distinct, increasing positions, each one with the same probability, for both
+     * the Method D and the Method A regimes
+     */
+    @Test
+    public void testMethodDIsUniform() {
+        int nRuns = 20000;
+        int[][] cases = {{5, 1000}, {50, 100}};
+        RandomSource random = new SplitMix64(0);
+        for (int[] testCase : cases) {
+            int n = testCase[0];
+            int bigN = testCase[1];
+            long[] hits = new long[bigN];
+            for (int run = 0; run < nRuns; run++) {
+                MethodD method = new MethodD(n, bigN, random);
+                long position = -1;
+                for (int i = 0; i < n; i++) {
+                    position += method.nextSkip() + 1;
+                    hits[(int) position]++;
+                }
+                Assert.assertTrue("Positions should stay within the records", position < bigN);
+            }
+            long firstTenth = 0;
+            long lastTenth = 0;
+            for (int i = 0; i < bigN / 10; i++) {
+                firstTenth += hits[i];
+                lastTenth += hits[bigN - 1 - i];
+            }
+            double total = nRuns * (double) n;
+            Assert.assertEquals("First tenth should be selected with probability 1/10", 0.1, firstTenth / total, 0.005);
+            Assert.assertEquals("Last tenth should be selected with probability 1/10", 0.1, lastTenth / total, 0.005);
+        }
+    }
+}
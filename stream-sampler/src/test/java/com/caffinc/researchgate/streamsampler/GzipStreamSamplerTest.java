@@ -0,0 +1,290 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the {@link StreamSampler#gzipSample(Path, int)} method on single-member, multi-member and BGZF files
+ *
+ * @author Sriram
+ */
+public class GzipStreamSamplerTest {
+    private static final int BGZF_BLOCK_SIZE = 0xff00;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the whole decompressed content is sampled if {@code sampleSize} exceeds it, whether the file has one
+     * member, many members or BGZF blocks
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testSampleHasAllBytes() throws Exception {
+        byte[] content = randomBytes(3 << 20, 0);
+        byte[][] files = {gzip(content), members(content, 1 << 18, Deflater.DEFAULT_COMPRESSION, false),
+                members(content, BGZF_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, true)};
+        for (byte[] compressed : files) {
+            byte[] sample = new StreamSampler(0).gzipSample(write(compressed), content.length + 10);
+            Assert.assertEquals("Sample should have the whole content", content.length, sample.length);
+            Assert.assertArrayEquals("Sample should have the bytes of the content", counts(content), counts(sample));
+        }
+    }
+
+    /**
+     * Tests that seeded samplers produce the same sample whatever the parallelism of the pool is
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testGzipSampleWithSeed() throws Exception {
+        byte[] content = randomBytes(3 << 20, 0);
+        ForkJoinPool singleThreaded = new ForkJoinPool(1);
+        ForkJoinPool multiThreaded = new ForkJoinPool(4);
+        try {
+            for (boolean bgzf : new boolean[]{true, false}) {
+                Path file = write(members(content, BGZF_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, bgzf));
+                byte[] first = new StreamSampler(0).gzipSample(file, 10, singleThreaded);
+                byte[] second = new StreamSampler(0).gzipSample(file, 10, multiThreaded);
+                Assert.assertArrayEquals("Seeded samples should be reproducible", first, second);
+            }
+        } finally {
+            singleThreaded.shutdown();
+            multiThreaded.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the members are sampled proportionally to their decompressed sizes: the last two thirds of the content
+     * have odd bytes, so two thirds of the sample should be odd
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testGzipSampleIsUniform() throws Exception {
+        byte[] content = randomBytes(3 << 20, 0);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (content[i] & 0xfe | (i >= content.length / 3 ? 1 : 0));
+        }
+        int sampleSize = 30000;
+        for (byte[] compressed : new byte[][]{gzip(content),
+                members(content, BGZF_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, true)}) {
+            long odd = 0;
+            for (byte b : new StreamSampler(0).gzipSample(write(compressed), sampleSize)) {
+                odd += b & 1;
+            }
+            Assert.assertEquals("Two thirds of the sample should come from the last two thirds", 2 / 3.0,
+                    odd / (double) sampleSize, 0.015);
+        }
+    }
+
+    /**
+     * Tests that bytes which look like member headers inside the members do not change the sample: stored members hold
+     * the content as is, so headers planted in the content appear in the file, and ranges starting at them have to be
+     * discarded
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testFalseMemberHeaders() throws Exception {
+        byte[] content = randomBytes(4 << 20, 0);
+        byte[] header = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        for (int i = 1000; i < content.length - header.length; i += 1 << 16) {
+            System.arraycopy(header, 0, content, i, header.length);
+        }
+        ForkJoinPool multiThreaded = new ForkJoinPool(4);
+        try {
+            for (int memberSize : new int[]{3 << 18, content.length}) {
+                Path file = write(members(content, memberSize, Deflater.NO_COMPRESSION, false));
+                byte[] sample = new StreamSampler(0).gzipSample(file, content.length, multiThreaded);
+                Assert.assertArrayEquals("Sample should have the bytes of the content", counts(content),
+                        counts(sample));
+                Assert.assertArrayEquals("Seeded samples should be reproducible",
+                        new StreamSampler(1).gzipSample(file, 10, ForkJoinPool.commonPool()),
+                        new StreamSampler(1).gzipSample(file, 10, multiThreaded));
+            }
+        } finally {
+            multiThreaded.shutdown();
+        }
+    }
+
+    /**
+     * Tests that files which are not gzip files, and members whose data or trailer is corrupt, are rejected
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written
+     */
+    @Test
+    public void testCorruptInputIsRejected() throws Exception {
+        byte[] content = randomBytes(3 << 20, 0);
+        byte[] corruptData = members(content, BGZF_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, true);
+        corruptData[corruptData.length / 2] ^= 1;
+        byte[] corruptTrailer = members(content, 1 << 18, Deflater.DEFAULT_COMPRESSION, false);
+        corruptTrailer[corruptTrailer.length - 1] ^= 1;
+        for (byte[] corrupt : new byte[][]{content, corruptData, corruptTrailer, new byte[0]}) {
+            try {
+                new StreamSampler(0).gzipSample(write(corrupt), 10);
+                Assert.fail("Corrupt input should be rejected");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Tests that the compressed bytes read and the decompressed bytes sampled are reported to the listener, whether the
+     * file is decompressed on a reader thread or in parallel
+     *
+     * @throws Exception {@link IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testGzipSampleMetrics() throws Exception {
+        byte[] content = randomBytes(3 << 20, 0);
+        byte[][] files = {gzip(content), members(content, BGZF_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, true)};
+        for (byte[] compressed : files) {
+            StreamSampler sampler = new StreamSampler(0);
+            SamplingMetrics metrics = new SamplingMetrics();
+            sampler.listener(metrics);
+            sampler.gzipSample(write(compressed), 10);
+            Assert.assertEquals("Bytes read should be the size of the file", compressed.length, metrics.getBytesRead());
+            Assert.assertEquals("Every decompressed byte should be counted", content.length, metrics.getElements());
+        }
+    }
+
+    /**
+     * Writes bytes to a new temporary file
+     *
+     * @param bytes Content of the file
+     * @return Path of the file
+     * @throws IOException Thrown when the file cannot be written
+     */
+    private Path write(byte[] bytes) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, bytes);
+        return file;
+    }
+
+    /**
+     * Generates random bytes
+     *
+     * @param length Number of bytes
+     * @param seed   Seed of the generator
+     * @return Random bytes
+     */
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Counts the occurrences of every byte value
+     *
+     * @param bytes Bytes to count
+     * @return Occurrences indexed by unsigned byte value
+     */
+    private static long[] counts(byte[] bytes) {
+        long[] counts = new long[256];
+        for (byte b : bytes) {
+            counts[b & 0xff]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Compresses bytes into a single gzip member with {@link GZIPOutputStream}
+     *
+     * @param content Bytes to compress
+     * @return Gzip file
+     * @throws IOException Not thrown when writing to memory
+     */
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compresses bytes into a sequence of gzip members of {@code memberSize} decompressed bytes, optionally as BGZF
+     * blocks followed by the empty BGZF end-of-file block
+     *
+     * @param content    Bytes to compress
+     * @param memberSize Number of bytes per member
+     * @param level      Compression level
+     * @param bgzf       {@code true} to write BGZF blocks
+     * @return Gzip file
+     * @throws IOException Not thrown when writing to memory
+     */
+    private static byte[] members(byte[] content, int memberSize, int level, boolean bgzf) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int from = 0; from < content.length; from += memberSize) {
+            member(out, content, from, Math.min(from + memberSize, content.length), level, bgzf);
+        }
+        if (bgzf) {
+            member(out, content, 0, 0, level, true);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a gzip member, with a BGZF extra field giving the size of the block if {@code bgzf} is set
+     *
+     * @param out     Stream to write the member to
+     * @param content Bytes to compress
+     * @param from    Position of the first byte of the member
+     * @param to      Position after the last byte of the member
+     * @param level   Compression level
+     * @param bgzf    {@code true} to write a BGZF block
+     * @throws IOException Not thrown when writing to memory
+     */
+    private static void member(ByteArrayOutputStream out, byte[] content, int from, int to, int level, boolean bgzf)
+            throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        deflater.setInput(content, from, to - from);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(content, from, to - from);
+        if (bgzf) {
+            int blockSize = 18 + compressed.size() + 8 - 1;
+            out.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                    (byte) blockSize, (byte) (blockSize >> 8)});
+        } else {
+            out.write(new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+        }
+        compressed.writeTo(out);
+        writeInt(out, crc.getValue());
+        writeInt(out, to - from);
+    }
+
+    /**
+     * Writes an integer as four little-endian bytes
+     *
+     * @param out   Stream to write to
+     * @param value Integer to write
+     */
+    private static void writeInt(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >> (8 * i)));
+        }
+    }
+}
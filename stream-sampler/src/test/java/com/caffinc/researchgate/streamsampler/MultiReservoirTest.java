@@ -0,0 +1,125 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the {@link MultiReservoir} and {@link MultiCharReservoir} classes and
+ * {@link StreamSampler#multiSample(java.io.InputStream, int, int)}
+ *
+ * @author Sriram
+ */
+public class MultiReservoirTest {
+    private String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG öäÄÜÖß";
+
+    /**
+     * Tests that every sample is the one of a single reservoir using the generator split for it, whether the values
+     * are offered one at a time or in bulk
+     */
+    @Test
+    public void testSamplesMatchSingleReservoirs() {
+        char[] values = new char[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (char) i;
+        }
+        int samples = 50;
+        MultiCharReservoir bulk = new MultiCharReservoir(10, samples, new SplitMix64(0));
+        MultiCharReservoir single = new MultiCharReservoir(10, samples, new SplitMix64(0));
+        bulk.offerAll(values, 0, 60000);
+        bulk.offerAll(values, 60000, 40000);
+        for (char value : values) {
+            single.offer(value);
+        }
+        RandomSource random = new SplitMix64(0);
+        for (int r = 0; r < samples; r++) {
+            CharReservoir reservoir = new CharReservoir(10, random.split());
+            reservoir.offerAll(values, 0, values.length);
+            Assert.assertArrayEquals("Sample " + r + " should match its reservoir", reservoir.snapshot(),
+                    bulk.snapshot(r));
+            Assert.assertArrayEquals("Sample " + r + " should match its reservoir", reservoir.snapshot(),
+                    single.snapshot(r));
+        }
+        Assert.assertEquals("Every value should be counted", values.length, bulk.count());
+    }
+
+    /**
+     * Tests that the samples are uniform and differ from each other
+     */
+    @Test
+    public void testSamplesAreUniformAndIndependent() {
+        int samples = 200;
+        int sampleSize = 10;
+        List<Integer> values = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+        MultiReservoir<Integer> reservoir = new MultiReservoir<>(sampleSize, samples, new SplitMix64(0));
+        reservoir.offerAll(values);
+        int[] deciles = new int[10];
+        long distinct = IntStream.range(0, samples).mapToObj(reservoir::snapshot).distinct().count();
+        Assert.assertEquals("Samples should differ", samples, distinct);
+        for (int r = 0; r < samples; r++) {
+            for (int value : reservoir.snapshot(r)) {
+                deciles[value / 1000]++;
+            }
+        }
+        for (int decile : deciles) {
+            Assert.assertEquals("Every decile should be a tenth of the samples", 0.1,
+                    decile / (double) (samples * sampleSize), 0.025);
+        }
+    }
+
+    /**
+     * Tests that {@link StreamSampler#multiSample(java.io.InputStream, int, int)} returns the whole input in every
+     * sample if {@code sampleSize} exceeds its length, and full samples otherwise
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testMultiSample() throws Exception {
+        List<String> samples = new StreamSampler(0).multiSample(stream(text), 100, 3);
+        Assert.assertEquals("There should be 3 samples", 3, samples.size());
+        for (String sample : samples) {
+            Assert.assertEquals("Sample should be the whole input", text, sample);
+        }
+        for (String sample : new StreamSampler(0).multiSample(stream(text), 5, 20)) {
+            Assert.assertEquals("Sample should be full", 5, sample.length());
+        }
+    }
+
+    /**
+     * Tests that samples outside of the reservoir and invalid sizes are rejected
+     */
+    @Test
+    public void testInvalidArguments() {
+        MultiCharReservoir reservoir = new MultiCharReservoir(5, 2, new SplitMix64(0));
+        try {
+            reservoir.snapshot(2);
+            Assert.fail("Sample should not exist");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+        int[][] invalid = {{0, 5}, {5, 0}, {1 << 16, 1 << 16}};
+        for (int[] sizes : invalid) {
+            try {
+                new MultiReservoir<Integer>(sizes[0], sizes[1], new SplitMix64(0));
+                Assert.fail("Sizes should be rejected: " + sizes[0] + " x " + sizes[1]);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
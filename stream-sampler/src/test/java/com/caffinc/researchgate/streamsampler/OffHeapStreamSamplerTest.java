@@ -0,0 +1,105 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Tests the {@link StreamSampler#offHeapSample(InputStream, int, java.io.Writer)} methods and the underlying
+ * {@link OffHeapCharReservoir}
+ *
+ * @author Sriram
+ */
+public class OffHeapStreamSamplerTest {
+    private String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG öäÄÜÖß";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that {@link StreamSampler#offHeapSample(InputStream, int, java.io.Writer)} writes the same sample as
+     * {@link StreamSampler#fastSample(InputStream, int)} with the same seed
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testOffHeapSampleMatchesFastSample() throws Exception {
+        StringWriter output = new StringWriter();
+        new StreamSampler(0).offHeapSample(stream(text), 10, output);
+        Assert.assertEquals("Off-heap sample should match the heap sample",
+                new StreamSampler(0).fastSample(stream(text), 10), output.toString());
+    }
+
+    /**
+     * Tests that {@link StreamSampler#offHeapSample(InputStream, int, Path, java.io.Writer)} writes the whole input
+     * if {@code sampleSize} exceeds its length
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testMappedSampleWithExcessSize() throws Exception {
+        StringWriter output = new StringWriter();
+        Path spill = folder.getRoot().toPath().resolve("sample.bin");
+        new StreamSampler(0).offHeapSample(stream(text), 100, spill, output);
+        Assert.assertEquals("Sample should be the whole input", text, output.toString());
+    }
+
+    /**
+     * Tests that samples spanning several chunks, in direct memory and in a mapped file, are stored and merged like
+     * heap samples
+     *
+     * @throws Exception {@link java.io.IOException} thrown if the file cannot be mapped
+     */
+    @Test
+    public void testOffHeapReservoirAcrossChunks() throws Exception {
+        char[] values = new char[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (char) i;
+        }
+        CharReservoir heap = new CharReservoir(1000, new SplitMix64(0));
+        CharReservoir otherHeap = new CharReservoir(1000, new SplitMix64(1));
+        heap.offerAll(values, 0, 50000);
+        otherHeap.offerAll(values, 50000, 50000);
+        heap.merge(otherHeap);
+        char[] expected = heap.snapshot();
+
+        Path spill = folder.getRoot().toPath().resolve("sample.bin");
+        try (OffHeapCharReservoir direct = new OffHeapCharReservoir(1000, new SplitMix64(0), 7);
+             OffHeapCharReservoir mapped = new OffHeapCharReservoir(1000, new SplitMix64(1), spill, 7)) {
+            direct.offerAll(values, 0, 50000);
+            mapped.offerAll(values, 50000, 50000);
+            direct.merge(mapped);
+            Assert.assertEquals("Sample should be full", 1000, direct.size());
+            for (int i = 0; i < expected.length; i++) {
+                Assert.assertEquals("Off-heap sample should match the heap sample", expected[i], direct.get(i));
+            }
+        }
+    }
+
+    /**
+     * Tests that {@link OffHeapCharReservoir#get(int)} rejects slots outside of the sample
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOffHeapReservoirGetOutsideOfSample() {
+        OffHeapCharReservoir reservoir = new OffHeapCharReservoir(10, new SplitMix64(0));
+        reservoir.offer('A');
+        reservoir.get(1);
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
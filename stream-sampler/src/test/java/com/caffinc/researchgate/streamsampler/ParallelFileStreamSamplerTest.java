@@ -0,0 +1,169 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests the {@link StreamSampler#parallelFileSample(Path, int)} method and the merging of {@link ByteReservoir}s
+ *
+ * @author Sriram
+ */
+public class ParallelFileStreamSamplerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the {@link StreamSampler#parallelFileSample(Path, int)} samples a file spanning several ranges
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testParallelFileSample() throws Exception {
+        byte[] content = new byte[5 << 20];
+        new Random(0).nextBytes(content);
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        int expectedSize = 100;
+        byte[] sample = new StreamSampler().parallelFileSample(file, expectedSize);
+        Assert.assertEquals("Sample should have " + expectedSize + " bytes", expectedSize, sample.length);
+    }
+
+    /**
+     * Tests that seeded samplers produce the same sample whatever the parallelism of the pool is
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testParallelFileSampleWithSeed() throws Exception {
+        byte[] content = new byte[5 << 20];
+        new Random(0).nextBytes(content);
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        ForkJoinPool singleThreaded = new ForkJoinPool(1);
+        ForkJoinPool multiThreaded = new ForkJoinPool(4);
+        try {
+            byte[] first = new StreamSampler(0).parallelFileSample(file, 10, singleThreaded);
+            byte[] second = new StreamSampler(0).parallelFileSample(file, 10, multiThreaded);
+            Assert.assertArrayEquals("Seeded samples should be reproducible", first, second);
+        } finally {
+            singleThreaded.shutdown();
+            multiThreaded.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#parallelFileSample(Path, int)} samples up to the file size if
+     * {@code sampleSize} exceeds it
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testParallelFileSampleWithExcessSize() throws Exception {
+        byte[] content = "THEQUICKBROWNFOXJUMPSOVERTHELAZYDOG".getBytes();
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        byte[] sample = new StreamSampler().parallelFileSample(file, content.length + 10);
+        Assert.assertArrayEquals("Sample should have the whole file", content, sample);
+    }
+
+    /**
+     * Tests that a range extending past the end of the file, as when the file is truncated while being sampled, fails
+     * instead of returning a sample of fewer bytes than it counted
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testTruncatedFileIsRejected() throws Exception {
+        byte[] content = new byte[1000];
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            FileRangeTask task = new FileRangeTask(channel, 0, 2 * content.length, 4, 500, new SplitMix64(0));
+            ForkJoinPool.commonPool().invoke(task);
+            Assert.fail("Truncated file should be rejected");
+        } catch (UncheckedIOException e) {
+            Assert.assertTrue("Failure should be an end of file", e.getCause() instanceof EOFException);
+        }
+    }
+
+    /**
+     * Tests that the ranges of a file are sampled proportionally to their sizes, even when they are split unevenly
+     *
+     * @throws Exception {@link java.io.IOException} thrown when the file cannot be written or read
+     */
+    @Test
+    public void testParallelFileSampleIsUniform() throws Exception {
+        int nRuns = 5000;
+        int sampleSize = 4;
+        byte[] content = new byte[30000];
+        for (int i = content.length / 3; i < content.length; i++) {
+            content[i] = 1;
+        }
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        long ones = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Random random = new Random(0);
+            for (int i = 0; i < nRuns; i++) {
+                FileRangeTask task = new FileRangeTask(channel, 0, content.length, sampleSize, 7000, new SplitMix64(random.nextLong()));
+                for (byte b : ForkJoinPool.commonPool().invoke(task).snapshot()) {
+                    ones += b;
+                }
+            }
+        }
+
+        double ratio = ones / (double) (nRuns * sampleSize);
+        Assert.assertEquals("Two thirds of the sample should come from the last two thirds", 2 / 3.0, ratio, 0.015);
+    }
+
+    /**
+     * Tests that a merged {@link ByteReservoir} keeps on sampling uniformly when offered more bytes
+     */
+    @Test
+    public void testMergedReservoirIsUniform() {
+        int nRuns = 5000;
+        int sampleSize = 8;
+        byte[] zeros = new byte[1000];
+        byte[] ones = new byte[3000];
+        byte[] twos = new byte[4000];
+        Arrays.fill(ones, (byte) 1);
+        Arrays.fill(twos, (byte) 2);
+
+        Random random = new Random(0);
+        long[] hits = new long[3];
+        for (int i = 0; i < nRuns; i++) {
+            ByteReservoir left = new ByteReservoir(sampleSize, new SplitMix64(random.nextLong()));
+            ByteReservoir right = new ByteReservoir(sampleSize, new SplitMix64(random.nextLong()));
+            left.offerAll(zeros, 0, zeros.length);
+            right.offerAll(ones, 0, ones.length);
+            left.merge(right);
+            left.offerAll(twos, 0, twos.length);
+            Assert.assertEquals("Merged reservoir should count all bytes", 8000, left.count());
+            for (byte b : left.snapshot()) {
+                hits[b]++;
+            }
+        }
+
+        double total = nRuns * sampleSize;
+        Assert.assertEquals("Left bytes should be sampled proportionally", 1 / 8.0, hits[0] / total, 0.01);
+        Assert.assertEquals("Right bytes should be sampled proportionally", 3 / 8.0, hits[1] / total, 0.01);
+        Assert.assertEquals("Bytes offered after the merge should be sampled proportionally", 4 / 8.0, hits[2] / total, 0.01);
+    }
+}
@@ -0,0 +1,200 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Tests the {@link StreamSampler#pipelinedSample(InputStream, int)} method and the underlying
+ * {@link PipelinedInputStream}
+ *
+ * @author Sriram
+ */
+public class PipelinedStreamSamplerTest {
+    private String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG öäÄÜÖß";
+
+    /**
+     * Tests that {@link StreamSampler#pipelinedSample(InputStream, int)} returns the same sample as
+     * {@link StreamSampler#fastSample(InputStream, int)} with the same seed
+     *
+     * @throws Exception {@link IOException} thrown by the passed {@link InputStream}'s read method
+     */
+    @Test
+    public void testPipelinedSampleMatchesFastSample() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append(text);
+        }
+        String input = builder.toString();
+        Assert.assertEquals("Pipelined sample should match the fast sample",
+                new StreamSampler(0).fastSample(stream(input), 10), new StreamSampler(0).pipelinedSample(stream(input), 10));
+        Assert.assertEquals("Sample should be the whole input", text,
+                new StreamSampler(0).pipelinedSample(stream(text), 100));
+    }
+
+    /**
+     * Tests that the bytes of a source larger than the ring are read back in order, one at a time, into arrays and
+     * into buffers, from a source returning a few bytes at a time
+     *
+     * @throws Exception {@link IOException} not thrown when reading from memory
+     */
+    @Test
+    public void testStreamReadsSourceInOrder() throws Exception {
+        byte[] input = new byte[100000];
+        new Random(0).nextBytes(input);
+        InputStream source = new ByteArrayInputStream(input) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 13));
+            }
+        };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PipelinedInputStream pipelined = new PipelinedInputStream(source, 3, 64)) {
+            byte[] buffer = new byte[50];
+            ByteBuffer direct = ByteBuffer.allocateDirect(37);
+            int value;
+            for (int i = 0; (value = pipelined.read()) >= 0; i++) {
+                output.write(value);
+                int length = pipelined.read(buffer, 0, i % buffer.length);
+                output.write(buffer, 0, Math.max(0, length));
+                if (pipelined.read(direct) > 0) {
+                    direct.flip();
+                    while (direct.hasRemaining()) {
+                        output.write(direct.get());
+                    }
+                    direct.clear();
+                }
+            }
+            Assert.assertEquals("End of stream should be reported again", -1, pipelined.read(buffer, 0, 10));
+        }
+        Assert.assertArrayEquals("Bytes should be read in order", input, output.toByteArray());
+    }
+
+    /**
+     * Tests that a failure of the source is thrown to the consumer once the bytes read before it are consumed
+     *
+     * @throws Exception {@link IOException} thrown by the source
+     */
+    @Test
+    public void testSourceFailureIsPropagated() throws Exception {
+        InputStream source = new InputStream() {
+            private int calls;
+
+            @Override
+            public int read() {
+                return 'A';
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (calls++ > 0) {
+                    throw new IOException("Failed");
+                }
+                buffer[offset] = 'A';
+                return 1;
+            }
+        };
+        try (PipelinedInputStream pipelined = new PipelinedInputStream(source, 2, 16)) {
+            Assert.assertEquals("Bytes read before the failure should be consumed", 'A', pipelined.read());
+            pipelined.read();
+            Assert.fail("Failure should be thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("Failure should be the one of the source", "Failed", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that an unchecked failure of the source is thrown to the consumer instead of ending the stream early
+     *
+     * @throws Exception {@link IOException} not thrown by the source
+     */
+    @Test
+    public void testUncheckedSourceFailureIsPropagated() throws Exception {
+        InputStream source = new InputStream() {
+            private int calls;
+
+            @Override
+            public int read() {
+                return 'A';
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (calls++ > 0) {
+                    throw new UncheckedIOException(new IOException("Failed"));
+                }
+                buffer[offset] = 'A';
+                return 1;
+            }
+        };
+        try (PipelinedInputStream pipelined = new PipelinedInputStream(source, 2, 16)) {
+            Assert.assertEquals("Bytes read before the failure should be consumed", 'A', pipelined.read());
+            pipelined.read();
+            Assert.fail("Failure should be thrown");
+        } catch (UncheckedIOException e) {
+            Assert.assertEquals("Failure should be the one of the source", "Failed", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Tests that a closed stream cannot be read
+     *
+     * @throws Exception {@link IOException} thrown when reading the closed stream
+     */
+    @Test(expected = IOException.class)
+    public void testClosedStreamCannotBeRead() throws Exception {
+        PipelinedInputStream pipelined = new PipelinedInputStream(stream(text));
+        pipelined.close();
+        Assert.assertFalse("Channel should be closed", pipelined.isOpen());
+        pipelined.read();
+    }
+
+    /**
+     * Tests that the command line samples the same with and without a pipeline
+     *
+     * @throws Exception {@link IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testCommandWithPipeline() throws Exception {
+        String[][] commands = {{"-s", "3", "5"}, {"-u", "line", "-s", "3", "2"}, {"-u", "byte", "-s", "3", "5"}};
+        for (String[] args : commands) {
+            String[] pipelinedArgs = new String[args.length + 2];
+            pipelinedArgs[0] = "--pipeline";
+            pipelinedArgs[1] = "4";
+            System.arraycopy(args, 0, pipelinedArgs, 2, args.length);
+            Assert.assertEquals("Pipeline should not change the sample", run(args), run(pipelinedArgs));
+        }
+    }
+
+    /**
+     * Runs the command line on {@link #text}
+     *
+     * @param args Command line arguments
+     * @return Content of stdout
+     * @throws Exception {@link IOException} thrown by the command
+     */
+    private String run(String... args) throws Exception {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        SamplerCommand.parse(args).run(Channels.newChannel(stream(text + "\n" + text)), stdout);
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+/**
+ * Tests the {@link RandomSource} implementations and the bounded draws derived from them
+ *
+ * @author Sriram
+ */
+public class RandomSourceTest {
+    /**
+     * Tests that {@link SplitMix64} produces the same sequence as {@link SplittableRandom}, also after splitting
+     */
+    @Test
+    public void testSplitMix64MatchesSplittableRandom() {
+        SplitMix64 random = new SplitMix64(42);
+        SplittableRandom expected = new SplittableRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("Sequences should match", expected.nextLong(), random.nextLong());
+        }
+        RandomSource split = random.split();
+        SplittableRandom expectedSplit = expected.split();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("Split sequences should match", expectedSplit.nextLong(), split.nextLong());
+        }
+    }
+
+    /**
+     * Tests {@link Xoroshiro128PlusPlus} against a known value of its sequence
+     */
+    @Test
+    public void testXoroshiro128PlusPlusKnownValue() {
+        Assert.assertEquals("First value should match the reference implementation",
+                8027914721839836897L, new Xoroshiro128PlusPlus(0).nextLong());
+    }
+
+    /**
+     * Tests that seeded generators and the generators split from them are reproducible, and that split generators
+     * differ from their parents
+     */
+    @Test
+    public void testSplitIsReproducible() {
+        RandomSource first = new Xoroshiro128PlusPlus(7);
+        RandomSource second = new Xoroshiro128PlusPlus(7);
+        RandomSource firstSplit = first.split();
+        RandomSource secondSplit = second.split();
+        for (int i = 0; i < 100; i++) {
+            long value = firstSplit.nextLong();
+            Assert.assertEquals("Split generators should be reproducible", value, secondSplit.nextLong());
+            Assert.assertNotEquals("Split generators should differ from their parents", value, first.nextLong());
+        }
+    }
+
+    /**
+     * Tests that {@link RandomSource#nextInt(int)} stays within its bound and is uniform for a bound which does not
+     * divide 2^32
+     */
+    @Test
+    public void testNextIntIsUniform() {
+        int bound = 7;
+        int nDraws = 700000;
+        RandomSource random = new Xoroshiro128PlusPlus(0);
+        long[] counts = new long[bound];
+        for (int i = 0; i < nDraws; i++) {
+            counts[random.nextInt(bound)]++;
+        }
+        for (long count : counts) {
+            Assert.assertEquals("Every value should be drawn as often", 1.0 / bound, count / (double) nDraws, 0.003);
+        }
+    }
+
+    /**
+     * Tests that {@link RandomSource#nextLong(long)} stays within its bound and is uniform for a bound close to 2^63,
+     * where the modulo of a random long is biased towards the lower third of the range
+     */
+    @Test
+    public void testNextLongIsUniform() {
+        long bound = Long.MAX_VALUE / 3 * 2;
+        int nDraws = 300000;
+        RandomSource random = new SplitMix64(0);
+        long lower = 0;
+        for (int i = 0; i < nDraws; i++) {
+            long value = random.nextLong(bound);
+            Assert.assertTrue("Values should be within the bound", value >= 0 && value < bound);
+            if (value < bound / 2) {
+                lower++;
+            }
+        }
+        Assert.assertEquals("Both halves of the range should be drawn as often", 0.5, lower / (double) nDraws, 0.005);
+    }
+
+    /**
+     * Tests that {@link RandomSource#nextDouble()} stays within [0, 1)
+     */
+    @Test
+    public void testNextDoubleIsWithinRange() {
+        RandomSource random = new Xoroshiro128PlusPlus(0);
+        double sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextDouble();
+            Assert.assertTrue("Values should be within [0, 1)", value >= 0 && value < 1);
+            sum += value;
+        }
+        Assert.assertEquals("Values should average to 0.5", 0.5, sum / 100000, 0.005);
+    }
+
+    /**
+     * Tests that bounded draws throw {@link IllegalArgumentException} for a bound of 0
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextIntWithZeroBound() {
+        new SplitMix64(0).nextInt(0);
+    }
+
+    /**
+     * Tests that {@link Xoroshiro128PlusPlus} throws {@link IllegalArgumentException} for an all zero state
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testXoroshiro128PlusPlusWithZeroState() {
+        new Xoroshiro128PlusPlus(0, 0);
+    }
+}
@@ -0,0 +1,176 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the {@link StreamSampler#lineSample(InputStream, int)} and
+ * {@link StreamSampler#recordSample(InputStream, int, byte)} methods, and the underlying {@link RecordReservoir}
+ *
+ * @author Sriram
+ */
+public class RecordStreamSamplerTest {
+    private String text = "THE\r\nQUICK\nBROWN\nFOX\n\nJUMPS öäÄÜÖß\nOVER";
+
+    /**
+     * Tests {@link StreamSampler#lineSample(InputStream, int)} when a {@link java.io.InputStream} is passed to it
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testLineSample() throws Exception {
+        int expectedSize = 3;
+        List<String> sample = new StreamSampler().lineSample(stream(text), expectedSize);
+        Assert.assertEquals("Sample should have " + expectedSize + " lines", expectedSize, sample.size());
+        List<String> lines = Arrays.asList("THE", "QUICK", "BROWN", "FOX", "", "JUMPS öäÄÜÖß", "OVER");
+        for (String line : sample) {
+            Assert.assertTrue("Sample should only have lines from the input", lines.contains(line));
+        }
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#lineSample(InputStream, int)} returns all lines, including empty and
+     * unterminated ones, if {@code sampleSize} exceeds the number of lines
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testLineSampleWithExcessSize() throws Exception {
+        List<String> sample = new StreamSampler().lineSample(stream(text), 10);
+        Assert.assertEquals("Sample should have all lines",
+                Arrays.asList("THE", "QUICK", "BROWN", "FOX", "", "JUMPS öäÄÜÖß", "OVER"), sample);
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#recordSample(InputStream, int, byte)} splits records on the given delimiter
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testRecordSampleWithDelimiter() throws Exception {
+        List<byte[]> sample = new StreamSampler().recordSample(stream("A,BB,CCC,"), 10, (byte) ',');
+        Assert.assertEquals("Sample should have all records", 3, sample.size());
+        Assert.assertArrayEquals("Records should not contain the delimiter", "CCC".getBytes(), sample.get(2));
+    }
+
+    /**
+     * Tests that the {@link StreamSampler#lineSample(InputStream, int)} throws {@link IllegalArgumentException} for 0
+     * {@code sampleSize}
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testLineSampleWithZeroSampleSize() throws Exception {
+        new StreamSampler().lineSample(stream(text), 0);
+    }
+
+    /**
+     * Tests that records spanning several buffers are sampled whole, and that every record has the same probability to
+     * be sampled, whatever its length
+     */
+    @Test
+    public void testRecordSampleIsUniform() {
+        int nRuns = 5000;
+        int sampleSize = 4;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            // Short records in the first half, long ones in the second half
+            input.append(i < 200 ? "a" : "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb").append('\n');
+        }
+        byte[] bytes = input.toString().getBytes(StandardCharsets.UTF_8);
+
+        RandomSource random = new SplitMix64(0);
+        long longRecords = 0;
+        for (int i = 0; i < nRuns; i++) {
+            RecordReservoir reservoir = new RecordReservoir(sampleSize, (byte) '\n', random);
+            for (int offset = 0; offset < bytes.length; offset += 37) {
+                reservoir.offerAll(bytes, offset, Math.min(37, bytes.length - offset));
+            }
+            Assert.assertEquals("Reservoir should count all records", 400, reservoir.count());
+            for (byte[] record : reservoir.snapshot()) {
+                Assert.assertTrue("Records should be sampled whole", record.length == 1 || record.length == 50);
+                if (record.length == 50) {
+                    longRecords++;
+                }
+            }
+        }
+
+        double ratio = longRecords / (double) (nRuns * sampleSize);
+        Assert.assertEquals("Short and long records should be sampled equally", 0.5, ratio, 0.015);
+    }
+
+    /**
+     * Tests that merging two {@link RecordReservoir}s weights their records by their counts
+     */
+    @Test
+    public void testMergedReservoirIsUniform() {
+        int nRuns = 5000;
+        int sampleSize = 4;
+        byte[] left = "x\nx\nx\nx\nx\n".getBytes();
+        byte[] right = "yy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\nyy\n".getBytes();
+
+        RandomSource random = new SplitMix64(0);
+        long rightRecords = 0;
+        for (int i = 0; i < nRuns; i++) {
+            RecordReservoir leftReservoir = new RecordReservoir(sampleSize, (byte) '\n', random);
+            RecordReservoir rightReservoir = new RecordReservoir(sampleSize, (byte) '\n', random);
+            leftReservoir.offerAll(left, 0, left.length);
+            rightReservoir.offerAll(right, 0, right.length);
+            leftReservoir.merge(rightReservoir);
+            for (byte[] record : leftReservoir.snapshot()) {
+                if (record.length == 2) {
+                    rightRecords++;
+                }
+            }
+        }
+
+        double ratio = rightRecords / (double) (nRuns * sampleSize);
+        Assert.assertEquals("Records should be sampled proportionally to the counts", 0.75, ratio, 0.015);
+    }
+
+    /**
+     * Tests that records offered from direct buffers, spanning several buffers, are sampled like the same bytes offered
+     * from an array
+     */
+    @Test
+    public void testDirectBufferMatchesArray() {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            builder.append("x".repeat(random.nextInt(300))).append(i).append('\n');
+        }
+        byte[] input = builder.toString().getBytes(StandardCharsets.UTF_8);
+        RecordReservoir expected = new RecordReservoir(10, (byte) '\n', new SplitMix64(0));
+        expected.offerAll(input, 0, input.length);
+
+        RecordReservoir actual = new RecordReservoir(10, (byte) '\n', new SplitMix64(0));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(97);
+        for (int i = 0; i < input.length; i += buffer.capacity()) {
+            buffer.clear();
+            buffer.put(input, i, Math.min(buffer.capacity(), input.length - i)).flip();
+            actual.offerAll(buffer);
+            Assert.assertFalse("Buffer should be consumed", buffer.hasRemaining());
+        }
+        Assert.assertEquals("Records should be counted", 1000, actual.count());
+        Assert.assertArrayEquals("Direct buffers should be sampled like arrays", expected.snapshot().toArray(),
+                actual.snapshot().toArray());
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of a String
+     *
+     * @param text Content of the stream
+     * @return Stream of the content
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
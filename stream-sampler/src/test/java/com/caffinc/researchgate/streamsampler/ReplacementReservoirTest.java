@@ -0,0 +1,115 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the {@link ReplacementReservoir} and {@link CharReplacementReservoir} classes and
+ * {@link StreamSampler#replacementSample(java.io.InputStream, int)}
+ *
+ * @author Sriram
+ */
+public class ReplacementReservoirTest {
+    private String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG öäÄÜÖß";
+
+    /**
+     * Tests that every slot holds a uniform element, and that the slots are independent: drawing 5 of 10 elements with
+     * replacement gives 5 distinct elements with probability {@code 10 * 9 * 8 * 7 * 6 / 10^5}, in both modes
+     */
+    @Test
+    public void testSampleIsUniformWithReplacement() {
+        List<Integer> values = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        int nRuns = 20000;
+        RandomSource random = new SplitMix64(0);
+        for (boolean skipAhead : new boolean[]{true, false}) {
+            int[] counts = new int[10];
+            int distinctRuns = 0;
+            for (int run = 0; run < nRuns; run++) {
+                ReplacementReservoir<Integer> reservoir = new ReplacementReservoir<>(5, random, skipAhead);
+                reservoir.offerAll(values);
+                List<Integer> sample = reservoir.snapshot();
+                Assert.assertEquals("Sample should be full", 5, sample.size());
+                sample.forEach(value -> counts[value]++);
+                if (sample.stream().distinct().count() == 5) {
+                    distinctRuns++;
+                }
+            }
+            for (int count : counts) {
+                Assert.assertEquals("Every element should be a tenth of the samples", 0.1,
+                        count / (double) (nRuns * 5), 0.01);
+            }
+            Assert.assertEquals("Slots should be independent", 0.3024, distinctRuns / (double) nRuns, 0.02);
+        }
+    }
+
+    /**
+     * Tests that a large sample of a long stream has the expected number of distinct elements,
+     * {@code n (1 - (1 - 1/n)^k)}, while drawing few random numbers
+     */
+    @Test
+    public void testLargeSampleWithSkipAhead() {
+        int n = 100000;
+        int k = 100000;
+        SamplingMetrics metrics = new SamplingMetrics();
+        ReplacementReservoir<Integer> reservoir = new ReplacementReservoir<>(k,
+                new CountingRandomSource(new SplitMix64(0), metrics));
+        reservoir.offerAll(IntStream.range(0, n).boxed().collect(Collectors.toList()));
+        double expected = n * -Math.expm1(k * Math.log1p(-1.0 / n));
+        Assert.assertEquals("Number of distinct elements should match its expectation", expected,
+                reservoir.snapshot().stream().distinct().count(), expected * 0.01);
+        Assert.assertTrue("Random draws should be proportional to the replacements, not to n * k",
+                metrics.getRandomDraws() < 3L * k * Math.log(n));
+    }
+
+    /**
+     * Tests that values offered one at a time and in bulk are sampled the same in skip-ahead mode
+     */
+    @Test
+    public void testBulkOffersMatchSingleOffers() {
+        char[] values = new char[50000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (char) i;
+        }
+        CharReplacementReservoir bulk = new CharReplacementReservoir(20, new SplitMix64(0));
+        CharReplacementReservoir single = new CharReplacementReservoir(20, new SplitMix64(0));
+        bulk.offerAll(values, 0, 30000);
+        bulk.offerAll(values, 30000, 20000);
+        for (char value : values) {
+            single.offer(value);
+        }
+        Assert.assertArrayEquals("Bulk offers should sample like single offers", single.snapshot(), bulk.snapshot());
+        Assert.assertEquals("Every value should be counted", values.length, bulk.count());
+    }
+
+    /**
+     * Tests that {@link StreamSampler#replacementSample(java.io.InputStream, int)} draws {@code sampleSize} characters
+     * of the input, even when it exceeds the length of the input, and none from an empty input
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testReplacementSample() throws Exception {
+        String sample = new StreamSampler(0).replacementSample(stream(text), 100);
+        Assert.assertEquals("Sample should have 100 characters", 100, sample.length());
+        sample.chars().forEach(c -> Assert.assertTrue("Sample should only have characters of the input",
+                text.indexOf(c) >= 0));
+        Assert.assertEquals("Sample of an empty input should be empty", "",
+                new StreamSampler(0).replacementSample(stream(""), 10));
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Tests the {@link ReservoirCollectors} class
+ *
+ * @author Sriram
+ */
+public class ReservoirCollectorsTest {
+    /**
+     * Tests that a sequential stream is sampled like a {@link Reservoir} using the first generator split from the seed
+     */
+    @Test
+    public void testSequentialSampleMatchesReservoir() {
+        List<Integer> sample = IntStream.range(0, 10000).boxed().collect(ReservoirCollectors.sample(10, 0));
+        Reservoir<Integer> reservoir = new Reservoir<>(10, new Xoroshiro128PlusPlus(0).split());
+        for (int i = 0; i < 10000; i++) {
+            reservoir.offer(i);
+        }
+        Assert.assertEquals("Collector should sample like a reservoir", reservoir.snapshot(), sample);
+
+        int[] values = ReservoirCollectors.sample(IntStream.range(0, 10000), 10, 0);
+        Assert.assertArrayEquals("Primitive sample should match the boxed one",
+                sample.stream().mapToInt(Integer::intValue).toArray(), values);
+    }
+
+    /**
+     * Tests that parallel streams, whose partial samples are merged, sample every part of the stream uniformly
+     */
+    @Test
+    public void testParallelSampleIsUniform() {
+        int nRuns = 2000;
+        int sampleSize = 10;
+        int[] deciles = new int[10];
+        RandomSource random = new SplitMix64(0);
+        for (int run = 0; run < nRuns; run++) {
+            List<Integer> sample = IntStream.range(0, 100000).parallel().boxed()
+                    .collect(ReservoirCollectors.sample(sampleSize, random));
+            Assert.assertEquals("Sample should have distinct elements", sampleSize,
+                    sample.stream().distinct().count());
+            for (int value : sample) {
+                deciles[value / 10000]++;
+            }
+        }
+        for (int decile : deciles) {
+            Assert.assertEquals("Every decile should be a tenth of the sample", 0.1,
+                    decile / (double) (nRuns * sampleSize), 0.01);
+        }
+    }
+
+    /**
+     * Tests that the primitive variants return the whole stream if {@code sampleSize} exceeds its length
+     */
+    @Test
+    public void testPrimitiveSamplesWithExcessSize() {
+        long[] longs = ReservoirCollectors.sample(LongStream.range(0, 50).parallel(), 100, 0);
+        Arrays.sort(longs);
+        Assert.assertArrayEquals("Sample should be the whole stream", LongStream.range(0, 50).toArray(), longs);
+        double[] doubles = ReservoirCollectors.sample(DoubleStream.of(0.5, 1.5), 100, new SplitMix64(0));
+        Assert.assertArrayEquals("Sample should be the whole stream", new double[]{0.5, 1.5}, doubles, 0);
+        Assert.assertEquals("Empty stream should have an empty sample", 0,
+                IntStream.empty().boxed().collect(ReservoirCollectors.sample(5, 0)).size());
+    }
+
+    /**
+     * Tests that a non-positive sample size is rejected when the collector is created
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollectorWithInvalidSampleSize() {
+        ReservoirCollectors.sample(0, 0);
+    }
+
+    /**
+     * Tests that samples of strings can be collected from a parallel stream
+     */
+    @Test
+    public void testParallelSampleOfObjects() {
+        List<String> words = IntStream.range(0, 1000).mapToObj(i -> "word" + i).collect(Collectors.toList());
+        List<String> sample = words.parallelStream().collect(ReservoirCollectors.sample(20, 0));
+        Assert.assertEquals("Sample should be full", 20, sample.size());
+        Assert.assertTrue("Sample should only have words of the stream", words.containsAll(sample));
+    }
+}
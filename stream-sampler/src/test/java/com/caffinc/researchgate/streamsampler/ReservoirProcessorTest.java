@@ -0,0 +1,142 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the {@link ReservoirProcessor} class
+ *
+ * @author Sriram
+ */
+public class ReservoirProcessorTest {
+    /**
+     * Tests that the sample of a published stream is the sample of a {@link Reservoir} offered the same items with the
+     * same seed
+     *
+     * @throws Exception {@link ExecutionException} thrown if the stream fails
+     */
+    @Test
+    public void testProcessorMatchesReservoir() throws Exception {
+        ReservoirProcessor<Integer> processor = new ReservoirProcessor<>(10, new SplitMix64(0), 64);
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            for (int i = 0; i < 10000; i++) {
+                publisher.submit(i);
+            }
+        }
+        Reservoir<Integer> reservoir = new Reservoir<>(10, new SplitMix64(0));
+        for (int i = 0; i < 10000; i++) {
+            reservoir.offer(i);
+        }
+        Assert.assertEquals("Processor should sample like a reservoir", reservoir.snapshot(),
+                processor.result().get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that items are requested in batches, and that the demand never exceeds the batch size
+     */
+    @Test
+    public void testItemsAreRequestedInBatches() {
+        int batchSize = 100;
+        ReservoirProcessor<Integer> processor = new ReservoirProcessor<>(10, new SplitMix64(0), batchSize);
+        List<Long> requests = new ArrayList<>();
+        processor.onSubscribe(subscription(requests));
+        long requested = 0;
+        for (int i = 0; i < 1000; i++) {
+            requested = requests.stream().mapToLong(Long::longValue).sum();
+            Assert.assertTrue("Demand should not exceed the batch size", requested - i <= batchSize);
+            Assert.assertTrue("Publisher should not be starved", requested - i > batchSize / 2);
+            processor.onNext(i);
+        }
+        Assert.assertTrue("Requests should be batched", requests.size() <= 1000 / (batchSize / 2) + 1);
+        Assert.assertTrue("Every request should be half a batch or more",
+                requests.stream().allMatch(request -> request >= batchSize / 2));
+
+        List<Long> secondRequests = new ArrayList<>();
+        processor.onSubscribe(subscription(secondRequests));
+        Assert.assertEquals("Second subscription should be cancelled", -1L, (long) secondRequests.get(0));
+    }
+
+    /**
+     * Tests that periodic samples and the final sample are published downstream
+     *
+     * @throws Exception {@link ExecutionException} thrown if the stream fails
+     */
+    @Test
+    public void testSamplesArePublishedDownstream() throws Exception {
+        ReservoirProcessor<Integer> processor = new ReservoirProcessor<>(5, new SplitMix64(0), 16, 100,
+                Runnable::run);
+        List<List<Integer>> samples = new ArrayList<>();
+        CompletableFuture<Void> done = processor.consume(samples::add);
+        processor.onSubscribe(subscription(new ArrayList<>()));
+        for (int i = 0; i < 1000; i++) {
+            processor.onNext(i);
+        }
+        processor.onComplete();
+        done.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Every periodic sample and the final one should be published", 11, samples.size());
+        Assert.assertEquals("Last sample should be the final one", processor.result().get(), samples.get(10));
+        for (List<Integer> sample : samples) {
+            Assert.assertEquals("Every sample should be full", 5, sample.size());
+        }
+    }
+
+    /**
+     * Tests that a failure of the upstream publisher fails the final sample and the downstream subscribers
+     *
+     * @throws Exception {@link InterruptedException} thrown if the test is interrupted
+     */
+    @Test
+    public void testFailureIsPropagated() throws Exception {
+        ReservoirProcessor<Integer> processor = new ReservoirProcessor<>(5, new SplitMix64(0), 16, 0, Runnable::run);
+        CompletableFuture<Void> done = processor.consume(sample -> {
+        });
+        processor.onSubscribe(subscription(new ArrayList<>()));
+        processor.onNext(1);
+        processor.onError(new IllegalStateException("Failed"));
+        for (CompletableFuture<?> future : new CompletableFuture<?>[]{processor.result(), done}) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail("Future should fail");
+            } catch (ExecutionException e) {
+                Assert.assertEquals("Failure should be propagated", "Failed", e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tests that a non-positive batch size is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testProcessorWithInvalidBatchSize() {
+        new ReservoirProcessor<Integer>(5, new SplitMix64(0), 0);
+    }
+
+    /**
+     * Creates a subscription recording the requests made to it, and cancellations as {@code -1}
+     *
+     * @param requests List to record the requests in
+     * @return Subscription
+     */
+    private static Flow.Subscription subscription(List<Long> requests) {
+        return new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requests.add(n);
+            }
+
+            @Override
+            public void cancel() {
+                requests.add(-1L);
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the push based {@link Reservoir} and its primitive specializations
+ *
+ * @author Sriram
+ */
+public class ReservoirTest {
+    /**
+     * Tests that a {@link Reservoir} keeps all offered objects when fewer than {@code sampleSize} are offered
+     */
+    @Test
+    public void testReservoirWithExcessSize() {
+        Reservoir<String> reservoir = new Reservoir<>(10, new SplitMix64(0));
+        reservoir.offer("THE");
+        reservoir.offerAll(Arrays.asList("QUICK", "BROWN"));
+        reservoir.offerAll(new String[]{"FOX", "JUMPS", "OVER"}, 1, 1);
+        Assert.assertEquals("Reservoir should count all objects", 4, reservoir.count());
+        Assert.assertEquals("Sample should have all objects", Arrays.asList("THE", "QUICK", "BROWN", "JUMPS"),
+                reservoir.snapshot());
+    }
+
+    /**
+     * Tests that offering to a {@link Reservoir} through random access lists, other iterables and one by one produces
+     * the same sample
+     */
+    @Test
+    public void testReservoirOfferAllMatchesOffer() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            values.add(i);
+        }
+
+        Reservoir<Integer> single = new Reservoir<>(16, new SplitMix64(0));
+        for (Integer value : values) {
+            single.offer(value);
+        }
+        Reservoir<Integer> randomAccess = new Reservoir<>(16, new SplitMix64(0));
+        randomAccess.offerAll(values);
+        Reservoir<Integer> sequential = new Reservoir<>(16, new SplitMix64(0));
+        sequential.offerAll(new LinkedList<>(values));
+
+        Assert.assertEquals("Random access offers should sample the same objects", single.snapshot(), randomAccess.snapshot());
+        Assert.assertEquals("Sequential offers should sample the same objects", single.snapshot(), sequential.snapshot());
+    }
+
+    /**
+     * Tests that offering to an {@link IntReservoir} in bulk and one by one produces the same sample
+     */
+    @Test
+    public void testIntReservoirOfferAllMatchesOffer() {
+        int[] values = new Random(1).ints(100000).toArray();
+
+        IntReservoir single = new IntReservoir(16, new SplitMix64(0));
+        for (int value : values) {
+            single.offer(value);
+        }
+        IntReservoir bulk = new IntReservoir(16, new SplitMix64(0));
+        for (int offset = 0; offset < values.length; offset += 333) {
+            bulk.offerAll(values, offset, Math.min(333, values.length - offset));
+        }
+
+        Assert.assertEquals("Both reservoirs should have seen all values", values.length, bulk.count());
+        Assert.assertArrayEquals("Bulk and single offers should sample the same values", single.snapshot(), bulk.snapshot());
+    }
+
+    /**
+     * Tests that a {@link CharReservoir} samples the characters of a {@link CharSequence} like those of an array
+     */
+    @Test
+    public void testCharReservoirOfferAllCharSequence() {
+        String text = "THEQUICKBROWNFOXJUMPSOVERTHELAZYDOG";
+        CharReservoir sequence = new CharReservoir(5, new SplitMix64(0));
+        sequence.offerAll(text);
+        CharReservoir array = new CharReservoir(5, new SplitMix64(0));
+        array.offerAll(text.toCharArray());
+        Assert.assertArrayEquals("Sequences and arrays should sample the same characters", array.snapshot(), sequence.snapshot());
+    }
+
+    /**
+     * Tests that merging {@link LongReservoir}s weights their samples by their counts
+     */
+    @Test
+    public void testLongReservoirMergeIsUniform() {
+        int nRuns = 5000;
+        int sampleSize = 8;
+        RandomSource random = new SplitMix64(0);
+        long rightValues = 0;
+        for (int i = 0; i < nRuns; i++) {
+            LongReservoir left = new LongReservoir(sampleSize, random);
+            LongReservoir right = new LongReservoir(sampleSize, random);
+            for (int j = 0; j < 100; j++) {
+                left.offer(0L);
+            }
+            for (int j = 0; j < 300; j++) {
+                right.offer(1L);
+            }
+            left.merge(right);
+            Assert.assertEquals("Merged reservoir should count all values", 400, left.count());
+            for (long value : left.snapshot()) {
+                rightValues += value;
+            }
+        }
+        Assert.assertEquals("Values should be sampled proportionally to the counts", 0.75,
+                rightValues / (double) (nRuns * sampleSize), 0.015);
+    }
+
+    /**
+     * Tests that merging two partially filled {@link DoubleReservoir}s keeps all their values
+     */
+    @Test
+    public void testDoubleReservoirMergeWithExcessSize() {
+        DoubleReservoir left = new DoubleReservoir(10, new SplitMix64(0));
+        DoubleReservoir right = new DoubleReservoir(10, new SplitMix64(0));
+        left.offerAll(1.0, 2.0);
+        right.offerAll(3.0, 4.0, 5.0);
+        left.merge(right);
+        double[] sample = left.snapshot();
+        Arrays.sort(sample);
+        Assert.assertArrayEquals("Merged sample should have all values", new double[]{1.0, 2.0, 3.0, 4.0, 5.0}, sample, 0);
+    }
+
+    /**
+     * Tests that reservoirs of different sample sizes cannot be merged
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeWithDifferentSampleSizes() {
+        new IntReservoir(10, new SplitMix64(0)).merge(new IntReservoir(5, new SplitMix64(0)));
+    }
+
+    /**
+     * Tests that a {@link Reservoir} throws {@link IllegalArgumentException} for 0 {@code sampleSize}
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testReservoirWithZeroSampleSize() {
+        new Reservoir<String>(0, new SplitMix64(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests the {@link SamplerCommand} class behind {@link StreamSampler#main(String[])}
+ *
+ * @author Sriram
+ */
+public class SamplerCommandTest {
+    private String text = "THE\nQUICK\nBROWN\nFOX 😀\nJUMPS öäÄÜÖß";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the default command samples characters like {@link StreamSampler#fastSample(java.io.InputStream, int)}
+     * with the same seed, and prints them followed by a newline. A lone surrogate of the sample is printed as
+     * {@code ?}, like any unencodable character.
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testCommandMatchesFastSample() throws Exception {
+        String expected = utf8(new StreamSampler(7).fastSample(new ByteArrayInputStream(bytes(text)), 5) + "\n");
+        Assert.assertEquals("Command should print the fast sample", expected, run(text, "--seed", "7", "5"));
+    }
+
+    /**
+     * Tests that the naive algorithm samples characters like {@link StreamSampler#sample(java.io.InputStream, int)}
+     * with the same seed
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testCommandWithNaiveAlgorithm() throws Exception {
+        String expected = utf8(new StreamSampler(7).sample(new ByteArrayInputStream(bytes(text)), 5) + "\n");
+        Assert.assertEquals("Command should print the naive sample", expected, run(text, "-a", "naive", "-s", "7", "5"));
+    }
+
+    /**
+     * Tests every unit with a sample size exceeding the input, in the formats of the command
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when sampling from memory
+     */
+    @Test
+    public void testCommandUnitsAndFormats() throws Exception {
+        Assert.assertEquals("Lines should be printed one per line", "THE\nQUICK\nBROWN\nFOX 😀\nJUMPS öäÄÜÖß\n",
+                run(text, "-u", "line", "100"));
+        Assert.assertEquals("Lines should be printed as a JSON array",
+                "[\"THE\",\"QUICK\",\"BROWN\",\"FOX 😀\",\"JUMPS öäÄÜÖß\"]\n", run(text, "-u", "line", "-f", "json", "100"));
+        Assert.assertEquals("Bytes should be printed as they are", "A\nB", run("A\nB", "-u", "byte", "100"));
+        Assert.assertEquals("Bytes should be printed as JSON numbers", "[65,10,66]\n",
+                run("A\nB", "-u", "byte", "-f", "json", "100"));
+        Assert.assertEquals("Code points should be printed one per line", "ö\n😀\n",
+                run("ö😀", "--unit", "CODEPOINT", "--format", "lines", "100"));
+        Assert.assertEquals("Characters should be escaped in JSON", "[\"\\\"\",\"\\n\"]\n",
+                run("\"\n", "-f", "json", "100"));
+    }
+
+    /**
+     * Tests that the files passed are sampled one after the other, with {@code -} standing for stdin
+     *
+     * @throws Exception {@link java.io.IOException} thrown if the files cannot be written
+     */
+    @Test
+    public void testCommandWithFiles() throws Exception {
+        Path first = folder.newFile("first.txt").toPath();
+        Path second = folder.newFile("second.txt").toPath();
+        Files.write(first, bytes("THE\nQUICK\n"));
+        Files.write(second, bytes("FOX\n"));
+        Assert.assertEquals("Files and stdin should be sampled in order", "THE\nQUICK\nBROWN\nFOX\n",
+                run("BROWN\n", "-u", "line", "100", first.toString(), "-", second.toString()));
+    }
+
+    /**
+     * Tests that invalid arguments are rejected with {@link IllegalArgumentException}
+     */
+    @Test
+    public void testCommandWithInvalidArguments() {
+        String[][] invalid = {{}, {"-u", "word", "5"}, {"--size", "5"}, {"-a", "naive", "-u", "byte", "5"},
+                {"0"}, {"five"}, {"5", "-s"}};
+        for (String[] args : invalid) {
+            try {
+                SamplerCommand.parse(args);
+                Assert.fail("Arguments should be rejected: " + String.join(" ", args));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Runs the command on {@code input}
+     *
+     * @param input Content of stdin
+     * @param args  Command line arguments
+     * @return Content of stdout
+     * @throws Exception {@link java.io.IOException} thrown by the command
+     */
+    private static String run(String input, String... args) throws Exception {
+        ReadableByteChannel stdin = Channels.newChannel(new ByteArrayInputStream(bytes(input)));
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        SamplerCommand.parse(args).run(stdin, stdout);
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a String as UTF-8 and decodes it back, which replaces lone surrogates
+     *
+     * @param text String to encode
+     * @return Decoded String
+     */
+    private static String utf8(String text) {
+        return new String(bytes(text), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a String as UTF-8
+     *
+     * @param text String to encode
+     * @return Bytes
+     */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tests the {@link SamplingMetrics} reported by reservoirs and by {@link StreamSampler}
+ *
+ * @author Sriram
+ */
+public class SamplingMetricsTest {
+    private String text = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG öäÄÜÖß";
+
+    /**
+     * Tests that the counters of a reservoir account for every element offered, and that the number of replacements
+     * is close to its expected value of {@code k * ln(n / k)}
+     */
+    @Test
+    public void testReservoirMetrics() {
+        int sampleSize = 100;
+        int n = 1000000;
+        SamplingMetrics metrics = new SamplingMetrics();
+        ByteReservoir reservoir = new ByteReservoir(sampleSize, new CountingRandomSource(new SplitMix64(0), metrics));
+        reservoir.listener(metrics);
+        byte[] values = new byte[n];
+        reservoir.offerAll(values, 0, n / 2);
+        for (int i = n / 2; i < n; i++) {
+            reservoir.offer(values[i]);
+        }
+        Assert.assertEquals("Every element should be counted", n, metrics.getElements());
+        Assert.assertEquals("Fill phase should store the first elements", sampleSize, metrics.getFilledElements());
+        Assert.assertEquals("Every replacement should be followed by a skip", metrics.getReplacements() + 1,
+                metrics.getSkips());
+        double expected = sampleSize * Math.log(n / (double) sampleSize);
+        Assert.assertEquals("Replacements should be close to k * ln(n / k)", expected, metrics.getReplacements(),
+                expected * 0.2);
+        Assert.assertTrue("Random numbers should be drawn", metrics.getRandomDraws() >= metrics.getReplacements());
+        Assert.assertEquals("Histogram should count every skip", metrics.getSkips(),
+                Arrays.stream(metrics.getSkipLengthHistogram()).sum());
+        Assert.assertTrue("Mean skip should be long", metrics.getMeanSkipLength() > 1000);
+
+        metrics.reset();
+        Assert.assertEquals("Reset should clear the counters", 0, metrics.getElements());
+    }
+
+    /**
+     * Tests that {@link StreamSampler} reports the bytes read, and the elements of the naive, fast and byte samples
+     *
+     * @throws Exception {@link java.io.IOException} thrown by the passed {@link java.io.InputStream}'s read method
+     */
+    @Test
+    public void testStreamSamplerMetrics() throws Exception {
+        StreamSampler sampler = new StreamSampler(0);
+        SamplingMetrics metrics = new SamplingMetrics();
+        sampler.listener(metrics);
+        String sample = sampler.fastSample(stream(text), 10);
+        Assert.assertEquals("Bytes read should be the length of the input", bytes(text).length, metrics.getBytesRead());
+        Assert.assertEquals("Every character should be counted", text.length(), metrics.getElements());
+        Assert.assertTrue("Random numbers should be drawn", metrics.getRandomDraws() > 0);
+
+        metrics.reset();
+        sampler.sample(stream(text), 10);
+        Assert.assertEquals("Every character should be counted", text.length(), metrics.getElements());
+        Assert.assertEquals("Fill phase should store the first characters", 10, metrics.getFilledElements());
+        Assert.assertEquals("Naive sample should draw once per character after the fill phase",
+                text.length() - 10, metrics.getRandomDraws());
+
+        metrics.reset();
+        sampler.byteSample(stream(text), 10);
+        Assert.assertEquals("Every byte should be counted", bytes(text).length, metrics.getElements());
+        Assert.assertEquals("Fill phase should store the first bytes", 10, metrics.getFilledElements());
+
+        sampler.listener(SamplingListener.NONE);
+        Assert.assertEquals("Listener should not change the sample", sample,
+                new StreamSampler(0).fastSample(stream(text), 10));
+    }
+
+    /**
+     * Tests that the metrics can be read through the platform MBean server
+     *
+     * @throws Exception {@link javax.management.JMException} thrown if the metrics cannot be registered
+     */
+    @Test
+    public void testMetricsMBean() throws Exception {
+        SamplingMetrics metrics = new SamplingMetrics();
+        ObjectName name = metrics.register("test");
+        try {
+            metrics.onRead(42);
+            Assert.assertEquals("Attribute should match the counter", 42L,
+                    ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BytesRead"));
+        } finally {
+            SamplingMetrics.unregister("test");
+        }
+        Assert.assertFalse("Metrics should be unregistered",
+                ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    /**
+     * Tests that a reservoir drawing from a {@link CountingRandomSource} can be checkpointed and resumed
+     *
+     * @throws Exception {@link java.io.IOException} not thrown when decoding a valid checkpoint
+     */
+    @Test
+    public void testCheckpointWithCountingRandomSource() throws Exception {
+        SamplingMetrics metrics = new SamplingMetrics();
+        CharReservoir reservoir = new CharReservoir(5, new CountingRandomSource(new SplitMix64(0), metrics));
+        reservoir.offerAll(text.toCharArray(), 0, 20);
+        CharReservoir resumed = ReservoirCheckpoint.decode(ReservoirCheckpoint.encode(reservoir), CharReservoir.class);
+        reservoir.offerAll(text.toCharArray(), 20, text.length() - 20);
+        resumed.offerAll(text.toCharArray(), 20, text.length() - 20);
+        Assert.assertArrayEquals("Resumed reservoir should match the original", reservoir.snapshot(),
+                resumed.snapshot());
+    }
+
+    /**
+     * Creates a stream of the UTF-8 bytes of {@code text}
+     *
+     * @param text Content of the stream
+     * @return Stream
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(bytes(text));
+    }
+
+    /**
+     * Encodes a String as UTF-8
+     *
+     * @param text String to encode
+     * @return Bytes
+     */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests the {@link StratifiedReservoir} class
+ *
+ * @author Sriram
+ */
+public class StratifiedReservoirTest {
+    /**
+     * Tests that a {@link StratifiedReservoir} samples the objects of every key separately
+     */
+    @Test
+    public void testStratifiedReservoirSamplesEveryKey() {
+        StratifiedReservoir<Long> reservoir = new StratifiedReservoir<>(5, 1 << 20,
+                StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, new SplitMix64(0));
+        for (long i = 0; i < 100000; i++) {
+            // Key i % 100 gets the objects congruent to it
+            reservoir.offer(i % 100, i);
+        }
+        Assert.assertEquals("Every key should be held", 100, reservoir.size());
+        for (long key = 0; key < 100; key++) {
+            Assert.assertEquals("Every key should count its objects", 1000, reservoir.count(key));
+            Assert.assertEquals("Every key should have a full sample", 5, reservoir.snapshot(key).size());
+            for (long value : reservoir.snapshot(key)) {
+                Assert.assertEquals("Samples should only have objects of their key", key, value % 100);
+            }
+        }
+        Assert.assertTrue("Unknown keys should have empty samples", reservoir.snapshot(100).isEmpty());
+    }
+
+    /**
+     * Tests that the sample of a key is uniform over the objects of the key
+     */
+    @Test
+    public void testStratifiedReservoirIsUniform() {
+        int nRuns = 2000;
+        int sampleSize = 4;
+        RandomSource random = new SplitMix64(0);
+        long older = 0;
+        for (int run = 0; run < nRuns; run++) {
+            StratifiedReservoir<Integer> reservoir = new StratifiedReservoir<>(sampleSize, 1 << 16,
+                    StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, random);
+            for (int i = 0; i < 1000; i++) {
+                reservoir.offer(i % 3, i);
+            }
+            for (int value : reservoir.snapshot(1)) {
+                if (value < 500) {
+                    older++;
+                }
+            }
+        }
+        Assert.assertEquals("Both halves of the stream should be sampled as often", 0.5,
+                older / (double) (nRuns * sampleSize), 0.02);
+    }
+
+    /**
+     * Tests that the least recently used key is evicted once the memory budget is exhausted
+     */
+    @Test
+    public void testStratifiedReservoirEvictsLeastRecentlyUsed() {
+        StratifiedReservoir<String> reservoir = new StratifiedReservoir<>(2, budgetFor(2, 4),
+                StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, new SplitMix64(0));
+        Assert.assertEquals("Budget should hold 4 keys", 4, reservoir.maxKeys());
+        for (long key = 0; key < 4; key++) {
+            reservoir.offer(key, "FIRST");
+        }
+        reservoir.offer(0, "SECOND");
+        reservoir.offer(2, "SECOND");
+        reservoir.offer(3, "SECOND");
+        reservoir.offer(4, "FIRST");
+        long[] keys = reservoir.keys();
+        Arrays.sort(keys);
+        Assert.assertArrayEquals("Key 1 should have been evicted", new long[]{0, 2, 3, 4}, keys);
+        Assert.assertEquals("Eviction should be counted", 1, reservoir.evictions());
+        Assert.assertEquals("Evicted key should start over", 0, reservoir.count(1));
+    }
+
+    /**
+     * Tests that the least frequently used key is evicted once the memory budget is exhausted
+     */
+    @Test
+    public void testStratifiedReservoirEvictsLeastFrequentlyUsed() {
+        StratifiedReservoir<String> reservoir = new StratifiedReservoir<>(2, budgetFor(2, 4),
+                StratifiedReservoir.Eviction.LEAST_FREQUENTLY_USED, new SplitMix64(0));
+        for (long key = 0; key < 4; key++) {
+            for (int i = 0; i <= 10 - key; i++) {
+                reservoir.offer(key, "VALUE");
+            }
+        }
+        reservoir.offer(4, "VALUE");
+        long[] keys = reservoir.keys();
+        Arrays.sort(keys);
+        Assert.assertArrayEquals("Key 3 should have been evicted", new long[]{0, 1, 2, 4}, keys);
+    }
+
+    /**
+     * Tests that the footprint of a {@link StratifiedReservoir} grows with its keys but stays within the budget
+     */
+    @Test
+    public void testStratifiedReservoirFootprint() {
+        long budget = 1 << 20;
+        StratifiedReservoir<Integer> reservoir = new StratifiedReservoir<>(16, budget,
+                StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, new SplitMix64(0));
+        long initial = reservoir.footprint();
+        for (int i = 0; i < 1000000; i++) {
+            reservoir.offer(i, i);
+            Assert.assertTrue("Key should be held right after being offered", reservoir.count(i) == 1);
+        }
+        Assert.assertEquals("Sampler should be full", reservoir.maxKeys(), reservoir.size());
+        Assert.assertTrue("Footprint should grow with the keys", reservoir.footprint() > initial);
+        Assert.assertTrue("Footprint should stay within the budget", reservoir.footprint() <= budget);
+    }
+
+    /**
+     * Tests that a {@link StratifiedReservoir} throws {@link IllegalArgumentException} for a budget too small for a
+     * single key
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStratifiedReservoirWithTinyBudget() {
+        new StratifiedReservoir<String>(10, 100, StratifiedReservoir.Eviction.LEAST_RECENTLY_USED, new SplitMix64(0));
+    }
+
+    /**
+     * Returns a budget holding exactly {@code keys} keys
+     *
+     * @param sampleSize Maximum number of objects held for every key
+     * @param keys       Number of keys
+     * @return Budget in bytes
+     */
+    private static long budgetFor(int sampleSize, int keys) {
+        return 8 * 24 + keys * StratifiedReservoir.bytesPerKey(sampleSize);
+    }
+}
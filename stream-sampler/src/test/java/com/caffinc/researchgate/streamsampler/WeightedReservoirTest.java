@@ -0,0 +1,94 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the {@link WeightedReservoir} class
+ *
+ * @author Sriram
+ */
+public class WeightedReservoirTest {
+    /**
+     * Tests that a {@link WeightedReservoir} keeps all offered objects with positive weights when fewer than
+     * {@code sampleSize} are offered
+     */
+    @Test
+    public void testWeightedReservoirWithExcessSize() {
+        WeightedReservoir<String> reservoir = new WeightedReservoir<>(10, new SplitMix64(0));
+        reservoir.offer("THE", 1);
+        reservoir.offer("QUICK", 1000);
+        reservoir.offer("BROWN", 0);
+        reservoir.offer("FOX", 0.001);
+        List<String> sample = reservoir.snapshot();
+        Collections.sort(sample);
+        Assert.assertEquals("Sample should have all objects with positive weights", Arrays.asList("FOX", "QUICK", "THE"), sample);
+        Assert.assertEquals("Reservoir should count all objects", 4, reservoir.count());
+        Assert.assertEquals("Reservoir should sum all weights", 1001.001, reservoir.totalWeight(), 1e-9);
+    }
+
+    /**
+     * Tests that a single object is sampled with a probability proportional to its weight, also when the heavy
+     * objects come first in the stream
+     */
+    @Test
+    public void testWeightedReservoirIsProportional() {
+        int nRuns = 20000;
+        RandomSource random = new SplitMix64(0);
+        long heavy = 0;
+        for (int i = 0; i < nRuns; i++) {
+            WeightedReservoir<Boolean> reservoir = new WeightedReservoir<>(1, random);
+            for (int j = 0; j < 1000; j++) {
+                // Objects in the first half weigh 3 times as much as the ones in the second half
+                reservoir.offer(j < 500, j < 500 ? 3 : 1);
+            }
+            if (reservoir.snapshot().get(0)) {
+                heavy++;
+            }
+        }
+        Assert.assertEquals("Heavy objects should be sampled 3 times as often", 0.75, heavy / (double) nRuns, 0.01);
+    }
+
+    /**
+     * Tests that merging {@link WeightedReservoir}s weights their samples by the weights of their objects
+     */
+    @Test
+    public void testWeightedReservoirMergeIsProportional() {
+        int nRuns = 20000;
+        RandomSource random = new SplitMix64(0);
+        long right = 0;
+        for (int i = 0; i < nRuns; i++) {
+            WeightedReservoir<Boolean> leftReservoir = new WeightedReservoir<>(1, random);
+            WeightedReservoir<Boolean> rightReservoir = new WeightedReservoir<>(1, random);
+            for (int j = 0; j < 100; j++) {
+                leftReservoir.offer(false, 1);
+                rightReservoir.offer(true, 4);
+            }
+            leftReservoir.merge(rightReservoir);
+            if (leftReservoir.snapshot().get(0)) {
+                right++;
+            }
+        }
+        Assert.assertEquals("Objects should be sampled proportionally to the weights", 0.8, right / (double) nRuns, 0.01);
+    }
+
+    /**
+     * Tests that a {@link WeightedReservoir} throws {@link IllegalArgumentException} for negative weights
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedReservoirWithNegativeWeight() {
+        new WeightedReservoir<String>(10, new SplitMix64(0)).offer("THE", -1);
+    }
+
+    /**
+     * Tests that a {@link WeightedReservoir} throws {@link IllegalArgumentException} for 0 {@code sampleSize}
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedReservoirWithZeroSampleSize() {
+        new WeightedReservoir<String>(0, new SplitMix64(0));
+    }
+}
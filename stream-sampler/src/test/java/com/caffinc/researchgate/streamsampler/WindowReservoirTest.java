@@ -0,0 +1,136 @@
+package com.caffinc.researchgate.streamsampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests the {@link CountWindowReservoir}, {@link SlidingWindowReservoir} and {@link DecayingReservoir} classes
+ *
+ * @author Sriram
+ */
+public class WindowReservoirTest {
+    /**
+     * Tests that a {@link CountWindowReservoir} only samples distinct objects of the last {@code windowLength} ones,
+     * while keeping few candidates
+     */
+    @Test
+    public void testCountWindowSamplesLastObjects() {
+        CountWindowReservoir<Integer> reservoir = new CountWindowReservoir<>(10, 1000, new SplitMix64(0));
+        for (int i = 0; i < 1000000; i++) {
+            reservoir.offer(i);
+            Assert.assertTrue("Candidates should stay bounded", reservoir.candidates() < 1000);
+        }
+        List<Integer> sample = reservoir.snapshot();
+        Assert.assertEquals("Sample should be full", 10, sample.size());
+        Assert.assertEquals("Sample should not repeat objects", 10, new HashSet<>(sample).size());
+        for (int value : sample) {
+            Assert.assertTrue("Sample should only have objects of the window", value >= 1000000 - 1000);
+        }
+    }
+
+    /**
+     * Tests that every position of the window of a {@link CountWindowReservoir} is sampled equally often
+     */
+    @Test
+    public void testCountWindowIsUniform() {
+        int nRuns = 5000;
+        int sampleSize = 4;
+        RandomSource random = new SplitMix64(0);
+        long older = 0;
+        for (int run = 0; run < nRuns; run++) {
+            CountWindowReservoir<Integer> reservoir = new CountWindowReservoir<>(sampleSize, 100, random);
+            for (int i = 0; i < 1000; i++) {
+                reservoir.offer(i);
+            }
+            for (int value : reservoir.snapshot()) {
+                if (value < 950) {
+                    older++;
+                }
+            }
+        }
+        Assert.assertEquals("Both halves of the window should be sampled as often", 0.5,
+                older / (double) (nRuns * sampleSize), 0.015);
+    }
+
+    /**
+     * Tests that a {@link CountWindowReservoir} keeps all objects when fewer than {@code sampleSize} are offered
+     */
+    @Test
+    public void testCountWindowWithExcessSize() {
+        CountWindowReservoir<String> reservoir = new CountWindowReservoir<>(10, 100, new SplitMix64(0));
+        reservoir.offerAll(Arrays.asList("THE", "QUICK", "BROWN", "FOX"));
+        Assert.assertEquals("Sample should have all objects, oldest first", Arrays.asList("THE", "QUICK", "BROWN", "FOX"),
+                reservoir.snapshot());
+    }
+
+    /**
+     * Tests that a {@link SlidingWindowReservoir} drops the objects which left the time window
+     */
+    @Test
+    public void testTimeWindowExpiresObjects() {
+        SlidingWindowReservoir<Long> reservoir = new SlidingWindowReservoir<>(5, 60, new SplitMix64(0));
+        for (long time = 0; time < 100000; time++) {
+            reservoir.offer(time, time);
+        }
+        for (long value : reservoir.snapshot(100000)) {
+            Assert.assertTrue("Sample should only have objects of the window", value > 100000 - 60);
+        }
+        Assert.assertEquals("Sample should have the last object", Arrays.asList(99999L), reservoir.snapshot(100058));
+        Assert.assertTrue("Sample should be empty once the window has passed", reservoir.snapshot(100059).isEmpty());
+    }
+
+    /**
+     * Tests that a {@link SlidingWindowReservoir} rejects decreasing timestamps
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimeWindowWithDecreasingTimestamps() {
+        SlidingWindowReservoir<String> reservoir = new SlidingWindowReservoir<>(5, 60, new SplitMix64(0));
+        reservoir.offer("THE", 10);
+        reservoir.offer("QUICK", 9);
+    }
+
+    /**
+     * Tests that a {@link DecayingReservoir} samples objects proportionally to their decayed weights
+     */
+    @Test
+    public void testDecayFavorsRecentObjects() {
+        int nRuns = 20000;
+        RandomSource random = new SplitMix64(0);
+        long recent = 0;
+        for (int run = 0; run < nRuns; run++) {
+            // Objects at time 1 weigh e^(ln 3) = 3 times as much as the objects at time 0
+            DecayingReservoir<Boolean> reservoir = new DecayingReservoir<>(1, Math.log(3), random);
+            for (int i = 0; i < 100; i++) {
+                reservoir.offer(false, 0);
+            }
+            for (int i = 0; i < 100; i++) {
+                reservoir.offer(true, 1);
+            }
+            if (reservoir.snapshot().get(0)) {
+                recent++;
+            }
+        }
+        Assert.assertEquals("Recent objects should be sampled 3 times as often", 0.75, recent / (double) nRuns, 0.01);
+    }
+
+    /**
+     * Tests that a {@link DecayingReservoir} keeps on sampling recent objects over long periods of time, where the
+     * weights would overflow without rescaling
+     */
+    @Test
+    public void testDecayOverLongPeriods() {
+        DecayingReservoir<Long> reservoir = new DecayingReservoir<>(10, 1, new SplitMix64(0));
+        for (long time = 0; time < 100000; time++) {
+            reservoir.offer(time, time);
+        }
+        List<Long> sample = reservoir.snapshot();
+        Assert.assertEquals("Sample should be full", 10, sample.size());
+        for (long value : sample) {
+            Assert.assertTrue("Sample should favor the most recent objects", value > 100000 - 100);
+        }
+    }
+}